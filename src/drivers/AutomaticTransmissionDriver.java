@@ -30,7 +30,6 @@ public class AutomaticTransmissionDriver extends Controller {
     private double currentDistanceFromStartLine;
     private int completeLaps;
     private double distanceRaced;
-    private SensorModel previousSensors;
     private SensorModel currentSensors;
 
     // Cache variables
@@ -44,10 +43,12 @@ public class AutomaticTransmissionDriver extends Controller {
      */
     public AutomaticTransmissionDriver() {
         steerControlSystem = new QLearning(Constants.ControlSystems.STEERING_CONTROL_SYSTEM);
+        steerControlSystem.watchTable();
         currentSteerState = SteerControl.States.NORMAL_SPEED;
         actionSteer = SteerControl.Actions.TURN_STEERING_WHEEL;
 
         accelControlSystem = new QLearning(Constants.ControlSystems.ACCELERATION_CONTROL_SYSTEM);
+        accelControlSystem.watchTable();
         currentAccelState = AccelControl.States.STRAIGHT_LINE;
         actionAccel = AccelControl.Actions.FULL_THROTTLE;
 
@@ -63,6 +64,30 @@ public class AutomaticTransmissionDriver extends Controller {
         offTrack = false;
     }
 
+    /**
+     * Sets the name of the track, so that the Q-tables are the ones learned on it.
+     *
+     * @param trackName The name of the track.
+     */
+    @Override
+    public void setTrackName(String trackName) {
+        super.setTrackName(trackName);
+        this.steerControlSystem.setTrackName(trackName);
+        this.accelControlSystem.setTrackName(trackName);
+    }
+
+    /**
+     * Sets the learning settings of the driver and of its Q-tables, which start over with them.
+     *
+     * @param learningSettings The learning settings.
+     */
+    @Override
+    public void setLearningSettings(LearningSettings learningSettings) {
+        super.setLearningSettings(learningSettings);
+        this.steerControlSystem.setLearningSettings(learningSettings);
+        this.accelControlSystem.setLearningSettings(learningSettings);
+    }
+
     /**
      * Controls the car based on the sensor inputs.
      *
@@ -72,27 +97,42 @@ public class AutomaticTransmissionDriver extends Controller {
      */
     @Override
     public Action control(SensorModel sensors) {
+        Action action = new Action();
+        this.control(sensors, action);
+        return action;
+    }
+
+    /**
+     * Controls the car based on the sensor readings, filling in an action owned by the caller, so that a race
+     * allocates no action per tick.
+     *
+     * @param sensors The sensor readings from the car.
+     * @param action  The action to fill in; every value is overwritten.
+     */
+    @Override
+    public void control(SensorModel sensors, Action action) {
+        action.reset();
         if (this.tics == 0) {
             this.previosDistanceFromStartLine = sensors.getDistanceFromStartLine();
             this.currentDistanceFromStartLine = this.previosDistanceFromStartLine;
 
-            this.previousSensors = sensors;
-            this.currentSensors = this.previousSensors;
+            this.currentSensors = sensors;
 
             this.tics++;
         } else {
             this.previosDistanceFromStartLine = this.currentDistanceFromStartLine;
             this.currentDistanceFromStartLine = sensors.getDistanceFromStartLine();
 
-            this.previousSensors = this.currentSensors;
             this.currentSensors = sensors;
 
             this.tics++;
 
-            System.out.println("Laps: " + this.laps + "/1");
-            System.out.println("Epochs: " + this.epochs + "/" + Constants.MAX_EPOCHS);
-            System.out.println("Complete Laps: " + this.completeLaps + "/" + Constants.MAX_EPOCHS);
-            System.out.println();
+            if (!this.isQuiet()) {
+                System.out.println("Laps: " + this.laps + "/1");
+                System.out.println("Epochs: " + this.epochs + "/" + Constants.MAX_EPOCHS);
+                System.out.println("Complete Laps: " + this.completeLaps + "/" + Constants.MAX_EPOCHS);
+                System.out.println();
+            }
         }
 
         // Update raced distance
@@ -107,9 +147,8 @@ public class AutomaticTransmissionDriver extends Controller {
             if (this.laps >= 1) {
                 this.completeLap = true;
 
-                Action action = new Action();
                 action.restartRace = true;
-                return action;
+                return;
             }
         }
 
@@ -117,9 +156,8 @@ public class AutomaticTransmissionDriver extends Controller {
         if (Math.abs(this.currentSensors.getTrackPosition()) >= 1) {
             this.offTrack = true;
 
-            Action action = new Action();
             action.restartRace = true;
-            return action;
+            return;
         }
 
         // check if car is currently stuck
@@ -145,26 +183,23 @@ public class AutomaticTransmissionDriver extends Controller {
 
             this.clutch = DrivingInstructor.clutching(this.currentSensors, (float) this.clutch, getStage());
 
-            // Build a CarControl variable and return it
-            Action action = new Action();
             action.gear = gear;
             action.steering = steer;
             action.accelerate = 1.0;
             action.brake = 0;
             action.clutch = clutch;
 
-            return action;
+            return;
         }
 
         // If the car is not stuck
-        Action action = new Action();
-
         // Calculate gear value
         action.gear = DrivingInstructor.getGear(this.currentSensors);
 
         // Calculate steer value
         this.currentSteerState = SteerControl.evaluateSteerState(this.currentSensors);
-        this.actionSteer = (SteerControl.Actions) this.steerControlSystem.nextOnlyBestAction(this.currentSteerState);
+        this.actionSteer = (SteerControl.Actions) this.steerControlSystem.getPolicy()
+                .bestAction(this.currentSteerState);
         double steer = SteerControl.steerAction2Double(this.currentSensors, this.actionSteer);
 
         // normalize steering
@@ -176,16 +211,13 @@ public class AutomaticTransmissionDriver extends Controller {
 
         // Calculate accel/brake
         this.currentAccelState = AccelControl.evaluateAccelState(this.currentSensors);
-        this.actionAccel = (AccelControl.Actions) this.accelControlSystem.nextOnlyBestAction(this.currentAccelState);
-        Double[] accel_and_brake = AccelControl.accelAction2Double(this.currentSensors, this.actionAccel);
-        action.accelerate = accel_and_brake[0];
-        action.brake = accel_and_brake[1];
+        this.actionAccel = (AccelControl.Actions) this.accelControlSystem.getPolicy()
+                .bestAction(this.currentAccelState);
+        AccelControl.applyAccelAction(this.currentSensors, this.actionAccel, action);
 
         // Calculate clutch
         this.clutch = DrivingInstructor.clutching(this.currentSensors, (float) this.clutch, getStage());
         action.clutch = this.clutch;
-
-        return action;
     }
 
     /**
@@ -201,9 +233,10 @@ public class AutomaticTransmissionDriver extends Controller {
 
         if (this.completeLap) {
             this.completeLaps++;
-            System.out.println("Complete lap!");
+            if (!this.isQuiet())
+                System.out.println("Complete lap!");
         }
-        if (this.offTrack) {
+        if (this.offTrack && !this.isQuiet()) {
             System.out.println("Out of track!");
         }
 
@@ -221,9 +254,11 @@ public class AutomaticTransmissionDriver extends Controller {
         completeLap = false;
         offTrack = false;
 
-        System.out.println();
-        System.out.println("*** Restarting the race ***");
-        System.out.println();
+        if (!this.isQuiet()) {
+            System.out.println();
+            System.out.println("*** Restarting the race ***");
+            System.out.println();
+        }
     }
 
     /**
@@ -231,9 +266,13 @@ public class AutomaticTransmissionDriver extends Controller {
      */
     @Override
     public void shutdown() {
-        System.out.println();
-        System.out.println("*** Finish the test ***");
-        System.out.println();
+        this.steerControlSystem.stopWatchingTable();
+        this.accelControlSystem.stopWatchingTable();
+        if (!this.isQuiet()) {
+            System.out.println();
+            System.out.println("*** Finish the test ***");
+            System.out.println();
+        }
     }
 
     /**
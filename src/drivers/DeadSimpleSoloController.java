@@ -20,6 +20,19 @@ public class DeadSimpleSoloController extends Controller {
      */
     public Action control(SensorModel sensorModel) {
         Action action = new Action();
+        this.control(sensorModel, action);
+        return action;
+    }
+
+    /**
+     * Controls the car based on the sensor readings, filling in an action owned by the caller, so that a race
+     * allocates no action per tick.
+     *
+     * @param sensorModel The sensor readings from the car.
+     * @param action      The action to fill in; every value is overwritten.
+     */
+    public void control(SensorModel sensorModel, Action action) {
+        action.reset();
         if (sensorModel.getSpeed() < targetSpeed) {
             action.accelerate = 1;
         }
@@ -29,20 +42,21 @@ public class DeadSimpleSoloController extends Controller {
             action.steering = 0.1;
         }
         action.gear = 1;
-        return action;
     }
 
     /**
      * Resets the state of the controller.
      */
     public void reset() {
-        System.out.println("Restarting the race!");
+        if (!this.isQuiet())
+            System.out.println("Restarting the race!");
     }
 
     /**
      * Shuts down the controller.
      */
     public void shutdown() {
-        System.out.println("Bye bye!");
+        if (!this.isQuiet())
+            System.out.println("Bye bye!");
     }
 }
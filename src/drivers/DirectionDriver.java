@@ -28,7 +28,6 @@ public class DirectionDriver extends Controller {
     private double currentDistanceFromStartLine;
     private int completeLaps;
     private double distanceRaced;
-    private SensorModel previousSensors;
     private SensorModel currentSensors;
 
     // Cache variables
@@ -36,12 +35,14 @@ public class DirectionDriver extends Controller {
     private double clutch;
     private boolean completeLap;
     private boolean offTrack;
+    private TrackMap trackMap;
 
     /**
      * Constructs an instance of the DirectionDriver class.
      */
     public DirectionDriver() {
         steerControlSystem = new QLearning(Constants.ControlSystems.STEERING_CONTROL_SYSTEM);
+        steerControlSystem.watchTable();
         currentSteerState = SteerControl.States.NORMAL_SPEED;
         actionSteer = SteerControl.Actions.TURN_STEERING_WHEEL;
 
@@ -57,6 +58,30 @@ public class DirectionDriver extends Controller {
         offTrack = false;
     }
 
+    /**
+     * Sets the name of the track, so that the Q-tables are the ones learned on it.
+     *
+     * @param trackName The name of the track.
+     */
+    @Override
+    public void setTrackName(String trackName) {
+        super.setTrackName(trackName);
+        this.steerControlSystem.setTrackName(trackName);
+    }
+
+    /**
+     * Sets the learning settings of the driver and of its Q-table, which starts over with them. The track map is
+     * loaded again with them.
+     *
+     * @param learningSettings The learning settings.
+     */
+    @Override
+    public void setLearningSettings(LearningSettings learningSettings) {
+        super.setLearningSettings(learningSettings);
+        this.steerControlSystem.setLearningSettings(learningSettings);
+        this.trackMap = null;
+    }
+
     /**
      * Controls the car's actions based on the current sensor inputs.
      *
@@ -66,33 +91,53 @@ public class DirectionDriver extends Controller {
      */
     @Override
     public Action control(SensorModel sensors) {
+        Action action = new Action();
+        this.control(sensors, action);
+        return action;
+    }
+
+    /**
+     * Controls the car based on the sensor readings, filling in an action owned by the caller, so that a race
+     * allocates no action per tick.
+     *
+     * @param sensors The sensor readings from the car.
+     * @param action  The action to fill in; every value is overwritten.
+     */
+    @Override
+    public void control(SensorModel sensors, Action action) {
+        action.reset();
         if (this.tics == 0) {
             this.previosDistanceFromStartLine = sensors.getDistanceFromStartLine();
             this.currentDistanceFromStartLine = this.previosDistanceFromStartLine;
 
-            this.previousSensors = sensors;
-            this.currentSensors = this.previousSensors;
+            this.currentSensors = sensors;
 
             this.tics++;
         } else {
             this.previosDistanceFromStartLine = this.currentDistanceFromStartLine;
             this.currentDistanceFromStartLine = sensors.getDistanceFromStartLine();
 
-            this.previousSensors = this.currentSensors;
             this.currentSensors = sensors;
 
             this.tics++;
 
-            System.out.println("Tics: " + this.tics);
-            System.out.println("Laps: " + this.laps + "/1");
-            System.out.println("Epochs: " + this.epochs + "/" + Constants.MAX_EPOCHS);
-            System.out.println("Complete Laps: " + this.completeLaps + "/" + Constants.MAX_EPOCHS);
-            System.out.println();
+            if (!this.isQuiet()) {
+                System.out.println("Tics: " + this.tics);
+                System.out.println("Laps: " + this.laps + "/1");
+                System.out.println("Epochs: " + this.epochs + "/" + Constants.MAX_EPOCHS);
+                System.out.println("Complete Laps: " + this.completeLaps + "/" + Constants.MAX_EPOCHS);
+                System.out.println();
+            }
         }
 
         // Update raced distance
         this.distanceRaced = this.currentSensors.getDistanceRaced();
 
+        // Learn the track, loading what was learned before on the first tick (the track name is known by now)
+        if (this.trackMap == null)
+            this.trackMap = TrackMap.load(getTrackName(), getLearningSettings());
+        this.trackMap.observe(this.currentSensors);
+
         // Update complete laps
         if (this.previosDistanceFromStartLine > 1 && this.currentDistanceFromStartLine < 1) {
             this.laps++;
@@ -102,9 +147,8 @@ public class DirectionDriver extends Controller {
             if (this.laps >= 1) {
                 this.completeLap = true;
 
-                Action action = new Action();
                 action.restartRace = true;
-                return action;
+                return;
 
 
             }
@@ -113,10 +157,10 @@ public class DirectionDriver extends Controller {
         // If the car is off track, restart the race
         if (Math.abs(this.currentSensors.getTrackPosition()) >= 1) {
             this.offTrack = true;
+            this.trackMap.recordOffTrack(this.currentDistanceFromStartLine);
 
-            Action action = new Action();
             action.restartRace = true;
-            return action;
+            return;
         }
 
         // check if car is currently stuck
@@ -142,26 +186,23 @@ public class DirectionDriver extends Controller {
 
             this.clutch = DrivingInstructor.clutching(this.currentSensors, (float) this.clutch, getStage());
 
-            // Build a CarControl variable and return it
-            Action action = new Action();
             action.gear = gear;
             action.steering = steer;
             action.accelerate = 1.0;
             action.brake = 0;
             action.clutch = clutch;
 
-            return action;
+            return;
         }
 
         // If the car is not stuck
-        Action action = new Action();
-
         // Calculate gear value
         action.gear = DrivingInstructor.getGear(this.currentSensors);
 
         // Calculate steer value
         this.currentSteerState = SteerControl.evaluateSteerState(this.currentSensors);
-        this.actionSteer = (SteerControl.Actions) this.steerControlSystem.nextOnlyBestAction(this.currentSteerState);
+        this.actionSteer = (SteerControl.Actions) this.steerControlSystem.getPolicy()
+                .bestAction(this.currentSteerState);
         double steer = SteerControl.steerAction2Double(this.currentSensors, this.actionSteer);
 
         // normalize steering
@@ -172,7 +213,7 @@ public class DirectionDriver extends Controller {
         action.steering = steer;
 
         // Calculate accel/brake
-        float accel_and_brake = DrivingInstructor.getAccel(this.currentSensors);
+        float accel_and_brake = DrivingInstructor.getAccel(this.currentSensors, this.trackMap);
 
         // Set accel and brake from the joint accel/brake command
         float accel, brake;
@@ -190,8 +231,6 @@ public class DirectionDriver extends Controller {
         // Calculate clutch
         this.clutch = DrivingInstructor.clutching(this.currentSensors, (float) this.clutch, getStage());
         action.clutch = this.clutch;
-
-        return action;
     }
 
     /**
@@ -204,14 +243,20 @@ public class DirectionDriver extends Controller {
 
         if (this.completeLap) {
             this.completeLaps++;
-            System.out.println("Complete lap!");
+            if (!this.isQuiet())
+                System.out.println("Complete lap!");
         }
-        if (this.offTrack) {
+        if (this.offTrack && !this.isQuiet()) {
             System
 
                     .out.println("Out of track!");
         }
 
+        if (this.trackMap != null) {
+            this.trackMap.save();
+            this.trackMap.startRun();
+        }
+
         String newResults = this.generateStatistics();
         this.steerControlSystem.saveStatistics(newResults);
 
@@ -226,9 +271,11 @@ public class DirectionDriver extends Controller {
         completeLap = false;
         offTrack = false;
 
-        System.out.println();
-        System.out.println("*** Restarting the race ***");
-        System.out.println();
+        if (!this.isQuiet()) {
+            System.out.println();
+            System.out.println("*** Restarting the race ***");
+            System.out.println();
+        }
     }
 
     /**
@@ -236,9 +283,15 @@ public class DirectionDriver extends Controller {
      */
     @Override
     public void shutdown() {
-        System.out.println();
-        System.out.println("*** Finish the test ***");
-        System.out.println();
+        this.steerControlSystem.stopWatchingTable();
+        if (this.trackMap != null)
+            this.trackMap.save();
+
+        if (!this.isQuiet()) {
+            System.out.println();
+            System.out.println("*** Finish the test ***");
+            System.out.println();
+        }
     }
 
     /**
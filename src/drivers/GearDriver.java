@@ -22,19 +22,20 @@ public class GearDriver extends Controller {
     private double currentDistanceFromStartLine;
     private int completeLaps;
     private double distanceRaced;
-    private SensorModel previousSensors;
     private SensorModel currentSensors;
     // Cache variables
     private int stuck;
     private double clutch;
     private boolean completeLap;
     private boolean offTrack;
+    private TrackMap trackMap;
 
     /**
      * Initializes a new instance of the GearDriver class.
      */
     public GearDriver() {
         gearControlSystem = new QLearning(Constants.ControlSystems.GEAR_CONTROL_SYSTEM);
+        gearControlSystem.watchTable();
         currentGearState = GearControl.States.NEUTRAL_REVERSE;
         actionGear = GearControl.Actions.ACTIVE_LIMITER;
 
@@ -50,6 +51,30 @@ public class GearDriver extends Controller {
         offTrack = false;
     }
 
+    /**
+     * Sets the name of the track, so that the Q-tables are the ones learned on it.
+     *
+     * @param trackName The name of the track.
+     */
+    @Override
+    public void setTrackName(String trackName) {
+        super.setTrackName(trackName);
+        this.gearControlSystem.setTrackName(trackName);
+    }
+
+    /**
+     * Sets the learning settings of the driver and of its Q-table, which starts over with them. The track map is
+     * loaded again with them.
+     *
+     * @param learningSettings The learning settings.
+     */
+    @Override
+    public void setLearningSettings(LearningSettings learningSettings) {
+        super.setLearningSettings(learningSettings);
+        this.gearControlSystem.setLearningSettings(learningSettings);
+        this.trackMap = null;
+    }
+
     /**
      * Controls the car's actions based on the sensor inputs.
      *
@@ -59,33 +84,53 @@ public class GearDriver extends Controller {
      */
     @Override
     public Action control(SensorModel sensors) {
+        Action action = new Action();
+        this.control(sensors, action);
+        return action;
+    }
+
+    /**
+     * Controls the car based on the sensor readings, filling in an action owned by the caller, so that a race
+     * allocates no action per tick.
+     *
+     * @param sensors The sensor readings from the car.
+     * @param action  The action to fill in; every value is overwritten.
+     */
+    @Override
+    public void control(SensorModel sensors, Action action) {
+        action.reset();
         if (this.tics == 0) {
             this.previosDistanceFromStartLine = sensors.getDistanceFromStartLine();
             this.currentDistanceFromStartLine = this.previosDistanceFromStartLine;
 
-            this.previousSensors = sensors;
-            this.currentSensors = this.previousSensors;
+            this.currentSensors = sensors;
 
             this.tics++;
         } else {
             this.previosDistanceFromStartLine = this.currentDistanceFromStartLine;
             this.currentDistanceFromStartLine = sensors.getDistanceFromStartLine();
 
-            this.previousSensors = this.currentSensors;
             this.currentSensors = sensors;
 
             this.tics++;
 
-            System.out.println("Tics: " + this.tics);
-            System.out.println("Laps: " + this.laps + "/1");
-            System.out.println("Epochs: " + this.epochs + "/" + Constants.MAX_EPOCHS);
-            System.out.println("Complete Laps: " + this.completeLaps + "/" + Constants.MAX_EPOCHS);
-            System.out.println();
+            if (!this.isQuiet()) {
+                System.out.println("Tics: " + this.tics);
+                System.out.println("Laps: " + this.laps + "/1");
+                System.out.println("Epochs: " + this.epochs + "/" + Constants.MAX_EPOCHS);
+                System.out.println("Complete Laps: " + this.completeLaps + "/" + Constants.MAX_EPOCHS);
+                System.out.println();
+            }
         }
 
         // Update raced distance
         this.distanceRaced = this.currentSensors.getDistanceRaced();
 
+        // Learn the track, loading what was learned before on the first tick (the track name is known by now)
+        if (this.trackMap == null)
+            this.trackMap = TrackMap.load(getTrackName(), getLearningSettings());
+        this.trackMap.observe(this.currentSensors);
+
         // Update complete laps
         if (this.previosDistanceFromStartLine > 1 && this.currentDistanceFromStartLine < 1) {
             this.laps++;
@@ -95,19 +140,18 @@ public class GearDriver extends Controller {
             if (this.laps >= 1) {
                 this.completeLap = true;
 
-                Action action = new Action();
                 action.restartRace = true;
-                return action;
+                return;
             }
         }
 
         // If the car is off track, restart the race
         if (Math.abs(this.currentSensors.getTrackPosition()) >= 1) {
             this.offTrack = true;
+            this.trackMap.recordOffTrack(this.currentDistanceFromStartLine);
 
-            Action action = new Action();
             action.restartRace = true;
-            return action;
+            return;
         }
 
         // check if car is currently stuck
@@ -133,23 +177,20 @@ public class GearDriver extends Controller {
 
             this.clutch = (double) DrivingInstructor.clutching(this.currentSensors, (float) this.clutch, getStage());
 
-            // Build a CarControl variable and return it
-            Action action = new Action();
             action.gear = gear;
             action.steering = steer;
             action.accelerate = 1.0;
             action.brake = 0;
             action.clutch = clutch;
 
-            return action;
+            return;
         }
 
         // If the car is not stuck
-        Action action = new Action();
-
         // Calculate gear value
         this.currentGearState = GearControl.evaluateGearState(this.currentSensors);
-        this.actionGear = (GearControl.Actions) this.gearControlSystem.nextOnlyBestAction(this.currentGearState);
+        this.actionGear = (GearControl.Actions) this.gearControlSystem.getPolicy()
+                .bestAction(this.currentGearState);
         action.gear = GearControl.gearAction2Double(this.currentSensors, this.actionGear);
 
         // Calculate steer value
@@ -163,7 +204,7 @@ public class GearDriver extends Controller {
         action.steering = steer;
 
         // Calculate accel/brake
-        float accel_and_brake = DrivingInstructor.getAccel(this.currentSensors);
+        float accel_and_brake = DrivingInstructor.getAccel(this.currentSensors, this.trackMap);
 
         // Set accel and brake from the joint accel/brake command
         float accel, brake;
@@ -181,8 +222,6 @@ public class GearDriver extends Controller {
         // Calculate clutch
         this.clutch = DrivingInstructor.clutching(this.currentSensors, (float) this.clutch, getStage());
         action.clutch = this.clutch;
-
-        return action;
     }
 
     /**
@@ -195,12 +234,18 @@ public class GearDriver extends Controller {
 
         if (this.completeLap) {
             this.completeLaps++;
-            System.out.println("Complete lap!");
+            if (!this.isQuiet())
+                System.out.println("Complete lap!");
         }
-        if (this.offTrack) {
+        if (this.offTrack && !this.isQuiet()) {
             System.out.println("Out of track!");
         }
 
+        if (this.trackMap != null) {
+            this.trackMap.save();
+            this.trackMap.startRun();
+        }
+
         String newResults = this.generateStatistics();
         this.gearControlSystem.saveStatistics(newResults);
 
@@ -215,9 +260,11 @@ public class GearDriver extends Controller {
         completeLap = false;
         offTrack = false;
 
-        System.out.println();
-        System.out.println("*** Restarting the race ***");
-        System.out.println();
+        if (!this.isQuiet()) {
+            System.out.println();
+            System.out.println("*** Restarting the race ***");
+            System.out.println();
+        }
     }
 
     /**
@@ -225,9 +272,15 @@ public class GearDriver extends Controller {
      */
     @Override
     public void shutdown() {
-        System.out.println();
-        System.out.println("*** Finish the test ***");
-        System.out.println();
+        this.gearControlSystem.stopWatchingTable();
+        if (this.trackMap != null)
+            this.trackMap.save();
+
+        if (!this.isQuiet()) {
+            System.out.println();
+            System.out.println("*** Finish the test ***");
+            System.out.println();
+        }
     }
 
     /**
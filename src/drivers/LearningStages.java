@@ -0,0 +1,447 @@
+package drivers;
+
+import mdp.AccelControl;
+import mdp.GearControl;
+import mdp.OpponentControl;
+import mdp.QLearning;
+import mdp.SteerControl;
+import torcs.*;
+
+import static torcs.Constants.SEPARATOR;
+
+/**
+ * The LearningStages class holds the {@link ControlStage}s that learn one command with Q-learning, for the trainers
+ * built as a {@link PipelineController}. A trainer takes the {@link DrivingStages} and replaces the stage of the
+ * command it learns with one of these.
+ */
+public class LearningStages {
+
+    /**
+     * The QLearningStage class is the base of the learning stages: it owns the Q-learning of one control system, and
+     * at the end of every episode it plans, saves the Q-table, optionally with the statistics of the episode, and
+     * lowers epsilon.
+     */
+    public abstract static class QLearningStage extends ControlStage {
+
+        protected final QLearning controlSystem;
+        protected final DrivingStages.EpisodeGuard guard;
+        private final boolean statistics;
+
+        /**
+         * Constructs a new QLearningStage.
+         *
+         * @param name       The name of the stage in the timing report.
+         * @param system     The control system learned.
+         * @param guard      The episode guard, for the ticks and the statistics.
+         * @param statistics True to save the statistics of every episode along with the Q-table.
+         */
+        protected QLearningStage(String name, Constants.ControlSystems system, DrivingStages.EpisodeGuard guard,
+                                 boolean statistics) {
+            super(name);
+            this.controlSystem = new QLearning(system, Constants.RANGE_EPOCHS);
+            this.guard = guard;
+            this.statistics = statistics;
+        }
+
+        /**
+         * Sets the name of the track, so that the Q-table is the one learned on it.
+         *
+         * @param trackName The name of the track.
+         */
+        @Override
+        public void setTrackName(String trackName) {
+            this.controlSystem.setTrackName(trackName);
+        }
+
+        /**
+         * Sets how the Q-learning learns and where it saves.
+         *
+         * @param learningSettings The learning settings.
+         */
+        @Override
+        public void setLearningSettings(LearningSettings learningSettings) {
+            this.controlSystem.setLearningSettings(learningSettings);
+        }
+
+        /**
+         * Plans, and saves the Q-table and the statistics of the episode.
+         */
+        @Override
+        public void endEpisode() {
+            this.controlSystem.plan(Constants.PLANNING_BACKUPS);
+
+            if (this.statistics)
+                this.controlSystem.saveQTableAndStatistics(this.generateStatistics());
+            else
+                this.controlSystem.saveTable();
+            this.controlSystem.decreaseEpsilon();
+        }
+
+        /**
+         * Returns the Q-learning of the stage.
+         *
+         * @return The Q-learning.
+         */
+        public QLearning getControlSystem() {
+            return controlSystem;
+        }
+
+        /**
+         * Generates statistics about the race.
+         *
+         * @return The statistics as a string.
+         */
+        private String generateStatistics() {
+            return this.getController().getTrackName() + SEPARATOR
+                    + this.guard.getEpochs() + SEPARATOR
+                    + this.guard.getTics() + SEPARATOR
+                    + (int) (this.guard.getDistanceRaced()) + SEPARATOR
+                    + (int) (this.guard.getHighSpeed()) + SEPARATOR
+                    + this.guard.getCompleteLaps() + SEPARATOR
+                    + Constants.MAX_EPOCHS;
+        }
+    }
+
+    /**
+     * The SteerLearning stage learns the steering, taking a decision every 5 ticks from the readings of the last two
+     * ticks, and turning the action into a steering angle on every tick.
+     */
+    public static class SteerLearning extends QLearningStage {
+
+        private SteerControl.States previousSteerState;
+        private SteerControl.States currentSteerState;
+        private SteerControl.Actions actionSteer;
+        private double steerReward;
+
+        private SensorFrame previousSensors;
+        private SensorFrame currentSensors;
+
+        /**
+         * Constructs a new SteerLearning.
+         *
+         * @param guard      The episode guard, for the ticks and the statistics.
+         * @param statistics True to save the statistics of every episode along with the Q-table.
+         */
+        public SteerLearning(DrivingStages.EpisodeGuard guard, boolean statistics) {
+            super("steer learning", Constants.ControlSystems.STEERING_CONTROL_SYSTEM, guard, statistics);
+            this.previousSensors = new SensorFrame();
+            this.currentSensors = new SensorFrame();
+            this.reset();
+        }
+
+        /**
+         * Sets the steering, updating the Q-table every 5 ticks.
+         *
+         * @param sensors The sensor readings.
+         * @param action  The action to fill in.
+         *
+         * @return False, the action is left to the next stages.
+         */
+        @Override
+        public boolean apply(SensorModel sensors, Action action) {
+            if (this.guard.getTics() == 1) {
+                this.previousSensors.copyFrom(sensors);
+                this.currentSensors.copyFrom(sensors);
+            } else {
+                SensorFrame recycled = this.previousSensors;
+                this.previousSensors = this.currentSensors;
+                this.currentSensors = recycled;
+                this.currentSensors.copyFrom(sensors);
+            }
+
+            if (this.guard.getTics() % 5 == 0) {
+                this.previousSteerState = this.currentSteerState;
+                this.currentSteerState = SteerControl.evaluateSteerState(this.currentSensors);
+                this.steerReward = SteerControl.calculateReward(this.previousSensors, this.currentSensors);
+                this.actionSteer = (SteerControl.Actions) this.controlSystem.update(
+                        this.previousSteerState,
+                        this.currentSteerState,
+                        this.actionSteer,
+                        this.steerReward
+                );
+            }
+
+            double steer = SteerControl.steerAction2Double(this.currentSensors, this.actionSteer);
+            if (steer < -1)
+                steer = -1;
+            if (steer > 1)
+                steer = 1;
+            action.steering = steer;
+            return false;
+        }
+
+        /**
+         * Starts the next episode from the initial state.
+         */
+        @Override
+        public void reset() {
+            this.previousSteerState = SteerControl.States.NORMAL_SPEED;
+            this.currentSteerState = SteerControl.States.NORMAL_SPEED;
+            this.actionSteer = SteerControl.Actions.TURN_STEERING_WHEEL;
+            this.steerReward = 0;
+        }
+    }
+
+    /**
+     * The GearLearning stage learns the gear, taking a decision every 5 ticks from the readings of the last two
+     * ticks, and keeping the gear in between.
+     */
+    public static class GearLearning extends QLearningStage {
+
+        private GearControl.States previousGearState;
+        private GearControl.States currentGearState;
+        private GearControl.Actions actionGear;
+        private double gearReward;
+
+        private SensorFrame previousSensors;
+        private SensorFrame currentSensors;
+
+        /**
+         * Constructs a new GearLearning.
+         *
+         * @param guard      The episode guard, for the ticks and the statistics.
+         * @param statistics True to save the statistics of every episode along with the Q-table.
+         */
+        public GearLearning(DrivingStages.EpisodeGuard guard, boolean statistics) {
+            super("gear learning", Constants.ControlSystems.GEAR_CONTROL_SYSTEM, guard, statistics);
+            this.previousSensors = new SensorFrame();
+            this.currentSensors = new SensorFrame();
+            this.reset();
+        }
+
+        /**
+         * Sets the gear, updating the Q-table every 5 ticks.
+         *
+         * @param sensors The sensor readings.
+         * @param action  The action to fill in.
+         *
+         * @return False, the action is left to the next stages.
+         */
+        @Override
+        public boolean apply(SensorModel sensors, Action action) {
+            if (this.guard.getTics() == 1) {
+                this.previousSensors.copyFrom(sensors);
+                this.currentSensors.copyFrom(sensors);
+            } else {
+                SensorFrame recycled = this.previousSensors;
+                this.previousSensors = this.currentSensors;
+                this.currentSensors = recycled;
+                this.currentSensors.copyFrom(sensors);
+            }
+
+            if (this.guard.getTics() % 5 == 0) {
+                this.previousGearState = this.currentGearState;
+                this.currentGearState = GearControl.evaluateGearState(this.currentSensors);
+                this.gearReward = GearControl.calculateReward(this.previousSensors, this.currentSensors);
+                this.actionGear = (GearControl.Actions) this.controlSystem.update(
+                        this.previousGearState,
+                        this.currentGearState,
+                        this.actionGear,
+                        this.gearReward
+                );
+                action.gear = GearControl.gearAction2Double(this.currentSensors, this.actionGear);
+            } else {
+                action.gear = GearControl.gearAction2Double(this.currentSensors, GearControl.Actions.KEEP_GEAR);
+            }
+            return false;
+        }
+
+        /**
+         * Starts the next episode from the initial state.
+         */
+        @Override
+        public void reset() {
+            this.previousGearState = GearControl.States.NEUTRAL_REVERSE;
+            this.currentGearState = GearControl.States.NEUTRAL_REVERSE;
+            this.actionGear = GearControl.Actions.ACTIVE_LIMITER;
+            this.gearReward = 0;
+        }
+    }
+
+    /**
+     * The AccelLearning stage learns the acceleration, taking a decision every 5 ticks from the readings of the last
+     * decision and the changes of speed in the {@link SensorHistory}, and keeping the throttle and brake in between.
+     * Leaving the track is punished at the end of the episode.
+     */
+    public static class AccelLearning extends QLearningStage {
+
+        private AccelControl.States previousAccelState;
+        private AccelControl.States currentAccelState;
+        private AccelControl.Actions actionAccel;
+        private double accelReward;
+        private final Action accel_and_brake;
+
+        private final SensorHistory history;
+        private SensorFrame previousSensors;
+        private SensorFrame currentSensors;
+
+        /**
+         * Constructs a new AccelLearning.
+         *
+         * @param guard      The episode guard, for the ticks and the statistics.
+         * @param history    The history of the readings, for the changes of speed between decisions.
+         * @param statistics True to save the statistics of every episode along with the Q-table.
+         */
+        public AccelLearning(DrivingStages.EpisodeGuard guard, SensorHistory history, boolean statistics) {
+            super("accel learning", Constants.ControlSystems.ACCELERATION_CONTROL_SYSTEM, guard, statistics);
+            this.accel_and_brake = new Action();
+            this.history = history;
+            this.previousSensors = new SensorFrame();
+            this.currentSensors = new SensorFrame();
+            this.reset();
+        }
+
+        /**
+         * Sets the throttle and brake, updating the Q-table every 5 ticks.
+         *
+         * @param sensors The sensor readings.
+         * @param action  The action to fill in.
+         *
+         * @return False, the action is left to the next stages.
+         */
+        @Override
+        public boolean apply(SensorModel sensors, Action action) {
+            if (this.guard.getTics() == 1) {
+                this.previousSensors.copyFrom(sensors);
+                this.currentSensors.copyFrom(sensors);
+                AccelControl.applyAccelAction(this.currentSensors, this.actionAccel, this.accel_and_brake);
+            } else if (this.guard.getTics() % 5 == 0) {
+                SensorFrame recycled = this.previousSensors;
+                this.previousSensors = this.currentSensors;
+                this.currentSensors = recycled;
+                this.currentSensors.copyFrom(sensors);
+                this.previousAccelState = this.currentAccelState;
+                this.currentAccelState = AccelControl.evaluateAccelState(this.currentSensors);
+                this.accelReward = AccelControl.calculateReward(
+                        this.previousSensors,
+                        this.currentSensors,
+                        this.history.get(SensorHistory.Channel.SPEED, 5) - this.history.get(SensorHistory.Channel.SPEED, 10),
+                        this.history.delta(SensorHistory.Channel.SPEED, 5)
+                );
+                this.actionAccel = (AccelControl.Actions) this.controlSystem.update(
+                        this.previousAccelState,
+                        this.currentAccelState,
+                        this.actionAccel,
+                        this.accelReward
+                );
+                AccelControl.applyAccelAction(this.currentSensors, this.actionAccel, this.accel_and_brake);
+            }
+            action.accelerate = this.accel_and_brake.accelerate;
+            action.brake = this.accel_and_brake.brake;
+            return false;
+        }
+
+        /**
+         * Punishes leaving the track, then plans and saves.
+         */
+        @Override
+        public void endEpisode() {
+            if (this.guard.isOffTrack())
+                this.controlSystem.lastUpdate(this.actionAccel, -1000.0);
+            super.endEpisode();
+        }
+
+        /**
+         * Starts the next episode from the initial state.
+         */
+        @Override
+        public void reset() {
+            this.previousAccelState = AccelControl.States.STRAIGHT_LINE;
+            this.currentAccelState = AccelControl.States.STRAIGHT_LINE;
+            this.actionAccel = AccelControl.Actions.FULL_THROTTLE;
+            this.accelReward = 0;
+        }
+    }
+
+    /**
+     * The OpponentLearning stage learns the reaction to the opponents: it follows them on every tick, takes a
+     * decision every 5 ticks, and adjusts the steering and acceleration of the stages before it with the learned
+     * action. Leaving the track is punished at the end of the episode.
+     */
+    public static class OpponentLearning extends QLearningStage {
+
+        private OpponentControl.States previousOpponentState;
+        private OpponentControl.States currentOpponentState;
+        private OpponentControl.Actions actionOpponent;
+        private double opponentReward;
+        private final OpponentPerception perception;
+
+        private SensorFrame previousSensors;
+        private SensorFrame currentSensors;
+
+        /**
+         * Constructs a new OpponentLearning.
+         *
+         * @param guard      The episode guard, for the ticks and the statistics.
+         * @param statistics True to save the statistics of every episode along with the Q-table.
+         */
+        public OpponentLearning(DrivingStages.EpisodeGuard guard, boolean statistics) {
+            super("opponent learning", Constants.ControlSystems.OPPONENT_CONTROL_SYSTEM, guard, statistics);
+            this.perception = new OpponentPerception();
+            this.previousSensors = new SensorFrame();
+            this.currentSensors = new SensorFrame();
+            this.reset();
+        }
+
+        /**
+         * Adjusts the steering and acceleration, updating the Q-table every 5 ticks.
+         *
+         * @param sensors The sensor readings.
+         * @param action  The action to fill in.
+         *
+         * @return False, the action is left to the next stages.
+         */
+        @Override
+        public boolean apply(SensorModel sensors, Action action) {
+            // Follow the opponents on every tick, so that the closing speed is estimated from consecutive gaps
+            this.perception.update(sensors);
+
+            if (this.guard.getTics() == 1) {
+                this.previousSensors.copyFrom(sensors);
+                this.currentSensors.copyFrom(sensors);
+            } else if (this.guard.getTics() % 5 == 0) {
+                SensorFrame recycled = this.previousSensors;
+                this.previousSensors = this.currentSensors;
+                this.currentSensors = recycled;
+                this.currentSensors.copyFrom(sensors);
+                this.previousOpponentState = this.currentOpponentState;
+                this.currentOpponentState = OpponentControl.evaluateOpponentState(this.currentSensors, this.perception);
+                this.opponentReward = OpponentControl.calculateReward(
+                        this.previousSensors,
+                        this.currentSensors,
+                        this.perception
+                );
+                this.actionOpponent = (OpponentControl.Actions) this.controlSystem.update(
+                        this.previousOpponentState,
+                        this.currentOpponentState,
+                        this.actionOpponent,
+                        this.opponentReward
+                );
+            }
+            OpponentControl.applyOpponentAction(sensors, this.actionOpponent, action);
+            return false;
+        }
+
+        /**
+         * Punishes leaving the track, then plans and saves.
+         */
+        @Override
+        public void endEpisode() {
+            if (this.guard.isOffTrack())
+                this.controlSystem.lastUpdate(this.actionOpponent, -1000.0);
+            super.endEpisode();
+        }
+
+        /**
+         * Starts the next episode from the initial state, with no opponent seen.
+         */
+        @Override
+        public void reset() {
+            this.previousOpponentState = OpponentControl.States.CLEAR_TRACK;
+            this.currentOpponentState = OpponentControl.States.CLEAR_TRACK;
+            this.actionOpponent = OpponentControl.Actions.KEEP_LINE;
+            this.opponentReward = 0;
+            this.perception.reset();
+        }
+    }
+}
@@ -29,7 +29,6 @@ public class ManualTransmissionDriver extends Controller {
     private double currentDistanceFromStartLine;
     private int completeLaps;
     private double distanceRaced;
-    private SensorModel previousSensors;
     private SensorModel currentSensors;
     private int stuck;
     private double clutch;
@@ -41,14 +40,17 @@ public class ManualTransmissionDriver extends Controller {
      */
     public ManualTransmissionDriver() {
         gearControlSystem = new QLearning(Constants.ControlSystems.GEAR_CONTROL_SYSTEM);
+        gearControlSystem.watchTable();
         currentGearState = GearControl.States.NEUTRAL_REVERSE;
         actionGear = GearControl.Actions.ACTIVE_LIMITER;
 
         steerControlSystem = new QLearning(Constants.ControlSystems.STEERING_CONTROL_SYSTEM);
+        steerControlSystem.watchTable();
         currentSteerState = SteerControl.States.NORMAL_SPEED;
         actionSteer = SteerControl.Actions.TURN_STEERING_WHEEL;
 
         accelControlSystem = new QLearning(Constants.ControlSystems.ACCELERATION_CONTROL_SYSTEM);
+        accelControlSystem.watchTable();
         currentAccelState = AccelControl.States.STRAIGHT_LINE;
         actionAccel = AccelControl.Actions.FULL_THROTTLE;
 
@@ -64,6 +66,32 @@ public class ManualTransmissionDriver extends Controller {
         offTrack = false;
     }
 
+    /**
+     * Sets the name of the track, so that the Q-tables are the ones learned on it.
+     *
+     * @param trackName The name of the track.
+     */
+    @Override
+    public void setTrackName(String trackName) {
+        super.setTrackName(trackName);
+        this.gearControlSystem.setTrackName(trackName);
+        this.steerControlSystem.setTrackName(trackName);
+        this.accelControlSystem.setTrackName(trackName);
+    }
+
+    /**
+     * Sets the learning settings of the driver and of its Q-tables, which start over with them.
+     *
+     * @param learningSettings The learning settings.
+     */
+    @Override
+    public void setLearningSettings(LearningSettings learningSettings) {
+        super.setLearningSettings(learningSettings);
+        this.gearControlSystem.setLearningSettings(learningSettings);
+        this.steerControlSystem.setLearningSettings(learningSettings);
+        this.accelControlSystem.setLearningSettings(learningSettings);
+    }
+
     /**
      * Controls the car based on the sensor inputs.
      *
@@ -73,27 +101,42 @@ public class ManualTransmissionDriver extends Controller {
      */
     @Override
     public Action control(SensorModel sensors) {
+        Action action = new Action();
+        this.control(sensors, action);
+        return action;
+    }
+
+    /**
+     * Controls the car based on the sensor readings, filling in an action owned by the caller, so that a race
+     * allocates no action per tick.
+     *
+     * @param sensors The sensor readings from the car.
+     * @param action  The action to fill in; every value is overwritten.
+     */
+    @Override
+    public void control(SensorModel sensors, Action action) {
+        action.reset();
         if (this.tics == 0) {
             this.previosDistanceFromStartLine = sensors.getDistanceFromStartLine();
             this.currentDistanceFromStartLine = this.previosDistanceFromStartLine;
 
-            this.previousSensors = sensors;
-            this.currentSensors = this.previousSensors;
+            this.currentSensors = sensors;
 
             this.tics++;
         } else {
             this.previosDistanceFromStartLine = this.currentDistanceFromStartLine;
             this.currentDistanceFromStartLine = sensors.getDistanceFromStartLine();
 
-            this.previousSensors = this.currentSensors;
             this.currentSensors = sensors;
 
             this.tics++;
 
-            System.out.println("Laps: " + this.laps + "/1");
-            System.out.println("Epochs: " + this.epochs + "/" + Constants.MAX_EPOCHS);
-            System.out.println("Complete Laps: " + this.completeLaps + "/" + Constants.MAX_EPOCHS);
-            System.out.println();
+            if (!this.isQuiet()) {
+                System.out.println("Laps: " + this.laps + "/1");
+                System.out.println("Epochs: " + this.epochs + "/" + Constants.MAX_EPOCHS);
+                System.out.println("Complete Laps: " + this.completeLaps + "/" + Constants.MAX_EPOCHS);
+                System.out.println();
+            }
         }
 
         this.distanceRaced = this.currentSensors.getDistanceRaced();
@@ -104,18 +147,16 @@ public class ManualTransmissionDriver extends Controller {
             if (this.laps >= 1) {
                 this.completeLap = true;
 
-                Action action = new Action();
                 action.restartRace = true;
-                return action;
+                return;
             }
         }
 
         if (Math.abs(this.currentSensors.getTrackPosition()) >= 1) {
             this.offTrack = true;
 
-            Action action = new Action();
             action.restartRace = true;
-            return action;
+            return;
         }
 
         if (Math.abs(this.currentSensors.getAngleToTrackAxis()) > DrivingInstructor.stuckAngle) {
@@ -135,24 +176,24 @@ public class ManualTransmissionDriver extends Controller {
 
             this.clutch = DrivingInstructor.clutching(this.currentSensors, (float) this.clutch, getStage());
 
-            Action action = new Action();
             action.gear = gear;
             action.steering = steer;
             action.accelerate = 1.0;
             action.brake = 0;
             action.clutch = clutch;
 
-            return action;
+            return;
         }
 
-        Action action = new Action();
 
         this.currentGearState = GearControl.evaluateGearState(this.currentSensors);
-        this.actionGear = (GearControl.Actions) this.gearControlSystem.nextOnlyBestAction(this.currentGearState);
+        this.actionGear = (GearControl.Actions) this.gearControlSystem.getPolicy()
+                .bestAction(this.currentGearState);
         action.gear = GearControl.gearAction2Double(this.currentSensors, this.actionGear);
 
         this.currentSteerState = SteerControl.evaluateSteerState(this.currentSensors);
-        this.actionSteer = (SteerControl.Actions) this.steerControlSystem.nextOnlyBestAction(this.currentSteerState);
+        this.actionSteer = (SteerControl.Actions) this.steerControlSystem.getPolicy()
+                .bestAction(this.currentSteerState);
         double steer = SteerControl.steerAction2Double(this.currentSensors, this.actionSteer);
 
         if (steer < -1)
@@ -162,15 +203,12 @@ public class ManualTransmissionDriver extends Controller {
         action.steering = steer;
 
         this.currentAccelState = AccelControl.evaluateAccelState(this.currentSensors);
-        this.actionAccel = (AccelControl.Actions) this.accelControlSystem.nextOnlyBestAction(this.currentAccelState);
-        Double[] accel_and_brake = AccelControl.accelAction2Double(this.currentSensors, this.actionAccel);
-        action.accelerate = accel_and_brake[0];
-        action.brake = accel_and_brake[1];
+        this.actionAccel = (AccelControl.Actions) this.accelControlSystem.getPolicy()
+                .bestAction(this.currentAccelState);
+        AccelControl.applyAccelAction(this.currentSensors, this.actionAccel, action);
 
         this.clutch = DrivingInstructor.clutching(this.currentSensors, (float) this.clutch, getStage());
         action.clutch = this.clutch;
-
-        return action;
     }
 
     /**
@@ -189,9 +227,10 @@ public class ManualTransmissionDriver extends Controller {
 
         if (this.completeLap) {
             this.completeLaps++;
-            System.out.println("Complete lap!");
+            if (!this.isQuiet())
+                System.out.println("Complete lap!");
         }
-        if (this.offTrack) {
+        if (this.offTrack && !this.isQuiet()) {
             System.out.println("Out of track!");
         }
 
@@ -209,9 +248,11 @@ public class ManualTransmissionDriver extends Controller {
         completeLap = false;
         offTrack = false;
 
-        System.out.println();
-        System.out.println("*** Restarting the race ***");
-        System.out.println();
+        if (!this.isQuiet()) {
+            System.out.println();
+            System.out.println("*** Restarting the race ***");
+            System.out.println();
+        }
     }
 
     /**
@@ -219,9 +260,14 @@ public class ManualTransmissionDriver extends Controller {
      */
     @Override
     public void shutdown() {
-        System.out.println();
-        System.out.println("*** Finish the test ***");
-        System.out.println();
+        this.gearControlSystem.stopWatchingTable();
+        this.steerControlSystem.stopWatchingTable();
+        this.accelControlSystem.stopWatchingTable();
+        if (!this.isQuiet()) {
+            System.out.println();
+            System.out.println("*** Finish the test ***");
+            System.out.println();
+        }
     }
 
     /**
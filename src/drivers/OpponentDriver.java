@@ -0,0 +1,264 @@
+package drivers;
+
+import mdp.OpponentControl;
+import mdp.QLearning;
+import torcs.*;
+
+import static torcs.Constants.SEPARATOR;
+
+/**
+ * The OpponentDriver class implements the Controller interface and represents a driver that follows the
+ * {@link DrivingInstructor} and reacts to the opponents around it with the policy learned by the
+ * {@link OpponentTrainer}.
+ */
+public class OpponentDriver extends Controller {
+    private QLearning opponentControlSystem;
+    private OpponentControl.States currentOpponentState;
+    private OpponentControl.Actions actionOpponent;
+    private OpponentPerception perception;
+    private int tics;
+    private int epochs;
+    private int laps;
+    private double previosDistanceFromStartLine;
+    private double currentDistanceFromStartLine;
+    private int completeLaps;
+    private double distanceRaced;
+    private SensorModel currentSensors;
+    private int stuck;
+    private double clutch;
+    private boolean completeLap;
+    private boolean offTrack;
+
+    /**
+     * Constructs a new OpponentDriver object.
+     */
+    public OpponentDriver() {
+        opponentControlSystem = new QLearning(Constants.ControlSystems.OPPONENT_CONTROL_SYSTEM);
+        opponentControlSystem.watchTable();
+        currentOpponentState = OpponentControl.States.CLEAR_TRACK;
+        actionOpponent = OpponentControl.Actions.KEEP_LINE;
+        perception = new OpponentPerception();
+
+        tics = 0;
+        epochs = 0;
+        laps = -1;
+        completeLaps = 0;
+        distanceRaced = 0;
+
+        stuck = 0;
+        clutch = 0;
+        completeLap = false;
+        offTrack = false;
+    }
+
+    /**
+     * Sets the name of the track, so that the Q-tables are the ones learned on it.
+     *
+     * @param trackName The name of the track.
+     */
+    @Override
+    public void setTrackName(String trackName) {
+        super.setTrackName(trackName);
+        this.opponentControlSystem.setTrackName(trackName);
+    }
+
+    /**
+     * Sets the learning settings of the driver and of its Q-table, which starts over with them.
+     *
+     * @param learningSettings The learning settings.
+     */
+    @Override
+    public void setLearningSettings(LearningSettings learningSettings) {
+        super.setLearningSettings(learningSettings);
+        this.opponentControlSystem.setLearningSettings(learningSettings);
+    }
+
+    /**
+     * Controls the car's actions based on the sensor inputs.
+     *
+     * @param sensors The sensor data received from the race track.
+     *
+     * @return An Action object representing the car's desired actions.
+     */
+    @Override
+    public Action control(SensorModel sensors) {
+        Action action = new Action();
+        this.control(sensors, action);
+        return action;
+    }
+
+    /**
+     * Controls the car based on the sensor readings, filling in an action owned by the caller, so that a race
+     * allocates no action per tick.
+     *
+     * @param sensors The sensor readings from the car.
+     * @param action  The action to fill in; every value is overwritten.
+     */
+    @Override
+    public void control(SensorModel sensors, Action action) {
+        action.reset();
+        if (this.tics == 0) {
+            this.previosDistanceFromStartLine = sensors.getDistanceFromStartLine();
+            this.currentDistanceFromStartLine = this.previosDistanceFromStartLine;
+
+            this.currentSensors = sensors;
+
+            this.tics++;
+        } else {
+            this.previosDistanceFromStartLine = this.currentDistanceFromStartLine;
+            this.currentDistanceFromStartLine = sensors.getDistanceFromStartLine();
+
+            this.currentSensors = sensors;
+
+            this.tics++;
+
+            if (!this.isQuiet()) {
+                System.out.println("Tics: " + this.tics);
+                System.out.println("Laps: " + this.laps + "/1");
+                System.out.println("Epochs: " + this.epochs + "/" + Constants.MAX_EPOCHS);
+                System.out.println("Complete Laps: " + this.completeLaps + "/" + Constants.MAX_EPOCHS);
+                System.out.println();
+            }
+        }
+
+        this.perception.update(this.currentSensors);
+        this.distanceRaced = this.currentSensors.getDistanceRaced();
+
+        if (this.previosDistanceFromStartLine > 1 && this.currentDistanceFromStartLine < 1) {
+            this.laps++;
+
+            if (this.laps >= 1) {
+                this.completeLap = true;
+
+                action.restartRace = true;
+                return;
+            }
+        }
+
+        if (Math.abs(this.currentSensors.getTrackPosition()) >= 1) {
+            this.offTrack = true;
+
+            action.restartRace = true;
+            return;
+        }
+
+        if (Math.abs(this.currentSensors.getAngleToTrackAxis()) > DrivingInstructor.stuckAngle) {
+            this.stuck++;
+        } else {
+            this.stuck = 0;
+        }
+
+        if (this.stuck > DrivingInstructor.stuckTime) {
+            float steer = (float) (-this.currentSensors.getAngleToTrackAxis() / DrivingInstructor.steerLock);
+            int gear = -1;
+
+            if (this.currentSensors.getAngleToTrackAxis() * this.currentSensors.getTrackPosition() > 0) {
+                gear = 1;
+                steer = -steer;
+            }
+
+            this.clutch = DrivingInstructor.clutching(this.currentSensors, (float) this.clutch, getStage());
+
+            action.gear = gear;
+            action.steering = steer;
+            action.accelerate = 1.0;
+            action.brake = 0;
+            action.clutch = clutch;
+
+            return;
+        }
+
+        action.gear = DrivingInstructor.getGear(this.currentSensors);
+
+        float steer = DrivingInstructor.getSteer(this.currentSensors);
+
+        if (steer < -1)
+            steer = -1;
+        if (steer > 1)
+            steer = 1;
+        action.steering = steer;
+
+        float accel_and_brake = DrivingInstructor.getAccel(this.currentSensors);
+        if (accel_and_brake > 0) {
+            action.accelerate = accel_and_brake;
+            action.brake = 0;
+        } else {
+            action.accelerate = 0;
+            action.brake = DrivingInstructor.filterABS(this.currentSensors, -accel_and_brake);
+        }
+
+        this.currentOpponentState = OpponentControl.evaluateOpponentState(this.currentSensors, this.perception);
+        this.actionOpponent = (OpponentControl.Actions) this.opponentControlSystem.getPolicy()
+                .bestAction(this.currentOpponentState);
+        OpponentControl.applyOpponentAction(this.currentSensors, this.actionOpponent, action);
+
+        this.clutch = DrivingInstructor.clutching(this.currentSensors, (float) this.clutch, getStage());
+        action.clutch = this.clutch;
+    }
+
+    /**
+     * Resets the driver's state and statistics.
+     */
+    @Override
+    public void reset() {
+        currentOpponentState = OpponentControl.States.CLEAR_TRACK;
+        actionOpponent = OpponentControl.Actions.KEEP_LINE;
+        perception.reset();
+
+        if (this.completeLap) {
+            this.completeLaps++;
+            if (!this.isQuiet())
+                System.out.println("Complete lap!");
+        }
+        if (this.offTrack && !this.isQuiet()) {
+            System.out.println("Out of track!");
+        }
+
+        String newResults = this.generateStatistics();
+        this.opponentControlSystem.saveStatistics(newResults);
+
+        tics = 0;
+        epochs++;
+        laps = -1;
+        completeLaps = 0;
+        distanceRaced = 0;
+
+        stuck = 0;
+        clutch = 0;
+        completeLap = false;
+        offTrack = false;
+
+        if (!this.isQuiet()) {
+            System.out.println();
+            System.out.println("*** Restarting the race ***");
+            System.out.println();
+        }
+    }
+
+    /**
+     * Shuts down the driver.
+     */
+    @Override
+    public void shutdown() {
+        this.opponentControlSystem.stopWatchingTable();
+        if (!this.isQuiet()) {
+            System.out.println();
+            System.out.println("*** Finish the test ***");
+            System.out.println();
+        }
+    }
+
+    /**
+     * Generates statistics about the driver's performance.
+     *
+     * @return A string containing the generated statistics.
+     */
+    private String generateStatistics() {
+        return getTrackName() + SEPARATOR
+                + this.epochs + SEPARATOR
+                + this.tics + SEPARATOR
+                + (int) (this.distanceRaced) + SEPARATOR
+                + this.completeLaps + SEPARATOR
+                + Constants.MAX_EPOCHS;
+    }
+}
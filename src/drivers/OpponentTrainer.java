@@ -0,0 +1,36 @@
+package drivers;
+
+import torcs.*;
+
+/**
+ * A driver implementation for training the reaction to the opponents using Q-learning. It is a
+ * {@link PipelineController}: the episode guard, stuck recovery, gear, steering, acceleration, ABS and clutch are the
+ * shared {@link DrivingStages}, and {@link LearningStages.OpponentLearning} adjusts the steering and acceleration with
+ * the learned opponent actions.
+ */
+public class OpponentTrainer extends PipelineController {
+
+    /**
+     * Initializes the OpponentTrainer controller.
+     */
+    public OpponentTrainer() {
+        this(new DrivingStages.EpisodeGuard(1, 240.0), new DrivingStages.Clutch());
+    }
+
+    /**
+     * Builds the pipeline around the stages the opponent learner shares.
+     *
+     * @param guard  The episode guard.
+     * @param clutch The clutch stage.
+     */
+    private OpponentTrainer(DrivingStages.EpisodeGuard guard, DrivingStages.Clutch clutch) {
+        super(guard,
+                new DrivingStages.StuckRecovery(clutch),
+                new DrivingStages.GearShift(),
+                new DrivingStages.Steering(),
+                new DrivingStages.Acceleration(),
+                new DrivingStages.ABS(),
+                new LearningStages.OpponentLearning(guard, true),
+                clutch);
+    }
+}
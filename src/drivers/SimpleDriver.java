@@ -3,6 +3,7 @@ package drivers;
 import torcs.Action;
 import torcs.Controller;
 import torcs.SensorModel;
+import torcs.TransferFunction;
 
 /**
  * A simple driver that controls the car based on sensor input.
@@ -51,14 +52,16 @@ public class SimpleDriver extends Controller {
      * Resets the state of the driver.
      */
     public void reset() {
-        System.out.println("Restarting the race!");
+        if (!this.isQuiet())
+            System.out.println("Restarting the race!");
     }
 
     /**
      * Shuts down the driver.
      */
     public void shutdown() {
-        System.out.println("Bye bye!");
+        if (!this.isQuiet())
+            System.out.println("Bye bye!");
     }
 
     /**
@@ -127,7 +130,7 @@ public class SimpleDriver extends Controller {
                 }
             }
 
-            return (float) (2 / (1 + Math.exp(sensors.getSpeed() - targetSpeed)) - 1);
+            return (float) TransferFunction.accelAndBrake(sensors.getSpeed() - targetSpeed);
         } else {
             return (float) 0.3;
         }
@@ -141,6 +144,20 @@ public class SimpleDriver extends Controller {
      * @return the action to take
      */
     public Action control(SensorModel sensors) {
+        Action action = new Action();
+        this.control(sensors, action);
+        return action;
+    }
+
+    /**
+     * Controls the car based on the sensor readings, filling in an action owned by the caller, so that a race
+     * allocates no action per tick.
+     *
+     * @param sensors The sensor readings from the car.
+     * @param action  The action to fill in; every value is overwritten.
+     */
+    public void control(SensorModel sensors, Action action) {
+        action.reset();
         if (Math.abs(sensors.getAngleToTrackAxis()) > stuckAngle) {
             stuck++;
         } else {
@@ -157,13 +174,11 @@ public class SimpleDriver extends Controller {
             }
             clutch = clutching(sensors, clutch);
 
-            Action action = new Action();
             action.gear = gear;
             action.steering = steer;
             action.accelerate = 1.0;
             action.brake = 0;
             action.clutch = clutch;
-            return action;
         } else {
             float accel_and_brake = getAccel(sensors);
             int gear = getGear(sensors);
@@ -185,13 +200,11 @@ public class SimpleDriver extends Controller {
 
             clutch = clutching(sensors, clutch);
 
-            Action action = new Action();
             action.gear = gear;
             action.steering = steer;
             action.accelerate = accel;
             action.brake = brake;
             action.clutch = clutch;
-            return action;
         }
     }
 
@@ -21,7 +21,6 @@ public class SpeedDriver extends Controller {
     private double currentDistanceFromStartLine;
     private int completeLaps;
     private double distanceRaced;
-    private SensorModel previousSensors;
     private SensorModel currentSensors;
     private int stuck;
     private double clutch;
@@ -33,6 +32,7 @@ public class SpeedDriver extends Controller {
      */
     public SpeedDriver() {
         accelControlSystem = new QLearning(Constants.ControlSystems.ACCELERATION_CONTROL_SYSTEM);
+        accelControlSystem.watchTable();
         currentAccelState = AccelControl.States.STRAIGHT_LINE;
         actionAccel = AccelControl.Actions.FULL_THROTTLE;
 
@@ -48,6 +48,28 @@ public class SpeedDriver extends Controller {
         offTrack = false;
     }
 
+    /**
+     * Sets the name of the track, so that the Q-tables are the ones learned on it.
+     *
+     * @param trackName The name of the track.
+     */
+    @Override
+    public void setTrackName(String trackName) {
+        super.setTrackName(trackName);
+        this.accelControlSystem.setTrackName(trackName);
+    }
+
+    /**
+     * Sets the learning settings of the driver and of its Q-table, which starts over with them.
+     *
+     * @param learningSettings The learning settings.
+     */
+    @Override
+    public void setLearningSettings(LearningSettings learningSettings) {
+        super.setLearningSettings(learningSettings);
+        this.accelControlSystem.setLearningSettings(learningSettings);
+    }
+
     /**
      * Controls the car's actions based on the sensor inputs.
      *
@@ -57,28 +79,43 @@ public class SpeedDriver extends Controller {
      */
     @Override
     public Action control(SensorModel sensors) {
+        Action action = new Action();
+        this.control(sensors, action);
+        return action;
+    }
+
+    /**
+     * Controls the car based on the sensor readings, filling in an action owned by the caller, so that a race
+     * allocates no action per tick.
+     *
+     * @param sensors The sensor readings from the car.
+     * @param action  The action to fill in; every value is overwritten.
+     */
+    @Override
+    public void control(SensorModel sensors, Action action) {
+        action.reset();
         if (this.tics == 0) {
             this.previosDistanceFromStartLine = sensors.getDistanceFromStartLine();
             this.currentDistanceFromStartLine = this.previosDistanceFromStartLine;
 
-            this.previousSensors = sensors;
-            this.currentSensors = this.previousSensors;
+            this.currentSensors = sensors;
 
             this.tics++;
         } else {
             this.previosDistanceFromStartLine = this.currentDistanceFromStartLine;
             this.currentDistanceFromStartLine = sensors.getDistanceFromStartLine();
 
-            this.previousSensors = this.currentSensors;
             this.currentSensors = sensors;
 
             this.tics++;
 
-            System.out.println("Tics: " + this.tics);
-            System.out.println("Laps: " + this.laps + "/1");
-            System.out.println("Epochs: " + this.epochs + "/" + Constants.MAX_EPOCHS);
-            System.out.println("Complete Laps: " + this.completeLaps + "/" + Constants.MAX_EPOCHS);
-            System.out.println();
+            if (!this.isQuiet()) {
+                System.out.println("Tics: " + this.tics);
+                System.out.println("Laps: " + this.laps + "/1");
+                System.out.println("Epochs: " + this.epochs + "/" + Constants.MAX_EPOCHS);
+                System.out.println("Complete Laps: " + this.completeLaps + "/" + Constants.MAX_EPOCHS);
+                System.out.println();
+            }
         }
 
         this.distanceRaced = this.currentSensors.getDistanceRaced();
@@ -89,18 +126,16 @@ public class SpeedDriver extends Controller {
             if (this.laps >= 1) {
                 this.completeLap = true;
 
-                Action action = new Action();
                 action.restartRace = true;
-                return action;
+                return;
             }
         }
 
         if (Math.abs(this.currentSensors.getTrackPosition()) >= 1) {
             this.offTrack = true;
 
-            Action action = new Action();
             action.restartRace = true;
-            return action;
+            return;
         }
 
         if (Math.abs(this.currentSensors.getAngleToTrackAxis()) > DrivingInstructor.stuckAngle) {
@@ -120,17 +155,15 @@ public class SpeedDriver extends Controller {
 
             this.clutch = DrivingInstructor.clutching(this.currentSensors, (float) this.clutch, getStage());
 
-            Action action = new Action();
             action.gear = gear;
             action.steering = steer;
             action.accelerate = 1.0;
             action.brake = 0;
             action.clutch = clutch;
 
-            return action;
+            return;
         }
 
-        Action action = new Action();
         action.gear = DrivingInstructor.getGear(this.currentSensors);
 
         float steer = DrivingInstructor.getSteer(this.currentSensors);
@@ -142,15 +175,12 @@ public class SpeedDriver extends Controller {
         action.steering = steer;
 
         this.currentAccelState = AccelControl.evaluateAccelState(this.currentSensors);
-        this.actionAccel = (AccelControl.Actions) this.accelControlSystem.nextOnlyBestAction(this.currentAccelState);
-        Double[] accel_and_brake = AccelControl.accelAction2Double(this.currentSensors, this.actionAccel);
-        action.accelerate = accel_and_brake[0];
-        action.brake = accel_and_brake[1];
+        this.actionAccel = (AccelControl.Actions) this.accelControlSystem.getPolicy()
+                .bestAction(this.currentAccelState);
+        AccelControl.applyAccelAction(this.currentSensors, this.actionAccel, action);
 
         this.clutch = DrivingInstructor.clutching(this.currentSensors, (float) this.clutch, getStage());
         action.clutch = this.clutch;
-
-        return action;
     }
 
     /**
@@ -163,9 +193,10 @@ public class SpeedDriver extends Controller {
 
         if (this.completeLap) {
             this.completeLaps++;
-            System.out.println("Complete lap!");
+            if (!this.isQuiet())
+                System.out.println("Complete lap!");
         }
-        if (this.offTrack) {
+        if (this.offTrack && !this.isQuiet()) {
             System.out.println("Out of track!");
         }
 
@@ -183,9 +214,11 @@ public class SpeedDriver extends Controller {
         completeLap = false;
         offTrack = false;
 
-        System.out.println();
-        System.out.println("*** Restarting the race ***");
-        System.out.println();
+        if (!this.isQuiet()) {
+            System.out.println();
+            System.out.println("*** Restarting the race ***");
+            System.out.println();
+        }
     }
 
     /**
@@ -193,9 +226,12 @@ public class SpeedDriver extends Controller {
      */
     @Override
     public void shutdown() {
-        System.out.println();
-        System.out.println("*** Finish the test ***");
-        System.out.println();
+        this.accelControlSystem.stopWatchingTable();
+        if (!this.isQuiet()) {
+            System.out.println();
+            System.out.println("*** Finish the test ***");
+            System.out.println();
+        }
     }
 
     /**
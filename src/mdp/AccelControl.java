@@ -1,6 +1,8 @@
 package mdp;
 
+import torcs.Action;
 import torcs.Constants;
+import torcs.DerivedFeatures;
 import torcs.SensorModel;
 
 /**
@@ -9,14 +11,10 @@ import torcs.SensorModel;
 public class AccelControl {
 
     // Accel Variables
-    private static final double maxSpeedDist = 70;
-    private static final double sin5 = (float) 0.08716;
-    private static final double cos5 = (float) 0.99619;
     private static final double maxSpeed = 150;
 
     // ABS Variables
     private static final double absMinSpeed = 3.0;
-    private static final double[] wheelRadius = {0.3179, 0.3179, 0.3276, 0.3276};
     private static final double absSlip = 2.0;
     private static final double absRange = 3.0;
 
@@ -28,38 +26,17 @@ public class AccelControl {
      * @return The state of the acceleration as an enum value.
      */
     public static States evaluateAccelState(SensorModel current) {
-        double rxSensor = current.getTrackEdgeSensors()[10];
-        double sensorsensor = current.getTrackEdgeSensors()[9];
-        double sxSensor = current.getTrackEdgeSensors()[8];
-
-        if (sensorsensor > maxSpeedDist || (sensorsensor >= rxSensor && sensorsensor >= sxSensor)) {
+        DerivedFeatures features = current.getFeatures();
+        if (features.isStraight()) {
             return States.STRAIGHT_LINE;
         } else {
-            double targetSpeed;
-            if (rxSensor > sxSensor) {
-                double h = sensorsensor * sin5;
-                double b = rxSensor - sensorsensor * cos5;
-                double sinAngle = b * b / (h * h + b * b);
-                targetSpeed = maxSpeed * (sensorsensor * sinAngle / maxSpeedDist);
-            } else {
-                double h = sensorsensor * sin5;
-                double b = sxSensor - sensorsensor * cos5;
-                double sinAngle = b * b / (h * h + b * b);
-                targetSpeed = maxSpeed * (sensorsensor * sinAngle / maxSpeedDist);
-            }
-
-            double accel_and_brake = (2 / (1 + Math.exp(current.getSpeed() - targetSpeed)) - 1);
+            double accel_and_brake = features.getCurveAccelAndBrake();
 
             if (accel_and_brake > 0) {
                 return States.IN_CURVE_SHOULD_ACCEL;
             } else {
                 double brake = -accel_and_brake;
-                double speed = (current.getSpeed() / 3.6);
-                double slip = 0.0;
-                for (int i = 0; i < 4; i++) {
-                    slip += current.getWheelSpinVelocity()[i] * wheelRadius[i];
-                }
-                slip = speed - slip / 4.0;
+                double slip = features.getSlip();
                 if (slip > absSlip) {
                     brake = brake - (slip - absSlip) / absRange;
                 }
@@ -74,68 +51,34 @@ public class AccelControl {
     }
 
     /**
-     * Converts the acceleration action to an array of double values based on the current sensor model and action.
+     * Converts the acceleration action to throttle and brake values based on the current sensor model, and writes
+     * them into an action. Nothing is allocated, so it can run on every tick.
      *
      * @param current The current sensor model of the car.
      * @param action  The acceleration control action.
-     *
-     * @return The array containing the throttle and brake values.
+     * @param out     The action whose throttle and brake are set; its other commands are left untouched.
      */
-    public static Double[] accelAction2Double(SensorModel current, Actions action) {
-        Double[] result = new Double[2];
-
-        double rxSensor = current.getTrackEdgeSensors
-
-                ()[10];
-        double sensorsensor = current.getTrackEdgeSensors()[9];
-        double sxSensor = current.getTrackEdgeSensors()[8];
+    public static void applyAccelAction(SensorModel current, Actions action, Action out) {
+        DerivedFeatures features = current.getFeatures();
 
         if (action == Actions.FULL_THROTTLE) {
-            result[0] = Constants.round((2 / (1 + Math.exp(current.getSpeed() - maxSpeed)) - 1), 8);
-            result[1] = 0.0;
-            return result;
+            out.accelerate = Constants.round(features.getFullThrottle(), 8);
+            out.brake = 0.0;
         } else {
-            double targetSpeed;
-            if (rxSensor > sxSensor) {
-                double h = sensorsensor * sin5;
-                double b = rxSensor - sensorsensor * cos5;
-                double sinAngle = b * b / (h * h + b * b);
-                targetSpeed = maxSpeed * (sensorsensor * sinAngle / maxSpeedDist);
-            } else {
-                double h = sensorsensor * sin5;
-                double b = sxSensor - sensorsensor * cos5;
-                double sinAngle = b * b / (h * h + b * b);
-                targetSpeed = maxSpeed * (sensorsensor * sinAngle / maxSpeedDist);
-            }
-
-            double accel_and_brake = (2 / (1 + Math.exp(current.getSpeed() - targetSpeed)) - 1);
+            double accel_and_brake = features.getCurveAccelAndBrake();
 
             if (action == Actions.ACCELERATE) {
-                result[0] = Constants.round(Math.abs((2 / (1 + Math.exp(current.getSpeed() - targetSpeed)) - 1)), 8);
-                result[1] = 0.0;
-                return result;
+                out.accelerate = Constants.round(Math.abs(accel_and_brake), 8);
+                out.brake = 0.0;
             } else {
-                double brake = Math.abs((2 / (1 + Math.exp(current.getSpeed() - targetSpeed)) - 1));
-                float speed = (float) (current.getSpeed() / 3.6);
-
-                float slip = 0.0f;
-                for (int i = 0; i < 4; i++) {
-                    slip += current.getWheelSpinVelocity()[i] * wheelRadius[i];
-                }
-                slip = speed - slip / 4.0f;
+                double brake = Math.abs(accel_and_brake);
+                double slip = features.getSlip();
                 if (slip > absSlip) {
                     brake = brake - (slip - absSlip) / absRange;
                 }
 
-                if (action == Actions.HANDBRAKE) {
-                    result[0] = 0.0;
-                    result[1] = Constants.round(brake, 8);
-                    return result;
-                } else {
-                    result[0] = 0.0;
-                    result[1] = 0.0;
-                    return result;
-                }
+                out.accelerate = 0.0;
+                out.brake = action == Actions.HANDBRAKE ? Constants.round(brake, 8) : 0.0;
             }
         }
     }
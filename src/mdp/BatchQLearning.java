@@ -0,0 +1,406 @@
+package mdp;
+
+import torcs.Action;
+import torcs.DrivingInstructor;
+import torcs.FrameSource;
+import torcs.OpponentPerception;
+import torcs.SensorFrame;
+import torcs.SensorModel;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static torcs.Constants.*;
+
+/**
+ * The BatchQLearning class trains a control system offline from recorded races, without the TORCS server.
+ * Recorded frames are turned into transitions (state, action taken, reward, next state) by re-evaluating the states
+ * and recomputing the rewards with the current {@code calculateReward} functions, so a change of a reward function
+ * can be evaluated on existing data. The transitions are spooled to a compact binary file, and every fitted
+ * Q-iteration sweep streams that file back in fixed-size chunks, so the amount of data is not limited by the heap.
+ *
+ * <p>Usage: {@code java mdp.BatchQLearning <system> [output:<file>] <log> [<log> ...]}, where every log is either a
+ * text message log or a binary frame log. The resulting table is written next to the {@code QTable_*.csv} of the
+ * control system, such as {@code QTable_Steer.batch.csv}, unless another output file is given.</p>
+ */
+public class BatchQLearning {
+
+    private static final int RECORD_BYTES = 3 * Short.BYTES + Double.BYTES;
+    private static final short TERMINAL = -1;
+
+    private final ControlSystems system;
+    private final int stride;
+    private final int chunkSize;
+    private final Path spool;
+    private DataOutputStream spoolOut;
+    private long transitions;
+    private double[][] qValues;
+    private final boolean[][] visited;
+
+    /**
+     * Constructs a BatchQLearning trainer for the specified control system.
+     *
+     * @param system    The control system (Steering, Acceleration, Gear, or Opponent).
+     * @param stride    The number of frames between two decisions, as in the trainers.
+     * @param chunkSize The number of transitions read from disk at once.
+     *
+     * @throws UncheckedIOException If the spool file cannot be created.
+     */
+    public BatchQLearning(ControlSystems system, int stride, int chunkSize) {
+        this.system = system;
+        this.stride = stride;
+        this.chunkSize = chunkSize;
+        this.qValues = new double[ControlSpaces.states(system).length][ControlSpaces.actions(system).length];
+        this.visited = new boolean[this.qValues.length][this.qValues[0].length];
+        this.transitions = 0;
+        try {
+            this.spool = Files.createTempFile("transitions", ".bin");
+            this.spool.toFile().deleteOnExit();
+            this.spoolOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(this.spool)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create transition spool file", e);
+        }
+    }
+
+    /**
+     * Extracts the transitions of a recording and appends them to the spool file. The opponents are perceived on
+     * every frame, including the ones between two decisions, as the opponent trainer does, so the closing speed of
+     * the opponent ahead is known offline too.
+     *
+     * @param source The recorded frames.
+     */
+    public void addRecording(FrameSource source) {
+        SensorFrame older = new SensorFrame();
+        SensorFrame previous = new SensorFrame();
+        SensorFrame current = new SensorFrame();
+        Action previousAction = new Action();
+        OpponentPerception perception = new OpponentPerception();
+        int previousState = 0;
+        boolean hasOlder = false;
+        boolean hasPrevious = false;
+        int frame = 0;
+        while (source.next()) {
+            if (source.isEpisodeStart()) {
+                hasOlder = false;
+                hasPrevious = false;
+                frame = 0;
+                perception.reset();
+            }
+            SensorModel sensors = source.getSensors();
+            perception.update(sensors);
+            if (frame++ % this.stride != 0 && Math.abs(sensors.getTrackPosition()) < 1)
+                continue;
+            current.copyFrom(sensors);
+            int currentState = stateOf(this.system, current, perception);
+
+            if (hasPrevious && !previousAction.restartRace) {
+                int action = inferAction(this.system, previous, previousAction);
+                if (Math.abs(current.getTrackPosition()) >= 1) {
+                    // Leaving the track ends the episode with the same penalty the trainers use
+                    this.spool(previousState, action, TERMINAL, -1000.0);
+                    hasOlder = false;
+                    hasPrevious = false;
+                    continue;
+                }
+                this.spool(previousState, action, currentState,
+                        this.reward(hasOlder ? older : null, previous, current, perception));
+            }
+
+            SensorFrame recycled = older;
+            older = previous;
+            previous = current;
+            current = recycled;
+            previousState = currentState;
+            hasOlder = hasPrevious;
+            hasPrevious = true;
+            previousAction.copyFrom(source.getAction());
+        }
+    }
+
+    /**
+     * Runs fitted Q-iteration sweeps over the spooled transitions until the table converges. Every sweep replaces
+     * each visited Q-value by the mean of its one-step targets under the table of the previous sweep. The value of a
+     * next state is the best of its visited actions only, or 0 if none was taken there.
+     *
+     * @param maxSweeps The maximum number of sweeps.
+     * @param tolerance The largest change of a Q-value that is considered converged.
+     *
+     * @return The number of sweeps performed.
+     */
+    public int train(int maxSweeps, double tolerance) {
+        try {
+            this.spoolOut.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        int numStates = this.qValues.length;
+        int numActions = this.qValues[0].length;
+        double[][] sums = new double[numStates][numActions];
+        int[][] counts = new int[numStates][numActions];
+        double[] maxValues = new double[numStates];
+        ByteBuffer buffer = ByteBuffer.allocateDirect(this.chunkSize * RECORD_BYTES);
+
+        int sweeps = 0;
+        while (sweeps < maxSweeps) {
+            for (int s = 0; s < numStates; s++) {
+                double max = -Double.MAX_VALUE;
+                for (int a = 0; a < numActions; a++) {
+                    if (this.visited[s][a])
+                        max = Math.max(max, this.qValues[s][a]);
+                    sums[s][a] = 0.0;
+                    counts[s][a] = 0;
+                }
+                maxValues[s] = max == -Double.MAX_VALUE ? 0.0 : max;
+            }
+
+            try (FileChannel channel = FileChannel.open(this.spool, StandardOpenOption.READ)) {
+                buffer.clear();
+                while (channel.read(buffer) > 0) {
+                    buffer.flip();
+                    while (buffer.remaining() >= RECORD_BYTES) {
+                        int state = buffer.getShort();
+                        int action = buffer.getShort();
+                        int next = buffer.getShort();
+                        double reward = buffer.getDouble();
+                        sums[state][action] += next == TERMINAL ? reward : reward + DISCOUNT_FACTOR * maxValues[next];
+                        counts[state][action]++;
+                    }
+                    buffer.compact();
+                }
+            } catch (IOException e) {
+                System.out.println("ERROR!!! -> Could not read transition spool file...");
+                e.printStackTrace();
+                break;
+            }
+
+            double delta = 0.0;
+            for (int s = 0; s < numStates; s++) {
+                for (int a = 0; a < numActions; a++) {
+                    if (counts[s][a] > 0) {
+                        double value = sums[s][a] / counts[s][a];
+                        delta = Math.max(delta, Math.abs(value - this.qValues[s][a]));
+                        this.qValues[s][a] = value;
+                        this.visited[s][a] = true;
+                    }
+                }
+            }
+            sweeps++;
+            if (delta < tolerance)
+                break;
+        }
+        return sweeps;
+    }
+
+    /**
+     * Returns the number of transitions extracted so far.
+     *
+     * @return The number of transitions.
+     */
+    public long getTransitions() {
+        return transitions;
+    }
+
+    /**
+     * Returns the trained Q-table. Actions that were never taken get a value lower than every visited action of their
+     * state, so the drivers never prefer an action without experience.
+     *
+     * @return The Q-values, indexed by state and action ordinals.
+     */
+    public double[][] getQValues() {
+        double[][] values = new double[this.qValues.length][];
+        for (int s = 0; s < values.length; s++) {
+            values[s] = this.qValues[s].clone();
+            double lowest = Double.MAX_VALUE;
+            for (int a = 0; a < values[s].length; a++) {
+                if (this.visited[s][a])
+                    lowest = Math.min(lowest, values[s][a]);
+            }
+            double unvisited = lowest == Double.MAX_VALUE ? 0.0 : lowest - 1.0;
+            for (int a = 0; a < values[s].length; a++) {
+                if (!this.visited[s][a])
+                    values[s][a] = unvisited;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Deletes the spool file.
+     */
+    public void close() {
+        try {
+            this.spoolOut.close();
+            Files.deleteIfExists(this.spool);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Appends a transition to the spool file.
+     *
+     * @param state  The index of the state.
+     * @param action The index of the action.
+     * @param next   The index of the next state, or {@link #TERMINAL}.
+     * @param reward The reward received.
+     */
+    private void spool(int state, int action, int next, double reward) {
+        try {
+            this.spoolOut.writeShort(state);
+            this.spoolOut.writeShort(action);
+            this.spoolOut.writeShort(next);
+            this.spoolOut.writeDouble(reward);
+            this.transitions++;
+        } catch (IOException e) {
+            System.out.println("ERROR!!! -> Could not write transition spool file...");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Recomputes the reward of a decision with the reward function of the control system.
+     *
+     * @param older      The sensors of the decision before, or null at the start of an episode.
+     * @param previous   The sensors where the decision was taken.
+     * @param current    The sensors where the decision is evaluated.
+     * @param perception The opponents perceived up to the current sensors.
+     *
+     * @return The reward.
+     */
+    private double reward(SensorModel older, SensorModel previous, SensorModel current,
+                          OpponentPerception perception) {
+        switch (this.system) {
+            case STEERING_CONTROL_SYSTEM:
+                return SteerControl.calculateReward(previous, current);
+            case ACCELERATION_CONTROL_SYSTEM:
+                double previousAccel = older == null ? 0.0 : previous.getSpeed() - older.getSpeed();
+                return AccelControl.calculateReward(previous, current, previousAccel,
+                        current.getSpeed() - previous.getSpeed());
+            case GEAR_CONTROL_SYSTEM:
+                return GearControl.calculateReward(previous, current);
+            case OPPONENT_CONTROL_SYSTEM:
+                return OpponentControl.calculateReward(previous, current, perception);
+        }
+        return 0.0;
+    }
+
+    /**
+     * Evaluates the state of a control system.
+     *
+     * @param system     The control system.
+     * @param sensors    The sensor readings.
+     * @param perception The opponents perceived up to the sensor readings, used by the opponent control system only.
+     *
+     * @return The index of the state.
+     */
+    public static int stateOf(ControlSystems system, SensorModel sensors, OpponentPerception perception) {
+        switch (system) {
+            case STEERING_CONTROL_SYSTEM:
+                return SteerControl.evaluateSteerState(sensors).ordinal();
+            case ACCELERATION_CONTROL_SYSTEM:
+                return AccelControl.evaluateAccelState(sensors).ordinal();
+            case GEAR_CONTROL_SYSTEM:
+                return GearControl.evaluateGearState(sensors).ordinal();
+            case OPPONENT_CONTROL_SYSTEM:
+                return OpponentControl.evaluateOpponentState(sensors, perception).ordinal();
+        }
+        return 0;
+    }
+
+    /**
+     * Finds the discrete action of a control system whose mapping best explains a recorded action.
+     *
+     * @param system  The control system.
+     * @param sensors The sensor readings the action was computed from.
+     * @param action  The recorded action.
+     *
+     * @return The index of the closest action.
+     */
+    public static int inferAction(ControlSystems system, SensorModel sensors, Action action) {
+        int best = 0;
+        double bestDistance = Double.MAX_VALUE;
+        switch (system) {
+            case STEERING_CONTROL_SYSTEM:
+                for (SteerControl.Actions candidate : SteerControl.Actions.values()) {
+                    double steer = Math.max(-1, Math.min(1, SteerControl.steerAction2Double(sensors, candidate)));
+                    double distance = Math.abs(steer - action.steering);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = candidate.ordinal();
+                    }
+                }
+                break;
+            case ACCELERATION_CONTROL_SYSTEM:
+                Action mapped = new Action();
+                for (AccelControl.Actions candidate : AccelControl.Actions.values()) {
+                    AccelControl.applyAccelAction(sensors, candidate, mapped);
+                    double distance = Math.abs(Math.max(0, Math.min(1, mapped.accelerate)) - action.accelerate)
+                            + Math.abs(Math.max(0, Math.min(1, mapped.brake)) - action.brake);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = candidate.ordinal();
+                    }
+                }
+                break;
+            case GEAR_CONTROL_SYSTEM:
+                for (GearControl.Actions candidate : GearControl.Actions.values()) {
+                    double distance = Math.abs(GearControl.gearAction2Double(sensors, candidate) - action.gear);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = candidate.ordinal();
+                    }
+                }
+                break;
+            case OPPONENT_CONTROL_SYSTEM:
+                // The opponent actions adjust the commands of the DrivingInstructor
+                Action adjusted = new Action();
+                for (OpponentControl.Actions candidate : OpponentControl.Actions.values()) {
+                    adjusted.steering = Math.max(-1, Math.min(1, DrivingInstructor.getSteer(sensors)));
+                    adjusted.accelerate = Math.max(0, DrivingInstructor.getAccel(sensors));
+                    OpponentControl.applyOpponentAction(sensors, candidate, adjusted);
+                    double distance = Math.abs(adjusted.steering - action.steering)
+                            + Math.abs(adjusted.accelerate - action.accelerate);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = candidate.ordinal();
+                    }
+                }
+                break;
+        }
+        return best;
+    }
+
+    /**
+     * Trains a control system from recorded message logs and writes its Q-table.
+     *
+     * @param args The control system, optionally followed by {@code output:<file>}, and one or more message logs.
+     */
+    public static void main(String[] args) {
+        ControlSystems system = ControlSystems.valueOf(args[0]);
+        String output = ControlSpaces.solvedTablePath(system, "batch");
+        BatchQLearning trainer = new BatchQLearning(system, BATCH_STRIDE, BATCH_CHUNK_SIZE);
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("output:")) {
+                output = args[i].substring("output:".length());
+                continue;
+            }
+            FrameSource source = FrameSource.open(args[i]);
+            trainer.addRecording(source);
+            source.close();
+        }
+
+        long start = System.nanoTime();
+        int sweeps = trainer.train(SOLVER_MAX_ITERATIONS, SOLVER_TOLERANCE);
+        long elapsed = System.nanoTime() - start;
+
+        QTableFile.write(output, system, trainer.getQValues());
+        trainer.close();
+        System.out.println("Trained " + system + " on " + trainer.getTransitions() + " transitions in " + sweeps
+                + " sweeps (" + elapsed / 1000000.0 + " ms) -> " + output);
+    }
+}
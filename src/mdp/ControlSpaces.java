@@ -0,0 +1,127 @@
+package mdp;
+
+import static torcs.Constants.*;
+
+/**
+ * The ControlSpaces class maps every control system to its state and action enumerations, so that tabular
+ * algorithms can address states and actions by their ordinal instead of by name.
+ */
+public class ControlSpaces {
+
+    /**
+     * Returns the states of the specified control system, ordered by ordinal.
+     *
+     * @param system The control system (Steering, Acceleration, Gear, or Opponent).
+     *
+     * @return The states of the control system.
+     */
+    public static Enum<?>[] states(ControlSystems system) {
+        switch (system) {
+            case STEERING_CONTROL_SYSTEM:
+                return SteerControl.States.values();
+            case ACCELERATION_CONTROL_SYSTEM:
+                return AccelControl.States.values();
+            case GEAR_CONTROL_SYSTEM:
+                return GearControl.States.values();
+            case OPPONENT_CONTROL_SYSTEM:
+                return OpponentControl.States.values();
+        }
+        return new Enum<?>[0];
+    }
+
+    /**
+     * Returns the actions of the specified control system, ordered by ordinal.
+     *
+     * @param system The control system (Steering, Acceleration, Gear, or Opponent).
+     *
+     * @return The actions of the control system.
+     */
+    public static Enum<?>[] actions(ControlSystems system) {
+        switch (system) {
+            case STEERING_CONTROL_SYSTEM:
+                return SteerControl.Actions.values();
+            case ACCELERATION_CONTROL_SYSTEM:
+                return AccelControl.Actions.values();
+            case GEAR_CONTROL_SYSTEM:
+                return GearControl.Actions.values();
+            case OPPONENT_CONTROL_SYSTEM:
+                return OpponentControl.Actions.values();
+        }
+        return new Enum<?>[0];
+    }
+
+    /**
+     * Returns the default Q-table file of the specified control system.
+     *
+     * @param system The control system (Steering, Acceleration, Gear, or Opponent).
+     *
+     * @return The path of the Q-table file.
+     */
+    public static String qTablePath(ControlSystems system) {
+        switch (system) {
+            case STEERING_CONTROL_SYSTEM:
+                return STEER_Q_TABLE_PATH;
+            case ACCELERATION_CONTROL_SYSTEM:
+                return ACCEL_Q_TABLE_PATH;
+            case GEAR_CONTROL_SYSTEM:
+                return GEAR_Q_TABLE_PATH;
+            case OPPONENT_CONTROL_SYSTEM:
+                return OPPONENT_Q_TABLE_PATH;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the Q-table file of the specified control system for a track: the default file with the track name
+     * appended, such as {@code QTable_Steer_oval.csv}.
+     *
+     * @param system    The control system (Steering, Acceleration, Gear, or Opponent).
+     * @param trackName The name of the track, or null for the default file.
+     *
+     * @return The path of the Q-table file.
+     */
+    public static String qTablePath(ControlSystems system, String trackName) {
+        String path = qTablePath(system);
+        if (trackName == null || trackName.isEmpty() || path == null)
+            return path;
+        return path.substring(0, path.length() - ".csv".length()) + "_" + trackName + ".csv";
+    }
+
+    /**
+     * Returns the file an offline solver writes the Q-table of the specified control system to: the default file
+     * with the name of the solver appended, such as {@code QTable_Steer.value.csv}, so it never replaces the table the
+     * drivers load, nor the table of a track.
+     *
+     * @param system The control system (Steering, Acceleration, Gear, or Opponent).
+     * @param solver The name of the solver.
+     *
+     * @return The path of the Q-table file.
+     */
+    public static String solvedTablePath(ControlSystems system, String solver) {
+        String path = qTablePath(system);
+        if (path == null)
+            return null;
+        return path.substring(0, path.length() - ".csv".length()) + "." + solver + ".csv";
+    }
+
+    /**
+     * Returns the default transition model file of the specified control system.
+     *
+     * @param system The control system (Steering, Acceleration, Gear, or Opponent).
+     *
+     * @return The path of the transition model file.
+     */
+    public static String modelPath(ControlSystems system) {
+        switch (system) {
+            case STEERING_CONTROL_SYSTEM:
+                return STEER_MODEL_PATH;
+            case ACCELERATION_CONTROL_SYSTEM:
+                return ACCEL_MODEL_PATH;
+            case GEAR_CONTROL_SYSTEM:
+                return GEAR_MODEL_PATH;
+            case OPPONENT_CONTROL_SYSTEM:
+                return OPPONENT_MODEL_PATH;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,220 @@
+package mdp;
+
+import java.util.Arrays;
+
+/**
+ * The IndexedPriorityQueue class is an array-based binary heap over the integer keys {@code 0..capacity-1}.
+ * A position index makes it possible to find a key in the heap and change its priority in logarithmic time,
+ * which is what prioritized sweeping needs to re-prioritize states that are already queued.
+ * The queue can be ordered with the highest (max-queue) or the lowest (min-queue) priority first.
+ */
+public class IndexedPriorityQueue {
+
+    private final boolean maxFirst;
+    private final int[] heap;
+    private final int[] positions;
+    private final double[] priorities;
+    private int size;
+
+    /**
+     * Constructs an empty queue.
+     *
+     * @param capacity The number of keys, which must lie in {@code 0..capacity-1}.
+     * @param maxFirst True to serve the highest priority first, false to serve the lowest first.
+     */
+    public IndexedPriorityQueue(int capacity, boolean maxFirst) {
+        this.maxFirst = maxFirst;
+        this.heap = new int[capacity];
+        this.positions = new int[capacity];
+        this.priorities = new double[capacity];
+        Arrays.fill(this.positions, -1);
+        this.size = 0;
+    }
+
+    /**
+     * Inserts a key, or changes its priority if it is already queued.
+     *
+     * @param key      The key.
+     * @param priority The new priority.
+     */
+    public void offer(int key, double priority) {
+        if (this.positions[key] < 0) {
+            this.heap[this.size] = key;
+            this.positions[key] = this.size;
+            this.priorities[key] = priority;
+            this.siftUp(this.size++);
+        } else {
+            double old = this.priorities[key];
+            this.priorities[key] = priority;
+            if (this.before(priority, old))
+                this.siftUp(this.positions[key]);
+            else
+                this.siftDown(this.positions[key]);
+        }
+    }
+
+    /**
+     * Inserts a key, or raises its priority if it is queued with a priority served later than the new one.
+     *
+     * @param key      The key.
+     * @param priority The candidate priority.
+     */
+    public void promote(int key, double priority) {
+        if (this.positions[key] < 0 || this.before(priority, this.priorities[key]))
+            this.offer(key, priority);
+    }
+
+    /**
+     * Removes and returns the key with the first priority.
+     *
+     * @return The key, or -1 if the queue is empty.
+     */
+    public int poll() {
+        if (this.size == 0)
+            return -1;
+        int first = this.heap[0];
+        this.swap(0, --this.size);
+        this.positions[first] = -1;
+        if (this.size > 0)
+            this.siftDown(0);
+        return first;
+    }
+
+    /**
+     * Returns the first priority without removing its key.
+     *
+     * @return The first priority, or NaN if the queue is empty.
+     */
+    public double peekPriority() {
+        return this.size == 0 ? Double.NaN : this.priorities[this.heap[0]];
+    }
+
+    /**
+     * Removes a key from the queue if it is queued.
+     *
+     * @param key The key.
+     */
+    public void remove(int key) {
+        int i = this.positions[key];
+        if (i < 0)
+            return;
+        this.swap(i, --this.size);
+        this.positions[key] = -1;
+        if (i < this.size) {
+            this.siftUp(i);
+            this.siftDown(i);
+        }
+    }
+
+    /**
+     * Checks whether a key is queued.
+     *
+     * @param key The key.
+     *
+     * @return True if the key is queued, false otherwise.
+     */
+    public boolean contains(int key) {
+        return this.positions[key] >= 0;
+    }
+
+    /**
+     * Returns the priority of a queued key.
+     *
+     * @param key The key.
+     *
+     * @return The priority, or NaN if the key is not queued.
+     */
+    public double getPriority(int key) {
+        return this.positions[key] < 0 ? Double.NaN : this.priorities[key];
+    }
+
+    /**
+     * Returns the number of queued keys.
+     *
+     * @return The size of the queue.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the queue is empty.
+     *
+     * @return True if no key is queued, false otherwise.
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Removes every key from the queue.
+     */
+    public void clear() {
+        for (int i = 0; i < this.size; i++)
+            this.positions[this.heap[i]] = -1;
+        this.size = 0;
+    }
+
+    /**
+     * Checks whether a priority must be served before another one.
+     *
+     * @param a The first priority.
+     * @param b The second priority.
+     *
+     * @return True if {@code a} is served strictly before {@code b}.
+     */
+    private boolean before(double a, double b) {
+        return this.maxFirst ? a > b : a < b;
+    }
+
+    /**
+     * Moves the key at a heap position towards the root while it is served before its parent.
+     *
+     * @param i The heap position.
+     */
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!this.before(this.priorities[this.heap[i]], this.priorities[this.heap[parent]]))
+                break;
+            this.swap(i, parent);
+            i = parent;
+        }
+    }
+
+    /**
+     * Moves the key at a heap position towards the leaves while a child is served before it.
+     *
+     * @param i The heap position.
+     */
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= this.size)
+                break;
+            int child = left;
+            int right = left + 1;
+            if (right < this.size && this.before(this.priorities[this.heap[right]], this.priorities[this.heap[left]]))
+                child = right;
+            if (!this.before(this.priorities[this.heap[child]], this.priorities[this.heap[i]]))
+                break;
+            this.swap(i, child);
+            i = child;
+        }
+    }
+
+    /**
+     * Swaps two heap positions and updates the position index.
+     *
+     * @param i The first heap position.
+     * @param j The second heap position.
+     */
+    private void swap(int i, int j) {
+        int a = this.heap[i];
+        int b = this.heap[j];
+        this.heap[i] = b;
+        this.heap[j] = a;
+        this.positions[b] = i;
+        this.positions[a] = j;
+    }
+}
@@ -0,0 +1,129 @@
+package mdp;
+
+import torcs.Action;
+import torcs.DrivingInstructor;
+import torcs.OpponentPerception;
+import torcs.SensorModel;
+
+/**
+ * The OpponentControl class handles the reaction to the traffic around the car. Its states come from an
+ * {@link OpponentPerception}, and its actions adjust the steering and acceleration already computed by the other
+ * control systems: moving to one side of the track to pass the opponent ahead, or lifting off to keep the gap.
+ */
+public class OpponentControl {
+
+    // Distances in meters and speeds in m/s
+    private static final double awareDistance = 40.0;
+    private static final double besideDistance = 10.0;
+    private static final double behindDistance = 15.0;
+    private static final double dangerDistance = 10.0;
+    private static final double closingSpeed = 1.0;
+    // Track position to move to when passing
+    private static final double passingPosition = 0.5;
+
+    /**
+     * Evaluates the opponent state from the perception of the current tick.
+     *
+     * @param current    The current sensor model of the car.
+     * @param perception The opponents perceived in the current tick.
+     *
+     * @return The opponent state.
+     */
+    public static States evaluateOpponentState(SensorModel current, OpponentPerception perception) {
+        if (perception.getLeft() < besideDistance)
+            return States.CAR_ON_THE_LEFT;
+        if (perception.getRight() < besideDistance)
+            return States.CAR_ON_THE_RIGHT;
+        if (perception.getAhead() < awareDistance) {
+            if (perception.getClosingSpeed() < closingSpeed)
+                return States.FOLLOWING;
+            // The track position is positive on the left
+            return current.getTrackPosition() > 0 ? States.CLOSING_ROOM_ON_THE_RIGHT : States.CLOSING_ROOM_ON_THE_LEFT;
+        }
+        if (perception.getBehind() < behindDistance)
+            return States.CAR_BEHIND;
+        return States.CLEAR_TRACK;
+    }
+
+    /**
+     * Applies an opponent action to the commands computed by the other control systems.
+     *
+     * @param current The current sensor model of the car.
+     * @param action  The opponent control action.
+     * @param out     The commands to adjust, with the steering, accel and brake already set.
+     */
+    public static void applyOpponentAction(SensorModel current, Actions action, Action out) {
+        switch (action) {
+            case KEEP_LINE:
+                break;
+            case MOVE_LEFT:
+                out.steering = Math.min(1, out.steering + steerOffset(passingPosition));
+                break;
+            case MOVE_RIGHT:
+                out.steering = Math.max(-1, out.steering + steerOffset(-passingPosition));
+                break;
+            case LIFT_OFF:
+                out.accelerate = 0;
+                break;
+        }
+    }
+
+    /**
+     * Returns the steering to add to the one of {@link DrivingInstructor#getSteer(SensorModel)}, which keeps
+     * the car in the middle of the track, to keep it at another track position instead.
+     *
+     * @param position The track position, positive on the left.
+     *
+     * @return The steering offset.
+     */
+    private static double steerOffset(double position) {
+        return position * 0.5 / DrivingInstructor.steerLock;
+    }
+
+    /**
+     * Calculates the reward based on the previous and current sensor models and the opponents perceived now.
+     *
+     * @param previous   The previous sensor model of the car.
+     * @param current    The current sensor model of the car.
+     * @param perception The opponents perceived in the current tick.
+     *
+     * @return The reward value.
+     */
+    public static double calculateReward(SensorModel previous, SensorModel current, OpponentPerception perception) {
+        // Any contact damages the car
+        if (current.getDamage() > previous.getDamage())
+            return -100.0;
+        if (Math.abs(current.getTrackPosition()) >= 1.0)
+            return -100.0;
+        if (current.getRacePosition() < previous.getRacePosition())
+            return 100.0;
+        if (current.getRacePosition() > previous.getRacePosition())
+            return -10.0;
+        if (perception.getAhead() < dangerDistance && perception.getClosingSpeed() > 0)
+            return -10.0;
+        return 10.0;
+    }
+
+    /**
+     * The opponent control actions.
+     */
+    public enum Actions {
+        KEEP_LINE,
+        MOVE_LEFT,
+        MOVE_RIGHT,
+        LIFT_OFF
+    }
+
+    /**
+     * The opponent states.
+     */
+    public enum States {
+        CLEAR_TRACK,
+        FOLLOWING,
+        CLOSING_ROOM_ON_THE_LEFT,
+        CLOSING_ROOM_ON_THE_RIGHT,
+        CAR_ON_THE_LEFT,
+        CAR_ON_THE_RIGHT,
+        CAR_BEHIND
+    }
+}
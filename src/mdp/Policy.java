@@ -0,0 +1,108 @@
+package mdp;
+
+import static torcs.Constants.*;
+
+/**
+ * The Policy class is the greedy policy of a trained Q-table, compiled to the index of the best action of every
+ * state. Choosing an action is a single array access, with no map lookups, no scan over the actions and no random
+ * draws, which is all a driver that no longer learns needs. A policy never changes once compiled.
+ */
+public class Policy {
+
+    private final ControlSystems system;
+    private final Enum<?>[] actions;
+    private final int[] bestActionByState;
+    private final double[][] values;
+
+    /**
+     * Constructs a Policy.
+     *
+     * @param system            The control system.
+     * @param bestActionByState The ordinal of the best action of every state.
+     * @param values            The Q-values the policy was compiled from.
+     */
+    private Policy(ControlSystems system, int[] bestActionByState, double[][] values) {
+        this.system = system;
+        this.actions = ControlSpaces.actions(system);
+        this.bestActionByState = bestActionByState;
+        this.values = values;
+    }
+
+    /**
+     * Compiles the greedy policy of a Q-table. Ties go to the first action, as in
+     * {@link QLearning#nextOnlyBestAction(Object)}.
+     *
+     * @param system The control system.
+     * @param values The Q-values indexed by state and action ordinals, which must not change afterwards.
+     *
+     * @return The policy.
+     */
+    public static Policy compile(ControlSystems system, double[][] values) {
+        int[] bestActionByState = new int[values.length];
+        for (int s = 0; s < values.length; s++) {
+            int best = 0;
+            for (int a = 1; a < values[s].length; a++) {
+                if (values[s][a] > values[s][best])
+                    best = a;
+            }
+            bestActionByState[s] = best;
+        }
+        return new Policy(system, bestActionByState, values);
+    }
+
+    /**
+     * Compiles the greedy policy of the Q-table saved for a track, or of the default table if the track has none.
+     *
+     * @param trackName The name of the track, or null for the default table.
+     * @param system    The control system.
+     *
+     * @return The policy, or null if there is no saved table.
+     */
+    public static Policy load(String trackName, ControlSystems system) {
+        double[][] values = QTableStore.get(trackName, system);
+        return values == null ? null : compile(system, values);
+    }
+
+    /**
+     * Returns the best action of a state.
+     *
+     * @param state The state.
+     *
+     * @return The action.
+     */
+    public Object bestAction(Object state) {
+        return this.actions[this.bestActionByState[((Enum<?>) state).ordinal()]];
+    }
+
+    /**
+     * Returns the ordinal of the best action of a state.
+     *
+     * @param state The ordinal of the state.
+     *
+     * @return The ordinal of the action.
+     */
+    public int bestAction(int state) {
+        return this.bestActionByState[state];
+    }
+
+    /**
+     * Returns the control system of the policy.
+     *
+     * @return The control system.
+     */
+    public ControlSystems getSystem() {
+        return system;
+    }
+
+    /**
+     * Returns a copy of the Q-values the policy was compiled from.
+     *
+     * @return The Q-values indexed by state and action ordinals.
+     */
+    public double[][] getValues() {
+        double[][] copy = new double[this.values.length][];
+        for (int s = 0; s < this.values.length; s++)
+            copy[s] = this.values[s].clone();
+        return copy;
+    }
+}
@@ -0,0 +1,199 @@
+package mdp;
+
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.StringTokenizer;
+
+import static torcs.Constants.*;
+
+/**
+ * The PolicyExporter class generates the Java source of a driver from the greedy policies of the steering,
+ * acceleration and gear Q-tables. The chosen action of every state is written as a constant in a {@code switch} over
+ * the evaluated state, so the generated driver has no Q-tables, reads no files when it starts and chooses its
+ * actions with code the JIT compiler can fold completely. It drives like {@code ManualTransmissionDriver}, without
+ * the training bookkeeping: it never restarts the race and prints nothing. It fills in the action owned by the client,
+ * so it allocates nothing per tick.
+ *
+ * <p>Usage: {@code java mdp.PolicyExporter [trackName:T] [className:C] [output:D]}. The tables are the ones saved for
+ * the track, or the default ones; the source is written to {@code D/C.java}, by default
+ * {@code drivers/CompiledDriver.java} under the working directory.</p>
+ */
+public class PolicyExporter {
+
+    private static final String INDENT = "    ";
+
+    /**
+     * Generates the source of a driver from three policies.
+     *
+     * @param className The simple name of the generated class, in the {@code drivers} package.
+     * @param source    A description of where the policies come from, for the class comment.
+     * @param steer     The steering policy.
+     * @param accel     The acceleration policy.
+     * @param gear      The gear policy.
+     *
+     * @return The Java source.
+     */
+    public static String generate(String className, String source, Policy steer, Policy accel, Policy gear) {
+        StringBuilder java = new StringBuilder();
+        java.append("package drivers;\n\n");
+        java.append("import mdp.AccelControl;\n");
+        java.append("import mdp.GearControl;\n");
+        java.append("import mdp.SteerControl;\n");
+        java.append("import torcs.*;\n\n");
+        java.append("/**\n");
+        java.append(" * Driver generated by mdp.PolicyExporter from the greedy policies of ").append(source).append(".\n");
+        java.append(" * Do not edit: export the policies again instead.\n");
+        java.append(" */\n");
+        java.append("public class ").append(className).append(" extends Controller {\n\n");
+        java.append(INDENT).append("private int stuck;\n");
+        java.append(INDENT).append("private double clutch;\n\n");
+
+        java.append(INDENT).append("/**\n");
+        java.append(INDENT).append(" * Controls the car with the exported policies.\n");
+        java.append(INDENT).append(" *\n");
+        java.append(INDENT).append(" * @param sensors The sensor readings from the car.\n");
+        java.append(INDENT).append(" *\n");
+        java.append(INDENT).append(" * @return The action to be performed by the car.\n");
+        java.append(INDENT).append(" */\n");
+        java.append(INDENT).append("@Override\n");
+        java.append(INDENT).append("public Action control(SensorModel sensors) {\n");
+        line(java, 2, "Action action = new Action();");
+        line(java, 2, "this.control(sensors, action);");
+        line(java, 2, "return action;");
+        java.append(INDENT).append("}\n\n");
+
+        java.append(INDENT).append("/**\n");
+        java.append(INDENT).append(" * Controls the car with the exported policies, filling in an action owned by the\n");
+        java.append(INDENT).append(" * caller.\n");
+        java.append(INDENT).append(" *\n");
+        java.append(INDENT).append(" * @param sensors The sensor readings from the car.\n");
+        java.append(INDENT).append(" * @param action  The action to fill in; every value is overwritten.\n");
+        java.append(INDENT).append(" */\n");
+        java.append(INDENT).append("@Override\n");
+        java.append(INDENT).append("public void control(SensorModel sensors, Action action) {\n");
+        line(java, 2, "action.reset();");
+        line(java, 2, "if (Math.abs(sensors.getAngleToTrackAxis()) > DrivingInstructor.stuckAngle)");
+        line(java, 3, "this.stuck++;");
+        line(java, 2, "else");
+        line(java, 3, "this.stuck = 0;");
+        line(java, 2, "this.clutch = DrivingInstructor.clutching(sensors, (float) this.clutch, getStage());");
+        line(java, 2, "action.clutch = this.clutch;");
+        java.append("\n");
+        line(java, 2, "// After car is stuck for a while apply recovering policy");
+        line(java, 2, "if (this.stuck > DrivingInstructor.stuckTime) {");
+        line(java, 3, "double steer = -sensors.getAngleToTrackAxis() / DrivingInstructor.steerLock;");
+        line(java, 3, "action.gear = -1;");
+        line(java, 3, "if (sensors.getAngleToTrackAxis() * sensors.getTrackPosition() > 0) {");
+        line(java, 4, "action.gear = 1;");
+        line(java, 4, "steer = -steer;");
+        line(java, 3, "}");
+        line(java, 3, "action.steering = steer;");
+        line(java, 3, "action.accelerate = 1.0;");
+        line(java, 3, "return;");
+        line(java, 2, "}");
+        java.append("\n");
+
+        line(java, 2, "switch (GearControl.evaluateGearState(sensors)) {");
+        cases(java, gear, "action.gear = GearControl.gearAction2Double(sensors, GearControl.Actions.%s);");
+        line(java, 2, "}");
+        java.append("\n");
+        line(java, 2, "double steer = 0;");
+        line(java, 2, "switch (SteerControl.evaluateSteerState(sensors)) {");
+        cases(java, steer, "steer = SteerControl.steerAction2Double(sensors, SteerControl.Actions.%s);");
+        line(java, 2, "}");
+        line(java, 2, "action.steering = Math.max(-1, Math.min(1, steer));");
+        java.append("\n");
+        line(java, 2, "switch (AccelControl.evaluateAccelState(sensors)) {");
+        cases(java, accel, "AccelControl.applyAccelAction(sensors, AccelControl.Actions.%s, action);");
+        line(java, 2, "}");
+        java.append(INDENT).append("}\n\n");
+
+        java.append(INDENT).append("/**\n");
+        java.append(INDENT).append(" * Resets the state of the driver.\n");
+        java.append(INDENT).append(" */\n");
+        java.append(INDENT).append("@Override\n");
+        java.append(INDENT).append("public void reset() {\n");
+        line(java, 2, "this.stuck = 0;");
+        line(java, 2, "this.clutch = 0;");
+        java.append(INDENT).append("}\n\n");
+
+        java.append(INDENT).append("/**\n");
+        java.append(INDENT).append(" * Shuts down the driver.\n");
+        java.append(INDENT).append(" */\n");
+        java.append(INDENT).append("@Override\n");
+        java.append(INDENT).append("public void shutdown() {\n");
+        java.append(INDENT).append("}\n");
+        java.append("}\n");
+        return java.toString();
+    }
+
+    /**
+     * Appends one {@code case} per state to a {@code switch}, with the statement of the best action of the state.
+     *
+     * @param java      The source being generated.
+     * @param policy    The policy.
+     * @param statement The statement, with {@code %s} in place of the name of the action.
+     */
+    private static void cases(StringBuilder java, Policy policy, String statement) {
+        Enum<?>[] states = ControlSpaces.states(policy.getSystem());
+        Enum<?>[] actions = ControlSpaces.actions(policy.getSystem());
+        for (Enum<?> state : states) {
+            line(java, 3, "case " + state.name() + ":");
+            line(java, 4, String.format(statement, actions[policy.bestAction(state.ordinal())].name()));
+            line(java, 4, "break;");
+        }
+    }
+
+    /**
+     * Appends an indented line.
+     *
+     * @param java   The source being generated.
+     * @param indent The indentation level.
+     * @param text   The line.
+     */
+    private static void line(StringBuilder java, int indent, String text) {
+        for (int i = 0; i < indent; i++)
+            java.append(INDENT);
+        java.append(text).append('\n');
+    }
+
+    /**
+     * Writes the source of a driver generated from the saved Q-tables.
+     *
+     * @param args Optional {@code name:value} options.
+     */
+    public static void main(String[] args) {
+        String trackName = null;
+        String className = "CompiledDriver";
+        String output = System.getProperty("user.dir") + "/drivers";
+        for (String arg : args) {
+            StringTokenizer st = new StringTokenizer(arg, ":");
+            String entity = st.nextToken();
+            String value = st.nextToken();
+            if (entity.equals("trackName"))
+                trackName = value;
+            if (entity.equals("className"))
+                className = value;
+            if (entity.equals("output"))
+                output = value;
+        }
+
+        Policy steer = Policy.load(trackName, ControlSystems.STEERING_CONTROL_SYSTEM);
+        Policy accel = Policy.load(trackName, ControlSystems.ACCELERATION_CONTROL_SYSTEM);
+        Policy gear = Policy.load(trackName, ControlSystems.GEAR_CONTROL_SYSTEM);
+        if (steer == null || accel == null || gear == null) {
+            System.out.println("ERROR!!! -> The steering, acceleration and gear Q-tables are all needed");
+            return;
+        }
+        String source = trackName == null ? "the default Q-tables" : "the Q-tables of " + trackName;
+        String filePath = output + "/" + className + ".java";
+        try (PrintWriter file = new PrintWriter(filePath)) {
+            file.write(generate(className, source, steer, accel, gear));
+        } catch (FileNotFoundException e) {
+            System.out.println("ERROR!!! -> Could not write the generated driver...");
+            e.printStackTrace();
+            return;
+        }
+        System.out.println("Exported " + source + " -> " + filePath);
+    }
+}
@@ -0,0 +1,192 @@
+package mdp;
+
+/**
+ * The PrioritizedSweeping class plans over a learned {@link TransitionModel}. Instead of backing up every state
+ * uniformly, it keeps the states in a priority queue ordered by the size of their Bellman error and always backs up
+ * the state whose value is most wrong. When the value of a state changes, its predecessors are re-prioritized, so
+ * large changes (such as the off-track penalty) are propagated backwards first.
+ *
+ * <p>A backup applies the update rule of {@link QLearning#update(Object, Object, Object, double)} with the expected
+ * reward and next value of the model in place of one sampled transition, so the planned values have the same scale
+ * as the ones learned online and both can share one Q-table.</p>
+ */
+public class PrioritizedSweeping {
+
+    private final TransitionModel model;
+    private final double learningRate;
+    private final double discount;
+    private final double threshold;
+    private final IndexedPriorityQueue queue;
+    private final double[] maxValues;
+    private final boolean[] pending;
+    private final int[] pendingStates;
+    private int pendingCount;
+
+    /**
+     * Constructs a PrioritizedSweeping planner over the specified model.
+     *
+     * @param model        The learned transition model.
+     * @param learningRate The learning rate of the update rule.
+     * @param discount     The discount factor.
+     * @param threshold    The smallest Bellman error that is worth a backup.
+     */
+    public PrioritizedSweeping(TransitionModel model, double learningRate, double discount, double threshold) {
+        this.model = model;
+        this.learningRate = learningRate;
+        this.discount = discount;
+        this.threshold = threshold;
+        this.queue = new IndexedPriorityQueue(model.getNumStates(), true);
+        this.maxValues = new double[model.getNumStates()];
+        this.pending = new boolean[model.getNumStates()];
+        this.pendingStates = new int[model.getNumStates()];
+        this.pendingCount = 0;
+    }
+
+    /**
+     * Records an experienced transition in the model and marks its origin state for re-prioritization.
+     *
+     * @param state     The index of the state where the action was taken.
+     * @param action    The index of the action taken.
+     * @param reward    The reward received.
+     * @param nextState The index of the state reached.
+     */
+    public void observe(int state, int action, double reward, int nextState) {
+        this.model.record(state, action, reward, nextState);
+        this.markPending(state);
+    }
+
+    /**
+     * Records an experienced transition that ended the episode and marks its origin state for re-prioritization.
+     *
+     * @param state  The index of the state where the action was taken.
+     * @param action The index of the action taken.
+     * @param reward The reward received.
+     */
+    public void observeTerminal(int state, int action, double reward) {
+        this.model.recordTerminal(state, action, reward);
+        this.markPending(state);
+    }
+
+    /**
+     * Marks every state of the model for re-prioritization, for instance after the model has been loaded.
+     */
+    public void markAllPending() {
+        for (int s = 0; s < this.model.getNumStates(); s++)
+            this.markPending(s);
+    }
+
+    /**
+     * Runs prioritized backups on a Q-table until the queue is empty or the budget is spent.
+     *
+     * @param qValues    The Q-table, indexed by state and action ordinals. It is updated in place.
+     * @param maxBackups The maximum number of state-action backups.
+     *
+     * @return The number of backups performed.
+     */
+    public int sweep(double[][] qValues, int maxBackups) {
+        for (int s = 0; s < this.maxValues.length; s++)
+            this.maxValues[s] = max(qValues[s]);
+
+        for (int i = 0; i < this.pendingCount; i++) {
+            int s = this.pendingStates[i];
+            this.pending[s] = false;
+            double error = this.bellmanError(qValues, s);
+            if (error > this.threshold)
+                this.queue.promote(s, error);
+        }
+        this.pendingCount = 0;
+
+        int backups = 0;
+        while (!this.queue.isEmpty() && backups < maxBackups) {
+            int s = this.queue.poll();
+            for (int a = 0; a < this.model.getNumActions(); a++) {
+                if (this.model.getVisits(s, a) > 0) {
+                    qValues[s][a] = this.target(qValues, s, a);
+                    backups++;
+                }
+            }
+
+            double newMax = max(qValues[s]);
+            if (newMax == this.maxValues[s])
+                continue;
+            this.maxValues[s] = newMax;
+
+            for (int i = 0; i < this.model.getPredecessorCount(s); i++) {
+                int pair = this.model.getPredecessor(s, i);
+                int ps = pair / this.model.getNumActions();
+                int pa = pair % this.model.getNumActions();
+                double error = Math.abs(this.target(qValues, ps, pa) - qValues[ps][pa]);
+                if (error > this.threshold)
+                    this.queue.promote(ps, error);
+            }
+        }
+        return backups;
+    }
+
+    /**
+     * Returns the learned model.
+     *
+     * @return The transition model.
+     */
+    public TransitionModel getModel() {
+        return model;
+    }
+
+    /**
+     * Returns the largest Bellman error among the visited actions of a state.
+     *
+     * @param qValues The Q-table.
+     * @param state   The index of the state.
+     *
+     * @return The Bellman error.
+     */
+    private double bellmanError(double[][] qValues, int state) {
+        double error = 0.0;
+        for (int a = 0; a < this.model.getNumActions(); a++) {
+            if (this.model.getVisits(state, a) > 0)
+                error = Math.max(error, Math.abs(this.target(qValues, state, a) - qValues[state][a]));
+        }
+        return error;
+    }
+
+    /**
+     * Returns the backup of a state-action pair under the learned model.
+     *
+     * @param qValues The Q-table.
+     * @param state   The index of the state.
+     * @param action  The index of the action.
+     *
+     * @return The backed-up Q-value.
+     */
+    private double target(double[][] qValues, int state, int action) {
+        double sample = this.model.getExpectedReward(state, action)
+                + this.discount * this.model.getExpectedNextValue(state, action, this.maxValues);
+        return QLearning.updatedValue(qValues[state][action], this.learningRate, sample);
+    }
+
+    /**
+     * Marks a state for re-prioritization on the next sweep.
+     *
+     * @param state The index of the state.
+     */
+    private void markPending(int state) {
+        if (!this.pending[state]) {
+            this.pending[state] = true;
+            this.pendingStates[this.pendingCount++] = state;
+        }
+    }
+
+    /**
+     * Returns the maximum of a row.
+     *
+     * @param row The values.
+     *
+     * @return The maximum value.
+     */
+    private static double max(double[] row) {
+        double max = -Double.MAX_VALUE;
+        for (double value : row)
+            max = Math.max(max, value);
+        return max;
+    }
+}
@@ -1,9 +1,11 @@
 package mdp;
 
 import torcs.Constants;
+import torcs.LearningSettings;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.*;
 
@@ -32,11 +34,20 @@ public class QLearning {
     private Random random;
     private ControlSystems system;
     private String qTablePath;
+    private String trackName;
+    private String modelPath;
+    private PrioritizedSweeping planner;
+    private LearningSettings settings;
+    private double learningRate;
+    private double discountFactor;
+    // Published by the watcher thread and only read by the control thread, never changed once published
+    private volatile Policy publishedPolicy;
 
     /**
-     * Constructs a QLearning object for the specified control system.
+     * Constructs a QLearning object for the specified control system, for a driver that does not learn: there is
+     * no planner and no transition model is loaded.
      *
-     * @param system The control system (Steering, Acceleration, or Gear).
+     * @param system The control system (Steering, Acceleration, Gear, or Opponent).
      */
     public QLearning(ControlSystems system) {
         this.qTable = new HashMap<>();
@@ -48,29 +59,33 @@ public class QLearning {
         this.system = system;
         switch (this.system) {
             case STEERING_CONTROL_SYSTEM:
-                this.possibleActions = Arrays.asList(SteerControl.Actions.values());
+                this.possibleActions = Arrays.asList((Object[]) SteerControl.Actions.values());
                 this.qTablePath = STEER_Q_TABLE_PATH;
                 break;
             case ACCELERATION_CONTROL_SYSTEM:
-                this.possibleActions = Arrays.asList(AccelControl.Actions.values());
+                this.possibleActions = Arrays.asList((Object[]) AccelControl.Actions.values());
                 this.qTablePath = ACCEL_Q_TABLE_PATH;
                 break;
             case GEAR_CONTROL_SYSTEM:
-                this.possibleActions = Arrays.asList(GearControl.Actions.values());
+                this.possibleActions = Arrays.asList((Object[]) GearControl.Actions.values());
                 this.qTablePath = GEAR_Q_TABLE_PATH;
                 break;
+            case OPPONENT_CONTROL_SYSTEM:
+                this.possibleActions = Arrays.asList((Object[]) OpponentControl.Actions.values());
+                this.qTablePath = OPPONENT_Q_TABLE_PATH;
+                break;
         }
-        File f = new File(this.qTablePath);
-        if (!f.exists())
-            this.createQTable();
-        else
-            this.loadQTable();
+        this.settings = LearningSettings.DEFAULT;
+        this.learningRate = this.settings.getLearningRate();
+        this.discountFactor = this.settings.getDiscountFactor();
+        this.createQTable();
+        this.loadSavedQValues();
     }
 
     /**
      * Constructs a QLearning object for the specified control system with a maximum number of epochs.
      *
-     * @param system    The control system (Steering, Acceleration, or Gear).
+     * @param system    The control system (Steering, Acceleration, Gear, or Opponent).
      * @param maxEpochs The maximum number of epochs.
      */
     public QLearning(ControlSystems system, int maxEpochs) {
@@ -84,23 +99,150 @@ public class QLearning {
         this.system = system;
         switch (this.system) {
             case STEERING_CONTROL_SYSTEM:
-                this.possibleActions = Arrays.asList(SteerControl.Actions.values());
+                this.possibleActions = Arrays.asList((Object[]) SteerControl.Actions.values());
                 this.qTablePath = STEER_Q_TABLE_PATH;
                 break;
             case ACCELERATION_CONTROL_SYSTEM:
-                this.possibleActions = Arrays.asList(AccelControl.Actions.values());
+                this.possibleActions = Arrays.asList((Object[]) AccelControl.Actions.values());
                 this.qTablePath = ACCEL_Q_TABLE_PATH;
                 break;
             case GEAR_CONTROL_SYSTEM:
-                this.possibleActions = Arrays.asList(GearControl.Actions.values());
+                this.possibleActions = Arrays.asList((Object[]) GearControl.Actions.values());
                 this.qTablePath = GEAR_Q_TABLE_PATH;
                 break;
+            case OPPONENT_CONTROL_SYSTEM:
+                this.possibleActions = Arrays.asList((Object[]) OpponentControl.Actions.values());
+                this.qTablePath = OPPONENT_Q_TABLE_PATH;
+                break;
         }
-        File f = new File(this.qTablePath);
-        if (!f.exists())
-            this.createQTable();
+        this.settings = LearningSettings.DEFAULT;
+        this.learningRate = this.settings.getLearningRate();
+        this.discountFactor = this.settings.getDiscountFactor();
+        this.createQTable();
+        this.loadSavedQValues();
+        this.createPlanner();
+    }
+
+    /**
+     * Sets how this object learns: its learning rate and discount factor, whether it starts from the saved Q-table
+     * and transition model or from empty ones, and the directory it saves them to. The Q-table and the planner start
+     * over with the new settings.
+     *
+     * @param settings The learning settings.
+     */
+    public void setLearningSettings(LearningSettings settings) {
+        this.settings = settings;
+        this.learningRate = settings.getLearningRate();
+        this.discountFactor = settings.getDiscountFactor();
+        this.qTablePath = settings.resolve(ControlSpaces.qTablePath(this.system, this.trackName));
+        if (settings.isLoadSavedTables())
+            this.loadSavedQValues();
         else
-            this.loadQTable();
+            this.createQTable();
+        if (this.planner != null)
+            this.createPlanner();
+        if (this.publishedPolicy != null)
+            this.publishedPolicy = Policy.compile(this.system, this.getTableValues());
+    }
+
+    /**
+     * Sets the track this object learns on. From now on its Q-table is the one of the track, which starts from the
+     * default table if the track has none yet, and is saved to the file of the track.
+     *
+     * @param trackName The name of the track.
+     */
+    public void setTrackName(String trackName) {
+        this.trackName = trackName;
+        this.qTablePath = this.settings.resolve(ControlSpaces.qTablePath(this.system, trackName));
+        this.loadSavedQValues();
+        if (this.publishedPolicy != null)
+            this.publishedPolicy = Policy.compile(this.system, this.getTableValues());
+    }
+
+    /**
+     * Keeps the Q-table up to date with its file while the race goes on: whenever the file changes, the
+     * {@link QTableWatcher} thread parses it and publishes the new policy, which {@link #getPolicy()} and
+     * {@link #nextOnlyBestAction(Object)} use from the next tick on. Meant for drivers that do not learn, since the
+     * learned values would be replaced.
+     */
+    public void watchTable() {
+        this.publishedPolicy = Policy.compile(this.system, this.getTableValues());
+        QTableWatcher.watch(this);
+    }
+
+    /**
+     * Stops keeping the Q-table up to date with its file.
+     */
+    public void stopWatchingTable() {
+        QTableWatcher.unwatch(this);
+    }
+
+    /**
+     * Replaces the policy used by {@link #nextOnlyBestAction(Object)} with the one of a reloaded table.
+     *
+     * @param values The Q-values indexed by state and action ordinals, which must not change afterwards.
+     */
+    void publish(double[][] values) {
+        this.publishedPolicy = Policy.compile(this.system, values);
+    }
+
+    /**
+     * Returns the greedy policy of the Q-table. While the table is watched, this is the policy of the last published
+     * table, already compiled; otherwise it is compiled from the current values on every call.
+     *
+     * @return The policy.
+     */
+    public Policy getPolicy() {
+        Policy policy = this.publishedPolicy;
+        return policy != null ? policy : Policy.compile(this.system, this.getTableValues());
+    }
+
+    /**
+     * Returns the control system of this object.
+     *
+     * @return The control system.
+     */
+    public ControlSystems getSystem() {
+        return system;
+    }
+
+    /**
+     * Returns the track this object learns on.
+     *
+     * @return The name of the track, or null if it was not set.
+     */
+    public String getTrackName() {
+        return trackName;
+    }
+
+    /**
+     * Loads the saved Q-values of the track, or of the default table, through {@link QTableStore}. Nothing is
+     * loaded if there are none or if saved tables are not to be loaded.
+     */
+    private void loadSavedQValues() {
+        if (!this.settings.isLoadSavedTables())
+            return;
+        double[][] values = QTableStore.get(this.trackName, this.system);
+        if (values != null)
+            this.setQValues(values);
+    }
+
+    /**
+     * Returns the learning rate of this object.
+     *
+     * @return The learning rate.
+     */
+    public double getLearningRate() {
+        return learningRate;
+    }
+
+    /**
+     * Returns the discount factor of this object.
+     *
+     * @return The discount factor.
+     */
+    public double getDiscountFactor() {
+        return discountFactor;
     }
 
     /**
@@ -140,101 +282,136 @@ public class QLearning {
                     qTable.put(state.name(), row);
                 }
                 break;
+            case OPPONENT_CONTROL_SYSTEM:
+                for (OpponentControl.States state : OpponentControl.States.values()) {
+                    HashMap<String, Double> row = new HashMap<>();
+                    for (Object tmp : this.possibleActions) {
+                        OpponentControl.Actions action = (OpponentControl.Actions) tmp;
+                        row.put(action.name(), 0.0);
+                    }
+                    qTable.put(state.name(), row);
+                }
+                break;
         }
     }
 
     /**
-     * Loads the Q-table from a file for the specified control system.
+     * Creates the planner over the transition model of the control system, loading the model if it was saved.
      */
-    private void loadQTable() {
-        qTable.clear();
-        try (Scanner file = new Scanner(new File(this.qTablePath))) {
-            String[] rowLabels = file.nextLine().split(SEPARATOR);
+    private void createPlanner() {
+        String savedModelPath = ControlSpaces.modelPath(this.system);
+        this.modelPath = this.settings.resolve(savedModelPath);
+        this.planner = new PrioritizedSweeping(new TransitionModel(this.system), this.learningRate,
+                this.discountFactor, PLANNING_THRESHOLD);
+        if (new File(savedModelPath).exists() && this.settings.isLoadSavedTables()) {
+            this.planner.getModel().load(savedModelPath);
+            this.planner.markAllPending();
+        }
+    }
 
-            while (file.hasNextLine()) {
-                String[] row = file.nextLine().split(SEPARATOR);
-                String state = row[0];
-                HashMap<String, Double> rowHash = new HashMap<>();
-                for (int i = 1; i < row.length; i++) {
-                    rowHash.put(rowLabels[i], Double.parseDouble(row[i]));
-                }
-                this.qTable.put(state, rowHash);
-            }
-        } catch (FileNotFoundException e) {
-            System.out.println("ERROR!!! -> Could not load tablaQ from .csv file...");
+    /**
+     * Saves the Q-table to a file. The table is written to a temporary file that then replaces the old one, so a
+     * watching driver never reads a half-written table.
+     */
+    public void saveTable() {
+        try {
+            QTableFile.writeAtomically(this.qTablePath, this::writeTable);
+        } catch (IOException e) {
+            System.out.println("ERROR!!! -> Could not save tableQ in .csv file...");
             e.printStackTrace();
         }
+        // Tables saved elsewhere are not the ones the store reads
+        if (this.settings.getDirectory() == null)
+            QTableStore.updated(this.trackName, this.system, this.getTableValues());
+        if (this.planner != null)
+            this.planner.getModel().save(this.modelPath);
     }
 
     /**
-     * Saves the Q-table to a file.
+     * Writes the Q-table in the .csv layout.
+     *
+     * @param file The writer of the file.
      */
-    public void saveTable() {
-        try (PrintWriter file = new PrintWriter(this.qTablePath)) {
-            file.write(" Q-TABLE ");
-            file.write(SEPARATOR);
-            switch (this.system) {
-                case STEERING_CONTROL_SYSTEM:
-                    for (Object tmp : this.possibleActions) {
+    private void writeTable(PrintWriter file) {
+        file.write(" Q-TABLE ");
+        file.write(SEPARATOR);
+        switch (this.system) {
+            case STEERING_CONTROL_SYSTEM:
+                for (Object tmp : this.possibleActions) {
+                    SteerControl.Actions action = (SteerControl.Actions) tmp;
+                    file.write(action.name());
+                    file.write(SEPARATOR);
+                }
+                file.write("\n");
+                for (SteerControl.States state : SteerControl.States.values()) {
+                    file.write(state.name());
+                    file.write(SEPARATOR);
+                    for (Object tmp : possibleActions) {
                         SteerControl.Actions action = (SteerControl.Actions) tmp;
-                        file.write(action.name());
+                        String value = String.valueOf(this.qTable.get(state.name()).get(action.name()));
+                        file.write(value);
                         file.write(SEPARATOR);
                     }
                     file.write("\n");
-                    for (SteerControl.States state : SteerControl.States.values()) {
-                        file.write(state.name());
-                        file.write(SEPARATOR);
-                        for (Object tmp : possibleActions) {
-                            SteerControl.Actions action = (SteerControl.Actions) tmp;
-                            String value = String.valueOf(this.qTable.get(state.name()).get(action.name()));
-                            file.write(value);
-                            file.write(SEPARATOR);
-                        }
-                        file.write("\n");
-                    }
-                    break;
-                case ACCELERATION_CONTROL_SYSTEM:
-                    for (Object tmp : this.possibleActions) {
+                }
+                break;
+            case ACCELERATION_CONTROL_SYSTEM:
+                for (Object tmp : this.possibleActions) {
+                    AccelControl.Actions action = (AccelControl.Actions) tmp;
+                    file.write(action.name());
+                    file.write(SEPARATOR);
+                }
+                file.write("\n");
+                for (AccelControl.States state : AccelControl.States.values()) {
+                    file.write(state.name());
+                    file.write(SEPARATOR);
+                    for (Object tmp : possibleActions) {
                         AccelControl.Actions action = (AccelControl.Actions) tmp;
-                        file.write(action.name());
+                        String value = String.valueOf(this.qTable.get(state.name()).get(action.name()));
+                        file.write(value);
                         file.write(SEPARATOR);
                     }
                     file.write("\n");
-                    for (AccelControl.States state : AccelControl.States.values()) {
-                        file.write(state.name());
-                        file.write(SEPARATOR);
-                        for (Object tmp : possibleActions) {
-                            AccelControl.Actions action = (AccelControl.Actions) tmp;
-                            String value = String.valueOf(this.qTable.get(state.name()).get(action.name()));
-                            file.write(value);
-                            file.write(SEPARATOR);
-                        }
-                        file.write("\n");
-                    }
-                    break;
-                case GEAR_CONTROL_SYSTEM:
-                    for (Object tmp : this.possibleActions) {
+                }
+                break;
+            case GEAR_CONTROL_SYSTEM:
+                for (Object tmp : this.possibleActions) {
+                    GearControl.Actions action = (GearControl.Actions) tmp;
+                    file.write(action.name());
+                    file.write(SEPARATOR);
+                }
+                file.write("\n");
+                for (GearControl.States state : GearControl.States.values()) {
+                    file.write(state.name());
+                    file.write(SEPARATOR);
+                    for (Object tmp : possibleActions) {
                         GearControl.Actions action = (GearControl.Actions) tmp;
-                        file.write(action.name());
+                        String value = String.valueOf(this.qTable.get(state.name()).get(action.name()));
+                        file.write(value);
                         file.write(SEPARATOR);
                     }
                     file.write("\n");
-                    for (GearControl.States state : GearControl.States.values()) {
-                        file.write(state.name());
+                }
+                break;
+            case OPPONENT_CONTROL_SYSTEM:
+                for (Object tmp : this.possibleActions) {
+                    OpponentControl.Actions action = (OpponentControl.Actions) tmp;
+                    file.write(action.name());
+                    file.write(SEPARATOR);
+                }
+                file.write("\n");
+                for (OpponentControl.States state : OpponentControl.States.values()) {
+                    file.write(state.name());
+                    file.write(SEPARATOR);
+                    for (Object tmp : possibleActions) {
+                        OpponentControl.Actions action = (OpponentControl.Actions) tmp;
+                        String value = String.valueOf(this.qTable.get(state.name()).get(action.name()));
+                        file.write(value);
                         file.write(SEPARATOR);
-                        for (Object tmp : possibleActions) {
-                            GearControl.Actions action = (GearControl.Actions) tmp;
-                            String value = String.valueOf(this.qTable.get(state.name()).get(action.name()));
-                            file.write(value);
-                            file.write(SEPARATOR);
-                        }
-                        file.write("\n");
                     }
-                    break;
-            }
-        } catch (FileNotFoundException e) {
-            System.out.println("ERROR!!! -> Could not save tableQ in .csv file...");
-            e.printStackTrace();
+                    file.write("\n");
+                }
+                break;
         }
     }
 
@@ -251,9 +428,12 @@ public class QLearning {
     public Object update(Object lastState, Object currentState, Object actionPerformed, double reward) {
         this.lastState = lastState;
         if (lastState != null) {
-            double newQValue = this.getQValue(lastState, actionPerformed) + LEARNING_RATE * (reward + DISCOUNT_FACTOR
-                    * this.getMaxQValue(lastState));
-            this.setQValue(lastState, actionPerformed, (Constants.round(newQValue, 8) / 10));
+            double newQValue = updatedValue(this.getQValue(lastState, actionPerformed), this.learningRate,
+                    reward + this.discountFactor * this.getMaxQValue(lastState));
+            this.setQValue(lastState, actionPerformed, newQValue);
+            if (this.planner != null)
+                this.planner.observe(((Enum<?>) lastState).ordinal(), ((Enum<?>) actionPerformed).ordinal(),
+                        reward, ((Enum<?>) currentState).ordinal());
         }
         return nextAction(currentState);
     }
@@ -266,9 +446,86 @@ public class QLearning {
      */
     public void lastUpdate(Object lastAction, double reward) {
         if (this.lastState != null) {
-            double newQValue = (1 - LEARNING_RATE) * this.getQValue(this.lastState, lastAction) + LEARNING_RATE
-                    * (reward + DISCOUNT_FACTOR * this.getMaxQValue(this.lastState));
+            double newQValue = (1 - this.learningRate) * this.getQValue(this.lastState, lastAction) + this.learningRate
+                    * (reward + this.discountFactor * this.getMaxQValue(this.lastState));
             this.setQValue(this.lastState, lastAction, (Constants.round(newQValue, 8) / 10));
+            if (this.planner != null)
+                this.planner.observeTerminal(((Enum<?>) this.lastState).ordinal(),
+                        ((Enum<?>) lastAction).ordinal(), reward);
+        }
+    }
+
+    /**
+     * Applies the update rule of this class to a Q-value: the learning-rate-weighted target is added to it, and the
+     * sum is rounded and scaled down by ten.
+     *
+     * @param qValue       The current Q-value.
+     * @param learningRate The learning rate.
+     * @param target       The sampled or expected reward plus the discounted value that follows.
+     *
+     * @return The new Q-value.
+     */
+    static double updatedValue(double qValue, double learningRate, double target) {
+        return Constants.round(qValue + learningRate * target, 8) / 10;
+    }
+
+    /**
+     * Replays the learned transition model with prioritized sweeping, so that large value changes such as the
+     * off-track penalty reach the states that lead to them without having to be experienced again.
+     *
+     * @param maxBackups The maximum number of state-action backups.
+     *
+     * @return The number of backups performed.
+     */
+    public int plan(int maxBackups) {
+        if (this.planner == null)
+            return 0;
+        double[][] values = this.getTableValues();
+        int backups = this.planner.sweep(values, maxBackups);
+        this.setQValues(values);
+        return backups;
+    }
+
+    /**
+     * Returns a copy of the Q-table indexed by state and action ordinals. While the table is watched, this is the
+     * last published table.
+     *
+     * @return The Q-values.
+     */
+    public double[][] getQValues() {
+        Policy policy = this.publishedPolicy;
+        return policy != null ? policy.getValues() : this.getTableValues();
+    }
+
+    /**
+     * Returns a copy of the learned Q-table indexed by state and action ordinals.
+     *
+     * @return The Q-values.
+     */
+    private double[][] getTableValues() {
+        Enum<?>[] states = ControlSpaces.states(this.system);
+        Enum<?>[] actions = ControlSpaces.actions(this.system);
+        double[][] values = new double[states.length][actions.length];
+        for (int s = 0; s < states.length; s++) {
+            for (int a = 0; a < actions.length; a++) {
+                values[s][a] = this.getQValue(states[s], actions[a]);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Replaces the Q-table with values indexed by state and action ordinals.
+     *
+     * @param values The Q-values.
+     */
+    public void setQValues(double[][] values) {
+        Enum<?>[] states = ControlSpaces.states(this.system);
+        Enum<?>[] actions = ControlSpaces.actions(this.system);
+        for (int s = 0; s < states.length; s++) {
+            for (int a = 0; a < actions.length; a++) {
+                this.setQValue(states[s], actions[a], values[s][a]);
+            }
         }
     }
 
@@ -294,6 +551,10 @@ public class QLearning {
                 GearControl.States gearState = (GearControl.States) stateO;
                 GearControl.Actions gearAction = (GearControl.Actions) actionO;
                 return this.qTable.get(gearState.name()).get(gearAction.name());
+            case OPPONENT_CONTROL_SYSTEM:
+                OpponentControl.States opponentState = (OpponentControl.States) stateO;
+                OpponentControl.Actions opponentAction = (OpponentControl.Actions) actionO;
+                return this.qTable.get(opponentState.name()).get(opponentAction.name());
         }
         return 0.0;
     }
@@ -330,6 +591,13 @@ public class QLearning {
                 gearRow.replace(gearAction.name(), value);
                 this.qTable.replace(gearState.name(), gearRow);
                 break;
+            case OPPONENT_CONTROL_SYSTEM:
+                OpponentControl.States opponentState = (OpponentControl.States) stateO;
+                OpponentControl.Actions opponentAction = (OpponentControl.Actions) actionO;
+                HashMap<String, Double> opponentRow = this.qTable.get(opponentState.name());
+                opponentRow.replace(opponentAction.name(), value);
+                this.qTable.replace(opponentState.name(), opponentRow);
+                break;
         }
     }
 
@@ -399,6 +667,25 @@ public class QLearning {
                 int gearIndex = random.nextInt(gearCandidates.size());
                 GearControl.Actions gearSelected = gearCandidates.get(gearIndex);
                 return gearValues.get(gearSelected.name());
+            case OPPONENT_CONTROL_SYSTEM:
+                OpponentControl.States opponentState = (OpponentControl.States) stateO;
+                double opponentMaxValue = -Double.MAX_VALUE;
+                HashMap<String, Double> opponentValues = qTable.get(opponentState.name());
+                ArrayList<OpponentControl.Actions> opponentCandidates = new ArrayList<>();
+                for (Object tmp : this.possibleActions) {
+                    OpponentControl.Actions action = (OpponentControl.Actions) tmp;
+                    double value = opponentValues.get(action.name());
+                    if (opponentMaxValue < value) {
+                        opponentMaxValue = value;
+                        opponentCandidates.clear();
+                        opponentCandidates.add(action);
+                    } else if (opponentMaxValue == value) {
+                        opponentCandidates.add(action);
+                    }
+                }
+                int opponentIndex = random.nextInt(opponentCandidates.size());
+                OpponentControl.Actions opponentSelected = opponentCandidates.get(opponentIndex);
+                return opponentValues.get(opponentSelected.name());
         }
         return 0.0;
     }
@@ -494,6 +781,24 @@ public class QLearning {
                 }
                 int gearIndex = random.nextInt(gearCandidates.size());
                 return gearCandidates.get(gearIndex);
+            case OPPONENT_CONTROL_SYSTEM:
+                OpponentControl.States opponentState = (OpponentControl.States) stateO;
+                double opponentMaxValue = -Double.MAX_VALUE;
+                HashMap<String, Double> opponentValues = qTable.get(opponentState.name());
+                ArrayList<OpponentControl.Actions> opponentCandidates = new ArrayList<>();
+                for (Object tmp : this.possibleActions) {
+                    OpponentControl.Actions action = (OpponentControl.Actions) tmp;
+                    double value = opponentValues.get(action.name());
+                    if (opponentMaxValue < value) {
+                        opponentMaxValue = value;
+                        opponentCandidates.clear();
+                        opponentCandidates.add(action);
+                    } else if (opponentMaxValue == value) {
+                        opponentCandidates.add(action);
+                    }
+                }
+                int opponentIndex = random.nextInt(opponentCandidates.size());
+                return opponentCandidates.get(opponentIndex);
         }
         return null;
     }
@@ -506,6 +811,9 @@ public class QLearning {
      * @return The best action.
      */
     public Object nextOnlyBestAction(Object stateO) {
+        Policy policy = this.publishedPolicy;
+        if (policy != null)
+            return policy.bestAction(stateO);
         switch (this.system) {
             case STEERING_CONTROL_SYSTEM:
                 SteerControl.States state = (SteerControl.States) stateO;
@@ -549,6 +857,20 @@ public class QLearning {
                     }
                 }
                 return gearTheBest;
+            case OPPONENT_CONTROL_SYSTEM:
+                OpponentControl.States opponentState = (OpponentControl.States) stateO;
+                double opponentMaxValue = -Double.MAX_VALUE;
+                HashMap<String, Double> opponentValues = qTable.get(opponentState.name());
+                Object opponentTheBest = this.getRandomAction();
+                for (Object tmp : this.possibleActions) {
+                    OpponentControl.Actions action = (OpponentControl.Actions) tmp;
+                    double value = opponentValues.get(action.name());
+                    if (opponentMaxValue < value) {
+                        opponentMaxValue = value;
+                        opponentTheBest = action;
+                    }
+                }
+                return opponentTheBest;
         }
         return null;
     }
@@ -559,7 +881,7 @@ public class QLearning {
      * @param newResults The new results to be added to the statistics.
      */
     public void saveStatistics(String newResults) {
-        this.saveStatistics(STATISTICS_TEST_PATH, newResults);
+        this.saveStatistics(this.settings.resolve(STATISTICS_TEST_PATH), newResults);
     }
 
     /**
@@ -570,7 +892,7 @@ public class QLearning {
     public void saveQTableAndStatistics(String newResults) {
         this.epochs++;
         this.saveTable();
-        this.saveStatistics(STATISTICS_TRAIN_PATH, newResults);
+        this.saveStatistics(this.settings.resolve(STATISTICS_TRAIN_PATH), newResults);
     }
 
     /**
@@ -581,15 +903,16 @@ public class QLearning {
      */
     private void saveStatistics(String filePath, String newResults) {
         List<String> content = new ArrayList<>();
-        try (Scanner file = new Scanner(new File(filePath))) {
-            while (file.hasNextLine()) {
-                content.add
-
-                        (file.nextLine());
+        // A new statistics file, such as the one of a scratch directory, starts empty
+        if (new File(filePath).exists()) {
+            try (Scanner file = new Scanner(new File(filePath))) {
+                while (file.hasNextLine()) {
+                    content.add(file.nextLine());
+                }
+            } catch (FileNotFoundException e) {
+                System.out.println("ERROR!!! -> Could not load statistics from .csv file...");
+                e.printStackTrace();
             }
-        } catch (FileNotFoundException e) {
-            System.out.println("ERROR!!! -> Could not load statistics from .csv file...");
-            e.printStackTrace();
         }
         try (PrintWriter file = new PrintWriter((filePath))) {
             for (String line : content) {
@@ -0,0 +1,204 @@
+package mdp;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static torcs.Constants.*;
+
+/**
+ * The QTableFile class reads and writes Q-tables indexed by state and action ordinals in the same .csv layout that
+ * {@link QLearning} uses, so tables produced offline can be loaded by the existing drivers.
+ *
+ * <p>Tables are written with {@link #writeAtomically(String, Consumer)}: a reader such as {@link QTableWatcher} sees
+ * either the old table or the new one, never a table cut in the middle of a number.</p>
+ */
+public class QTableFile {
+
+    /**
+     * Writes a Q-table to a .csv file.
+     *
+     * @param filePath The file path.
+     * @param system   The control system the table belongs to.
+     * @param values   The Q-values, indexed by state and action ordinals.
+     */
+    public static void write(String filePath, ControlSystems system, double[][] values) {
+        Enum<?>[] states = ControlSpaces.states(system);
+        Enum<?>[] actions = ControlSpaces.actions(system);
+        try {
+            writeAtomically(filePath, file -> {
+                file.write(" Q-TABLE ");
+                file.write(SEPARATOR);
+                for (Enum<?> action : actions) {
+                    file.write(action.name());
+                    file.write(SEPARATOR);
+                }
+                file.write("\n");
+                for (int s = 0; s < states.length; s++) {
+                    file.write(states[s].name());
+                    file.write(SEPARATOR);
+                    for (int a = 0; a < actions.length; a++) {
+                        file.write(String.valueOf(values[s][a]));
+                        file.write(SEPARATOR);
+                    }
+                    file.write("\n");
+                }
+            });
+        } catch (IOException e) {
+            System.out.println("ERROR!!! -> Could not save tableQ in .csv file...");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes a file through a temporary file in the same directory, which then replaces the file in one atomic
+     * rename. If anything fails, the old file is left untouched. The new file keeps the permissions of the old one,
+     * or gets {@code rw-r--r--} if there was none, so a driver run by another user can still read it.
+     *
+     * @param filePath The file path.
+     * @param content  Writes the content of the file.
+     *
+     * @throws IOException If the file cannot be written or replaced.
+     */
+    public static void writeAtomically(String filePath, Consumer<PrintWriter> content) throws IOException {
+        Path target = Paths.get(filePath).toAbsolutePath();
+        Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (PrintWriter file = new PrintWriter(temporary.toFile())) {
+                content.accept(file);
+                if (file.checkError())
+                    throw new IOException("Could not write " + temporary);
+            }
+            setPermissions(temporary, target);
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Gives a temporary file the permissions of the file it replaces, instead of the owner-only ones it was created
+     * with. Nothing is done on file systems without POSIX permissions.
+     *
+     * @param temporary The temporary file.
+     * @param target    The file it replaces, which may not exist yet.
+     *
+     * @throws IOException If the permissions cannot be read or set.
+     */
+    private static void setPermissions(Path temporary, Path target) throws IOException {
+        try {
+            Set<PosixFilePermission> permissions = Files.exists(target) ? Files.getPosixFilePermissions(target)
+                    : PosixFilePermissions.fromString("rw-r--r--");
+            Files.setPosixFilePermissions(temporary, permissions);
+        } catch (UnsupportedOperationException e) {
+            // Not a POSIX file system, the temporary file already has the default permissions
+        }
+    }
+
+    /**
+     * Reads a Q-table from a .csv file. States and actions are matched by name; the ones missing from the file
+     * keep a value of 0.
+     *
+     * @param filePath The file path.
+     * @param system   The control system the table belongs to.
+     *
+     * @return The Q-values, indexed by state and action ordinals.
+     */
+    public static double[][] read(String filePath, ControlSystems system) {
+        double[][] values = new double[ControlSpaces.states(system).length][ControlSpaces.actions(system).length];
+        try (Scanner file = new Scanner(new File(filePath))) {
+            parse(file, system, values);
+        } catch (FileNotFoundException e) {
+            System.out.println("ERROR!!! -> Could not load tablaQ from .csv file...");
+            e.printStackTrace();
+        }
+        return values;
+    }
+
+    /**
+     * Reads a Q-table from a .csv file only if it is complete. Unlike {@link #read(String, ControlSystems)}, a file
+     * that is missing, malformed or lacks the row of any state is not an error, because it may still be being
+     * written.
+     *
+     * @param filePath The file path.
+     * @param system   The control system the table belongs to.
+     *
+     * @return The Q-values indexed by state and action ordinals, or null if the file is not a complete table.
+     */
+    public static double[][] readComplete(String filePath, ControlSystems system) {
+        double[][] values = new double[ControlSpaces.states(system).length][ControlSpaces.actions(system).length];
+        try (Scanner file = new Scanner(new File(filePath))) {
+            return parse(file, system, values) == values.length ? values : null;
+        } catch (FileNotFoundException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses the rows of a Q-table file. States and actions are matched by name; the ones missing from the file
+     * keep their value.
+     *
+     * @param file   The scanner over the file.
+     * @param system The control system the table belongs to.
+     * @param values The Q-values to fill, indexed by state and action ordinals.
+     *
+     * @return The number of distinct states read.
+     */
+    private static int parse(Scanner file, ControlSystems system, double[][] values) {
+        Enum<?>[] states = ControlSpaces.states(system);
+        Enum<?>[] actions = ControlSpaces.actions(system);
+        String[] labels = file.nextLine().split(SEPARATOR);
+        int[] columns = new int[labels.length];
+        for (int i = 1; i < labels.length; i++)
+            columns[i] = indexOf(actions, labels[i]);
+
+        boolean[] seen = new boolean[states.length];
+        int count = 0;
+        while (file.hasNextLine()) {
+            String[] row = file.nextLine().split(SEPARATOR);
+            int s = indexOf(states, row[0]);
+            if (s < 0)
+                continue;
+            for (int i = 1; i < row.length && i < columns.length; i++) {
+                if (columns[i] >= 0)
+                    values[s][columns[i]] = Double.parseDouble(row[i]);
+            }
+            if (!seen[s] && row.length > actions.length) {
+                seen[s] = true;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the ordinal of the constant with the specified name.
+     *
+     * @param values The constants.
+     * @param name   The name to look for.
+     *
+     * @return The ordinal, or -1 if there is no such constant.
+     */
+    static int indexOf(Enum<?>[] values, String name) {
+        for (Enum<?> value : values) {
+            if (value.name().equals(name))
+                return value.ordinal();
+        }
+        return -1;
+    }
+}
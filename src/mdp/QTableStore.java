@@ -0,0 +1,136 @@
+package mdp;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static torcs.Constants.*;
+
+/**
+ * The QTableStore class keeps the Q-tables of every (track, control system) pair. The table of a track is read from
+ * {@link ControlSpaces#qTablePath(ControlSystems, String)}; a track that has no table of its own falls back to the
+ * shared default table of the control system.
+ *
+ * <p>The last {@link torcs.Constants#Q_TABLE_CACHE_SIZE} tables read or saved stay in memory, so that a process
+ * driving several cars or switching between tracks does not parse the same files again. The store hands out copies,
+ * so the cached tables are never changed by their users.</p>
+ */
+public class QTableStore {
+
+    private static final Map<String, double[][]> cache = new LinkedHashMap<String, double[][]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, double[][]> eldest) {
+            return size() > Q_TABLE_CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Returns the Q-table of a control system for a track, or the default table if the track has none.
+     *
+     * @param trackName The name of the track, or null for the default table.
+     * @param system    The control system.
+     *
+     * @return A copy of the Q-values indexed by state and action ordinals, or null if there is no saved table.
+     */
+    public static synchronized double[][] get(String trackName, ControlSystems system) {
+        String key = key(trackName, system);
+        double[][] values = cache.get(key);
+        if (values == null) {
+            String filePath = resolvePath(trackName, system);
+            if (filePath == null)
+                return null;
+            values = QTableFile.read(filePath, system);
+            cache.put(key, values);
+        }
+        return copy(values);
+    }
+
+    /**
+     * Saves the Q-table of a control system for a track and keeps it in the cache.
+     *
+     * @param trackName The name of the track, or null for the default table.
+     * @param system    The control system.
+     * @param values    The Q-values indexed by state and action ordinals.
+     */
+    public static synchronized void save(String trackName, ControlSystems system, double[][] values) {
+        QTableFile.write(ControlSpaces.qTablePath(system, trackName), system, values);
+        updated(trackName, system, values);
+    }
+
+    /**
+     * Tells the store that the Q-table of a control system for a track was written by someone else, so that the
+     * cache does not hand out the old values.
+     *
+     * @param trackName The name of the track, or null for the default table.
+     * @param system    The control system.
+     * @param values    The Q-values that were written, indexed by state and action ordinals.
+     */
+    public static synchronized void updated(String trackName, ControlSystems system, double[][] values) {
+        if (trackName == null || trackName.isEmpty()) {
+            // Tracks without a table of their own fall back to this one
+            cache.entrySet().removeIf(entry -> entry.getKey().startsWith(system.name() + "/")
+                    && !new File(ControlSpaces.qTablePath(system, track(entry.getKey()))).exists());
+        }
+        cache.put(key(trackName, system), copy(values));
+    }
+
+    /**
+     * Returns the file the Q-table of a control system for a track is read from.
+     *
+     * @param trackName The name of the track, or null for the default table.
+     * @param system    The control system.
+     *
+     * @return The table of the track if it exists, the default table if it exists, or null otherwise.
+     */
+    public static String resolvePath(String trackName, ControlSystems system) {
+        String trackPath = ControlSpaces.qTablePath(system, trackName);
+        if (new File(trackPath).exists())
+            return trackPath;
+        String defaultPath = ControlSpaces.qTablePath(system);
+        return new File(defaultPath).exists() ? defaultPath : null;
+    }
+
+    /**
+     * Empties the cache, so that the next tables are read from their files.
+     */
+    public static synchronized void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Returns the cache key of a (track, control system) pair.
+     *
+     * @param trackName The name of the track, or null for the default table.
+     * @param system    The control system.
+     *
+     * @return The key.
+     */
+    private static String key(String trackName, ControlSystems system) {
+        return system.name() + "/" + (trackName == null ? "" : trackName);
+    }
+
+    /**
+     * Returns the track name of a cache key.
+     *
+     * @param key The key.
+     *
+     * @return The name of the track, empty for the default table.
+     */
+    private static String track(String key) {
+        return key.substring(key.indexOf('/') + 1);
+    }
+
+    /**
+     * Copies a Q-table.
+     *
+     * @param values The Q-values.
+     *
+     * @return The copy.
+     */
+    private static double[][] copy(double[][] values) {
+        double[][] copy = new double[values.length][];
+        for (int s = 0; s < values.length; s++)
+            copy[s] = values[s].clone();
+        return copy;
+    }
+}
@@ -0,0 +1,117 @@
+package mdp;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static torcs.Constants.*;
+
+/**
+ * The QTableWatcher class reloads the Q-tables of running drivers when their files change, for instance when a
+ * training job in another process saves a better table. A single daemon thread checks the files every
+ * {@link torcs.Constants#Q_TABLE_WATCH_INTERVAL} milliseconds, parses the changed ones and publishes the new values
+ * to every {@link QLearning} that uses them, so the control thread never parses or waits.
+ *
+ * <p>The tables are replaced by an atomic rename (see {@link QTableFile#writeAtomically}), so a check never sees a
+ * half-written number. A file that still lacks a row, such as one edited by hand, is tried again on the next check.
+ * Watched objects are held weakly, so drivers that are no longer used are dropped.</p>
+ */
+public class QTableWatcher {
+
+    private static final List<Entry> entries = new CopyOnWriteArrayList<>();
+    private static Thread thread;
+
+    /**
+     * A watched object and the version of the file it was last published.
+     */
+    private static class Entry {
+        final WeakReference<QLearning> qLearning;
+        String path;
+        long modified;
+        long length;
+
+        Entry(QLearning qLearning, String path) {
+            this.qLearning = new WeakReference<>(qLearning);
+            this.path = path;
+            File f = new File(path == null ? "" : path);
+            this.modified = f.lastModified();
+            this.length = f.length();
+        }
+    }
+
+    /**
+     * Starts watching the table file of an object, starting the watcher thread if needed.
+     *
+     * @param qLearning The object to publish the reloaded tables to.
+     */
+    static synchronized void watch(QLearning qLearning) {
+        entries.add(new Entry(qLearning, QTableStore.resolvePath(qLearning.getTrackName(), qLearning.getSystem())));
+        if (thread == null) {
+            thread = new Thread(QTableWatcher::run, "QTableWatcher");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops watching the table file of an object.
+     *
+     * @param qLearning The object.
+     */
+    static void unwatch(QLearning qLearning) {
+        entries.removeIf(entry -> entry.qLearning.get() == null || entry.qLearning.get() == qLearning);
+    }
+
+    /**
+     * Checks the watched files until the process ends.
+     */
+    private static void run() {
+        while (true) {
+            try {
+                Thread.sleep(Q_TABLE_WATCH_INTERVAL);
+            } catch (InterruptedException e) {
+                return;
+            }
+            check();
+        }
+    }
+
+    /**
+     * Checks every watched file once, parsing each changed file a single time however many objects use it.
+     */
+    static void check() {
+        Map<String, double[][]> parsed = new HashMap<>();
+        for (Entry entry : entries) {
+            QLearning qLearning = entry.qLearning.get();
+            if (qLearning == null) {
+                entries.remove(entry);
+                continue;
+            }
+            // The track of the object may have changed, or the track may have got a table of its own
+            String path = QTableStore.resolvePath(qLearning.getTrackName(), qLearning.getSystem());
+            if (path == null)
+                continue;
+            File f = new File(path);
+            long modified = f.lastModified();
+            long length = f.length();
+            if (path.equals(entry.path) && modified == entry.modified && length == entry.length)
+                continue;
+
+            String key = qLearning.getSystem().name() + "@" + path;
+            if (!parsed.containsKey(key))
+                parsed.put(key, QTableFile.readComplete(path, qLearning.getSystem()));
+            double[][] values = parsed.get(key);
+            if (values == null)
+                continue;
+            entry.path = path;
+            entry.modified = modified;
+            entry.length = length;
+            QTableStore.updated(path.equals(ControlSpaces.qTablePath(qLearning.getSystem()))
+                    ? null : qLearning.getTrackName(), qLearning.getSystem(), values);
+            qLearning.publish(values);
+        }
+    }
+}
@@ -44,7 +44,7 @@ public class SteerControl {
     public static double steerAction2Double(SensorModel current, Actions action) {
         // steering angle is compute by correcting the actual car angle w.r.t. to track
         // axis [sensors.getAngle()] and to adjust car position w.r.t to middle of track [sensors.getTrackPos()*0.5]
-        float targetAngle = (float) (current.getAngleToTrackAxis() - current.getTrackPosition() * 0.5);
+        float targetAngle = (float) current.getFeatures().getSteerTargetAngle();
 
         switch (action) {
             case TURN_STEERING_WHEEL:
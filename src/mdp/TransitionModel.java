@@ -0,0 +1,277 @@
+package mdp;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Scanner;
+
+import static torcs.Constants.*;
+
+/**
+ * The TransitionModel class keeps the tabular statistics learned from the experience of a control system: how often
+ * every state-action pair was taken, the rewards it produced, where it led and how often it ended the episode.
+ * It also keeps, for every state, the list of state-action pairs that have led into it, so that planners can
+ * propagate value changes backwards.
+ */
+public class TransitionModel {
+
+    private final ControlSystems system;
+    private final int numStates;
+    private final int numActions;
+
+    private final int[][] visits;
+    private final int[][] terminals;
+    private final double[][] rewardSums;
+    private final int[][][] successors;
+
+    private final int[][] predecessors;
+    private final int[] predecessorCounts;
+
+    /**
+     * Constructs an empty TransitionModel for the specified control system.
+     *
+     * @param system The control system (Steering, Acceleration, Gear, or Opponent).
+     */
+    public TransitionModel(ControlSystems system) {
+        this.system = system;
+        this.numStates = ControlSpaces.states(system).length;
+        this.numActions = ControlSpaces.actions(system).length;
+
+        this.visits = new int[this.numStates][this.numActions];
+        this.terminals = new int[this.numStates][this.numActions];
+        this.rewardSums = new double[this.numStates][this.numActions];
+        this.successors = new int[this.numStates][this.numActions][this.numStates];
+
+        this.predecessors = new int[this.numStates][this.numStates * this.numActions];
+        this.predecessorCounts = new int[this.numStates];
+    }
+
+    /**
+     * Records a transition from a state to another one.
+     *
+     * @param state     The index of the state where the action was taken.
+     * @param action    The index of the action taken.
+     * @param reward    The reward received.
+     * @param nextState The index of the state reached.
+     */
+    public void record(int state, int action, double reward, int nextState) {
+        this.visits[state][action]++;
+        this.rewardSums[state][action] += reward;
+        if (this.successors[state][action][nextState]++ == 0) {
+            this.predecessors[nextState][this.predecessorCounts[nextState]++] = state * this.numActions + action;
+        }
+    }
+
+    /**
+     * Records a transition that ended the episode, such as leaving the track.
+     *
+     * @param state  The index of the state where the action was taken.
+     * @param action The index of the action taken.
+     * @param reward The reward received.
+     */
+    public void recordTerminal(int state, int action, double reward) {
+        this.visits[state][action]++;
+        this.terminals[state][action]++;
+        this.rewardSums[state][action] += reward;
+    }
+
+    /**
+     * Returns the number of times a state-action pair has been taken.
+     *
+     * @param state  The index of the state.
+     * @param action The index of the action.
+     *
+     * @return The number of visits.
+     */
+    public int getVisits(int state, int action) {
+        return this.visits[state][action];
+    }
+
+    /**
+     * Returns the mean reward received after taking a state-action pair.
+     *
+     * @param state  The index of the state.
+     * @param action The index of the action.
+     *
+     * @return The expected reward, or 0 if the pair has never been taken.
+     */
+    public double getExpectedReward(int state, int action) {
+        int n = this.visits[state][action];
+        return n == 0 ? 0.0 : this.rewardSums[state][action] / n;
+    }
+
+    /**
+     * Returns the estimated probability of reaching a state after taking a state-action pair.
+     *
+     * @param state     The index of the state.
+     * @param action    The index of the action.
+     * @param nextState The index of the state reached.
+     *
+     * @return The transition probability, or 0 if the pair has never been taken.
+     */
+    public double getProbability(int state, int action, int nextState) {
+        int n = this.visits[state][action];
+        return n == 0 ? 0.0 : (double) this.successors[state][action][nextState] / n;
+    }
+
+    /**
+     * Returns the expected maximum value of the states reached after taking a state-action pair. Terminal
+     * transitions contribute no future value.
+     *
+     * @param state     The index of the state.
+     * @param action    The index of the action.
+     * @param maxValues The maximum Q-value of every state.
+     *
+     * @return The expected value of the successor states.
+     */
+    public double getExpectedNextValue(int state, int action, double[] maxValues) {
+        int n = this.visits[state][action];
+        if (n == 0)
+            return 0.0;
+        int[] counts = this.successors[state][action];
+        double value = 0.0;
+        for (int next = 0; next < this.numStates; next++) {
+            if (counts[next] != 0)
+                value += counts[next] * maxValues[next];
+        }
+        return value / n;
+    }
+
+    /**
+     * Returns the number of state-action pairs that have led into a state.
+     *
+     * @param state The index of the state.
+     *
+     * @return The number of predecessors.
+     */
+    public int getPredecessorCount(int state) {
+        return this.predecessorCounts[state];
+    }
+
+    /**
+     * Returns a state-action pair that has led into a state, packed as {@code state * numActions + action}.
+     *
+     * @param state The index of the state.
+     * @param i     The position in the predecessor list, lower than {@link #getPredecessorCount(int)}.
+     *
+     * @return The packed predecessor pair.
+     */
+    public int getPredecessor(int state, int i) {
+        return this.predecessors[state][i];
+    }
+
+    /**
+     * Returns the number of states of the control system.
+     *
+     * @return The number of states.
+     */
+    public int getNumStates() {
+        return numStates;
+    }
+
+    /**
+     * Returns the number of actions of the control system.
+     *
+     * @return The number of actions.
+     */
+    public int getNumActions() {
+        return numActions;
+    }
+
+    /**
+     * Returns the control system this model belongs to.
+     *
+     * @return The control system.
+     */
+    public ControlSystems getSystem() {
+        return system;
+    }
+
+    /**
+     * Discards all the statistics.
+     */
+    public void clear() {
+        for (int s = 0; s < this.numStates; s++) {
+            Arrays.fill(this.visits[s], 0);
+            Arrays.fill(this.terminals[s], 0);
+            Arrays.fill(this.rewardSums[s], 0.0);
+            for (int a = 0; a < this.numActions; a++)
+                Arrays.fill(this.successors[s][a], 0);
+        }
+        Arrays.fill(this.predecessorCounts, 0);
+    }
+
+    /**
+     * Saves the model to a .csv file, one row per state-action pair.
+     *
+     * @param filePath The file path.
+     */
+    public void save(String filePath) {
+        Enum<?>[] states = ControlSpaces.states(this.system);
+        Enum<?>[] actions = ControlSpaces.actions(this.system);
+        try (PrintWriter file = new PrintWriter(filePath)) {
+            file.write(" MODEL " + SEPARATOR + "ACTION" + SEPARATOR + "VISITS" + SEPARATOR + "REWARD_SUM"
+                    + SEPARATOR + "TERMINALS" + SEPARATOR);
+            for (Enum<?> state : states) {
+                file.write(state.name());
+                file.write(SEPARATOR);
+            }
+            file.write("\n");
+            for (int s = 0; s < this.numStates; s++) {
+                for (int a = 0; a < this.numActions; a++) {
+                    file.write(states[s].name() + SEPARATOR + actions[a].name() + SEPARATOR + this.visits[s][a]
+                            + SEPARATOR + this.rewardSums[s][a] + SEPARATOR + this.terminals[s][a] + SEPARATOR);
+                    for (int next = 0; next < this.numStates; next++) {
+                        file.write(String.valueOf(this.successors[s][a][next]));
+                        file.write(SEPARATOR);
+                    }
+                    file.write("\n");
+                }
+            }
+        } catch (FileNotFoundException e) {
+            System.out.println("ERROR!!! -> Could not save transition model in .csv file...");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Replaces the statistics with the ones stored in a .csv file written by {@link #save(String)}. Rows whose
+     * state or action are unknown to the control system are ignored.
+     *
+     * @param filePath The file path.
+     */
+    public void load(String filePath) {
+        this.clear();
+        Enum<?>[] states = ControlSpaces.states(this.system);
+        Enum<?>[] actions = ControlSpaces.actions(this.system);
+        try (Scanner file = new Scanner(new File(filePath))) {
+            String[] labels = file.nextLine().split(SEPARATOR);
+            int[] columns = new int[labels.length];
+            for (int i = 5; i < labels.length; i++)
+                columns[i] = QTableFile.indexOf(states, labels[i]);
+
+            while (file.hasNextLine()) {
+                String[] row = file.nextLine().split(SEPARATOR);
+                int s = QTableFile.indexOf(states, row[0]);
+                int a = QTableFile.indexOf(actions, row[1]);
+                if (s < 0 || a < 0)
+                    continue;
+                this.visits[s][a] = Integer.parseInt(row[2]);
+                this.rewardSums[s][a] = Double.parseDouble(row[3]);
+                this.terminals[s][a] = Integer.parseInt(row[4]);
+                for (int i = 5; i < row.length; i++) {
+                    int next = columns[i];
+                    if (next < 0)
+                        continue;
+                    this.successors[s][a][next] = Integer.parseInt(row[i]);
+                    if (this.successors[s][a][next] > 0)
+                        this.predecessors[next][this.predecessorCounts[next]++] = s * this.numActions + a;
+                }
+            }
+        } catch (FileNotFoundException e) {
+            System.out.println("ERROR!!! -> Could not load transition model from .csv file...");
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package mdp;
+
+import java.io.File;
+
+import static torcs.Constants.*;
+
+/**
+ * The ValueIteration class solves a learned {@link TransitionModel} offline, either by synchronous value iteration
+ * or by policy iteration. Every sweep writes into the second of two value buffers, so all rows of a sweep read the
+ * same consistent values; the buffers are swapped between sweeps until the largest change drops below the tolerance.
+ * The tables have a handful of states, so a sweep is a plain loop over the rows.
+ *
+ * <p>Usage: {@code java mdp.ValueIteration <system> [value|policy] [output.csv]}, where {@code system} is one of
+ * {@code STEERING_CONTROL_SYSTEM}, {@code ACCELERATION_CONTROL_SYSTEM}, {@code GEAR_CONTROL_SYSTEM} or
+ * {@code OPPONENT_CONTROL_SYSTEM}. The model is read from the {@code QModel_*.csv} saved by the trainers and the
+ * result is written next to the corresponding {@code QTable_*.csv}, such as {@code QTable_Steer.value.csv}, unless
+ * another output file is given, so the tables the drivers load are only replaced by hand.</p>
+ */
+public class ValueIteration {
+
+    private final TransitionModel model;
+    private final double discount;
+    private final double tolerance;
+    private double[] values;
+    private double[] nextValues;
+    private final int[] policy;
+    private int iterations;
+
+    /**
+     * Constructs a ValueIteration solver over the specified model.
+     *
+     * @param model     The learned transition model.
+     * @param discount  The discount factor.
+     * @param tolerance The largest change of a state value that is considered converged.
+     */
+    public ValueIteration(TransitionModel model, double discount, double tolerance) {
+        this.model = model;
+        this.discount = discount;
+        this.tolerance = tolerance;
+        this.values = new double[model.getNumStates()];
+        this.nextValues = new double[model.getNumStates()];
+        this.policy = new int[model.getNumStates()];
+        this.iterations = 0;
+    }
+
+    /**
+     * Runs synchronous value iteration until convergence.
+     *
+     * @param maxIterations The maximum number of sweeps.
+     *
+     * @return The Q-table of the solution, indexed by state and action ordinals.
+     */
+    public double[][] solveValueIteration(int maxIterations) {
+        this.iterations = 0;
+        while (this.iterations < maxIterations) {
+            double delta = this.sweep(false);
+            this.swapBuffers();
+            this.iterations++;
+            if (delta < this.tolerance)
+                break;
+        }
+        return this.getQValues();
+    }
+
+    /**
+     * Runs policy iteration: every iteration evaluates the current greedy policy until convergence and then
+     * improves it, until the policy no longer changes.
+     *
+     * @param maxIterations The maximum number of sweeps, counting both evaluation and improvement.
+     *
+     * @return The Q-table of the solution, indexed by state and action ordinals.
+     */
+    public double[][] solvePolicyIteration(int maxIterations) {
+        this.iterations = 0;
+        for (int s = 0; s < this.policy.length; s++)
+            this.policy[s] = this.firstVisitedAction(s);
+
+        boolean stable = false;
+        while (!stable && this.iterations < maxIterations) {
+            while (this.iterations < maxIterations) {
+                double delta = this.sweep(true);
+                this.swapBuffers();
+                this.iterations++;
+                if (delta < this.tolerance)
+                    break;
+            }
+
+            stable = true;
+            for (int s = 0; s < this.policy.length; s++) {
+                int best = this.greedyAction(s, this.values);
+                if (best >= 0 && this.qValue(s, best, this.values) > this.qValue(s, this.policy[s], this.values)
+                        + this.tolerance) {
+                    this.policy[s] = best;
+                    stable = false;
+                }
+            }
+            this.iterations++;
+        }
+        return this.getQValues();
+    }
+
+    /**
+     * Returns the number of sweeps performed by the last solve.
+     *
+     * @return The number of iterations.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Returns the Q-table derived from the current state values. Actions that were never taken get a value lower
+     * than every visited action of their state, so the drivers never prefer an action without experience.
+     *
+     * @return The Q-values, indexed by state and action ordinals.
+     */
+    public double[][] getQValues() {
+        double[][] qValues = new double[this.model.getNumStates()][this.model.getNumActions()];
+        for (int s = 0; s < qValues.length; s++) {
+            double lowest = Double.MAX_VALUE;
+            for (int a = 0; a < qValues[s].length; a++) {
+                if (this.model.getVisits(s, a) > 0) {
+                    qValues[s][a] = this.qValue(s, a, this.values);
+                    lowest = Math.min(lowest, qValues[s][a]);
+                }
+            }
+            double unvisited = lowest == Double.MAX_VALUE ? 0.0 : lowest - 1.0;
+            for (int a = 0; a < qValues[s].length; a++) {
+                if (this.model.getVisits(s, a) == 0)
+                    qValues[s][a] = unvisited;
+            }
+        }
+        return qValues;
+    }
+
+    /**
+     * Swaps the value buffers after a sweep.
+     */
+    private void swapBuffers() {
+        double[] tmp = this.values;
+        this.values = this.nextValues;
+        this.nextValues = tmp;
+    }
+
+    /**
+     * Returns the Q-value of a state-action pair under the learned model.
+     *
+     * @param state  The index of the state.
+     * @param action The index of the action.
+     * @param v      The state values of the successors.
+     *
+     * @return The Q-value.
+     */
+    private double qValue(int state, int action, double[] v) {
+        return this.model.getExpectedReward(state, action)
+                + this.discount * this.model.getExpectedNextValue(state, action, v);
+    }
+
+    /**
+     * Returns the visited action with the highest Q-value.
+     *
+     * @param state The index of the state.
+     * @param v     The state values of the successors.
+     *
+     * @return The index of the action, or -1 if no action of the state has been visited.
+     */
+    private int greedyAction(int state, double[] v) {
+        int best = -1;
+        double bestValue = -Double.MAX_VALUE;
+        for (int a = 0; a < this.model.getNumActions(); a++) {
+            if (this.model.getVisits(state, a) > 0) {
+                double q = this.qValue(state, a, v);
+                if (q > bestValue) {
+                    bestValue = q;
+                    best = a;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the first visited action of a state, used as the initial policy.
+     *
+     * @param state The index of the state.
+     *
+     * @return The index of the action, or 0 if no action of the state has been visited.
+     */
+    private int firstVisitedAction(int state) {
+        for (int a = 0; a < this.model.getNumActions(); a++) {
+            if (this.model.getVisits(state, a) > 0)
+                return a;
+        }
+        return 0;
+    }
+
+    /**
+     * Backs up every state row into the next value buffer.
+     *
+     * @param evaluatePolicy True to back up the current policy, false to back up the greedy action.
+     *
+     * @return The largest value change of the sweep.
+     */
+    private double sweep(boolean evaluatePolicy) {
+        double delta = 0.0;
+        for (int s = 0; s < this.values.length; s++) {
+            double value;
+            if (evaluatePolicy) {
+                value = this.qValue(s, this.policy[s], this.values);
+            } else {
+                int best = this.greedyAction(s, this.values);
+                value = best < 0 ? 0.0 : this.qValue(s, best, this.values);
+            }
+            this.nextValues[s] = value;
+            delta = Math.max(delta, Math.abs(value - this.values[s]));
+        }
+        return delta;
+    }
+
+    /**
+     * Solves the saved model of a control system and writes the resulting Q-table.
+     *
+     * @param args The control system, optionally followed by {@code value} or {@code policy} and an output file.
+     */
+    public static void main(String[] args) {
+        ControlSystems system = ControlSystems.valueOf(args[0]);
+        boolean policyIteration = args.length > 1 && args[1].equals("policy");
+        String output = args.length > 2 ? args[2]
+                : ControlSpaces.solvedTablePath(system, policyIteration ? "policy" : "value");
+
+        String modelPath = ControlSpaces.modelPath(system);
+        if (!new File(modelPath).exists()) {
+            System.out.println("ERROR!!! -> There is no transition model at " + modelPath);
+            return;
+        }
+        TransitionModel model = new TransitionModel(system);
+        model.load(modelPath);
+
+        ValueIteration solver = new ValueIteration(model, DISCOUNT_FACTOR, SOLVER_TOLERANCE);
+        long start = System.nanoTime();
+        double[][] qValues = policyIteration
+                ? solver.solvePolicyIteration(SOLVER_MAX_ITERATIONS)
+                : solver.solveValueIteration(SOLVER_MAX_ITERATIONS);
+        long elapsed = System.nanoTime() - start;
+
+        QTableFile.write(output, system, qValues);
+        System.out.println("Solved " + system + " in " + solver.getIterations() + " iterations ("
+                + elapsed / 1000000.0 + " ms) -> " + output);
+    }
+}
@@ -0,0 +1,258 @@
+package sim;
+
+import mdp.AccelControl;
+import mdp.ControlSpaces;
+import mdp.Policy;
+import mdp.SteerControl;
+import torcs.Action;
+import torcs.Client;
+import torcs.Constants;
+import torcs.Constants.ControlSystems;
+import torcs.Controller;
+import torcs.DrivingInstructor;
+import torcs.LearningSettings;
+import torcs.SensorFrame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.StringTokenizer;
+
+/**
+ * The BatchRun class drives every car of a {@link BatchSimulator}, either with one {@link Controller} per car or
+ * with the greedy policies of the steering and acceleration Q-tables saved for the track, and measures how many transitions per
+ * second are generated. A car that leaves the track or asks for a restart is put back on the grid on its own, so
+ * the batch never waits for the slowest car.
+ *
+ * <p>Usage: {@code java sim.BatchRun <controller|policy> [cars:N] [ticks:N] [trackName:T] [output:D]
+ * [verbose:on]}. The track is loaded with {@link TrackFile#forName(String)}, and its name and the race stage are
+ * passed to every controller. The controllers start from the saved tables and save their tables, transition models,
+ * track maps and statistics under {@code output}, a new temporary directory by default, so a batch never overwrites
+ * the saved files. All the cars save to the same files there, each over the last one, so a batch measures the
+ * throughput of a controller rather than trains it; use {@link Training} to keep what is learned.</p>
+ */
+public class BatchRun {
+
+    private final BatchSimulator simulator;
+    private final float[] angles;
+    private final Action action = new Action();
+    private final SensorFrame frame = new SensorFrame();
+    private long episodes;
+
+    // Policy mode
+    private Policy steerPolicy;
+    private Policy accelPolicy;
+    private float[] clutch;
+
+    // Controller mode
+    private Controller[] drivers;
+
+    /**
+     * Constructs a new BatchRun driven by controllers, in the race stage of the track.
+     *
+     * @param track          The track to race on.
+     * @param cars           The number of cars.
+     * @param controllerName The class name of the controller of every car.
+     * @param settings       How the controllers learn and where they save.
+     */
+    public BatchRun(Track track, int cars, String controllerName, LearningSettings settings) {
+        this.simulator = new BatchSimulator(track, cars);
+        this.drivers = new Controller[cars];
+        for (int i = 0; i < cars; i++) {
+            this.drivers[i] = Client.load(controllerName);
+            this.drivers[i].setQuiet(true);
+            this.drivers[i].setStage(Controller.Stage.RACE);
+            this.drivers[i].setLearningSettings(settings);
+            this.drivers[i].setTrackName(track.getName());
+        }
+        this.angles = this.drivers[0].initAngles();
+    }
+
+    /**
+     * Sets whether the controllers print their progress, which is kept out of the loop by default.
+     *
+     * @param verbose True to let the controllers print on every tick.
+     */
+    public void setVerbose(boolean verbose) {
+        if (this.drivers != null) {
+            for (Controller driver : this.drivers)
+                driver.setQuiet(!verbose);
+        }
+    }
+
+    /**
+     * Constructs a new BatchRun driven by the greedy policies of the saved steering and acceleration Q-tables.
+     *
+     * @param track The track to race on.
+     * @param cars  The number of cars.
+     */
+    public BatchRun(Track track, int cars) {
+        this.simulator = new BatchSimulator(track, cars);
+        this.steerPolicy = policy(track.getName(), ControlSystems.STEERING_CONTROL_SYSTEM);
+        this.accelPolicy = policy(track.getName(), ControlSystems.ACCELERATION_CONTROL_SYSTEM);
+        this.clutch = new float[cars];
+        // The default rangefinders of Controller, which the drivers of these policies keep
+        this.angles = new float[SensorFrame.TRACK_SENSORS];
+        for (int i = 0; i < this.angles.length; i++)
+            this.angles[i] = -90 + i * 10;
+    }
+
+    /**
+     * Returns the greedy policy of the saved Q-table of a control system for a track, or of the default one if the
+     * track has none.
+     *
+     * @param trackName The name of the track.
+     * @param system    The control system.
+     *
+     * @return The policy, of a table of zeros if there is no saved table.
+     */
+    private static Policy policy(String trackName, ControlSystems system) {
+        Policy policy = Policy.load(trackName, system);
+        if (policy == null) {
+            System.out.println("ERROR!!! -> There is no saved Q-table for " + system);
+            policy = Policy.compile(system,
+                    new double[ControlSpaces.states(system).length][ControlSpaces.actions(system).length]);
+        }
+        return policy;
+    }
+
+    /**
+     * Advances every car by one TORCS tick.
+     */
+    public void tick() {
+        for (int i = 0; i < this.simulator.getCount(); i++) {
+            if (this.drivers != null)
+                this.controlWithDriver(i);
+            else
+                this.controlWithPolicy(i);
+        }
+        this.simulator.step(SimServer.TICK);
+    }
+
+    /**
+     * Sets the commands of a car from its controller.
+     *
+     * @param car The index of the car.
+     */
+    private void controlWithDriver(int car) {
+        // The controllers copy the readings they keep, so one frame and one action serve every car
+        this.simulator.sense(car, this.frame, this.angles);
+        this.drivers[car].control(this.frame, this.action);
+        if (this.action.restartRace) {
+            this.drivers[car].reset();
+            this.simulator.reset(car);
+            this.episodes++;
+        } else {
+            this.simulator.setAction(car, this.action);
+        }
+    }
+
+    /**
+     * Sets the commands of a car from the greedy policies, as {@code AutomaticTransmissionDriver} does.
+     *
+     * @param car The index of the car.
+     */
+    private void controlWithPolicy(int car) {
+        this.simulator.sense(car, this.frame, this.angles);
+        if (Math.abs(this.frame.trackPosition) >= 1) {
+            this.simulator.reset(car);
+            this.clutch[car] = 0;
+            this.episodes++;
+            return;
+        }
+        SteerControl.States steerState = SteerControl.evaluateSteerState(this.frame);
+        SteerControl.Actions steerAction = (SteerControl.Actions) this.steerPolicy.bestAction(steerState);
+        AccelControl.States accelState = AccelControl.evaluateAccelState(this.frame);
+        AccelControl.Actions accelAction = (AccelControl.Actions) this.accelPolicy.bestAction(accelState);
+
+        this.action.gear = DrivingInstructor.getGear(this.frame);
+        this.action.steering = SteerControl.steerAction2Double(this.frame, steerAction);
+        AccelControl.applyAccelAction(this.frame, accelAction, this.action);
+        this.clutch[car] = DrivingInstructor.clutching(this.frame, this.clutch[car], Controller.Stage.RACE);
+        this.action.clutch = this.clutch[car];
+        this.simulator.setAction(car, this.action);
+    }
+
+    /**
+     * Returns the number of episodes finished so far.
+     *
+     * @return The number of episodes.
+     */
+    public long getEpisodes() {
+        return episodes;
+    }
+
+    /**
+     * Returns the simulated cars.
+     *
+     * @return The simulator.
+     */
+    public BatchSimulator getSimulator() {
+        return simulator;
+    }
+
+    /**
+     * Runs a batch and prints its throughput.
+     *
+     * @param args The controller class name or {@code policy}, and optional {@code name:value} options.
+     */
+    public static void main(String[] args) {
+        int cars = 1000;
+        int ticks = 1000;
+        String trackName = "oval";
+        String output = null;
+        boolean verbose = false;
+        for (int i = 1; i < args.length; i++) {
+            StringTokenizer st = new StringTokenizer(args[i], ":");
+            String entity = st.nextToken();
+            String value = st.nextToken();
+            if (entity.equals("cars"))
+                cars = Integer.parseInt(value);
+            if (entity.equals("ticks"))
+                ticks = Integer.parseInt(value);
+            if (entity.equals("trackName"))
+                trackName = value;
+            if (entity.equals("output"))
+                output = value;
+            if (entity.equals("verbose"))
+                verbose = value.equals("on");
+        }
+
+        Track track = TrackFile.forName(trackName);
+        if (track == null)
+            return;
+        BatchRun run;
+        if (args[0].equals("policy")) {
+            run = new BatchRun(track, cars);
+        } else {
+            if (output == null) {
+                try {
+                    output = Files.createTempDirectory("batch").toString();
+                } catch (IOException e) {
+                    System.out.println("ERROR!!! -> Could not create the output directory...");
+                    e.printStackTrace();
+                    return;
+                }
+            }
+            if (!new File(output).isDirectory() && !new File(output).mkdirs()) {
+                System.out.println("ERROR!!! -> Could not create " + output);
+                return;
+            }
+            run = new BatchRun(track, cars, args[0],
+                    new LearningSettings(Constants.LEARNING_RATE, Constants.DISCOUNT_FACTOR, true, output));
+        }
+        run.setVerbose(verbose);
+        long start = System.nanoTime();
+        for (int t = 0; t < ticks; t++)
+            run.tick();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        double distance = 0;
+        for (int i = 0; i < cars; i++)
+            distance += run.getSimulator().getDistanceRaced(i);
+        System.out.println(cars + " cars, " + ticks + " ticks, " + run.getEpisodes() + " episodes finished, "
+                + String.format("%.0f", (double) cars * ticks / seconds) + " transitions/s, "
+                + String.format("%.1f", distance / cars) + " m raced per car in the current episode"
+                + (output == null ? "" : " -> " + output));
+    }
+}
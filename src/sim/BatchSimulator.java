@@ -0,0 +1,366 @@
+package sim;
+
+import torcs.Action;
+import torcs.SensorFrame;
+
+import java.util.Arrays;
+
+/**
+ * The BatchSimulator class simulates many independent cars on the same {@link Track} at once. The state of the cars
+ * is kept as a structure of arrays (one primitive array per quantity, indexed by car) and {@link #step(double)}
+ * advances all of them in a few tight loops over those arrays, which keeps the data in cache and lets the JIT
+ * compiler vectorize the arithmetic.
+ *
+ * <p>Every car is a kinematic bicycle model: it moves along its heading and turns with the yaw rate given by the
+ * steering angle and the wheelbase, limited by the lateral grip. The longitudinal dynamics model a gearbox with a
+ * simple torque curve, brakes, aerodynamic drag, rolling resistance and the extra drag and lower grip of the grass
+ * outside the track. The commands of every car are set with {@link #setAction(int, Action)} and its state is read
+ * with {@link #sense(int, SensorFrame, float[])}, with the units and conventions of the TORCS sensors.</p>
+ */
+public class BatchSimulator {
+
+    public static final double STEER_LOCK = 0.785398;
+    public static final double[] WHEEL_RADII = {0.3179, 0.3179, 0.3276, 0.3276};
+    public static final double WHEEL_RADIUS = WHEEL_RADII[2];
+
+    private static final double MASS = 1150.0;
+    private static final double GRAVITY = 9.81;
+    private static final double WHEELBASE = 2.6;
+    private static final double GRIP = 1.1 * MASS * GRAVITY;
+    private static final double GRASS_GRIP = 0.6 * MASS * GRAVITY;
+    private static final double GRASS_DRAG = 0.3 * MASS * GRAVITY;
+    private static final double DRAG = 0.43;
+    private static final double ROLLING = 0.015 * MASS * GRAVITY;
+    private static final double BRAKE_FORCE = 1.1 * MASS * GRAVITY;
+    private static final double MAX_TORQUE = 350.0;
+    private static final double PEAK_RPM = 5500.0;
+    private static final double IDLE_RPM = 800.0;
+    private static final double MAX_RPM = 8500.0;
+    private static final double RPM_PER_RAD_S = 60 / (2 * Math.PI);
+    private static final double FINAL_DRIVE = 4.0;
+    private static final double[] GEAR_RATIOS = {-3.0, 0.0, 3.3, 2.2, 1.6, 1.25, 1.0, 0.83};
+    private static final double START_OFFSET = 10.0;
+    private static final double FUEL = 94.0;
+    private static final double FUEL_PER_METER = 0.0004;
+    private static final int SUBSTEPS = 4;
+
+    private final Track track;
+    private final int count;
+
+    // State of the cars
+    private final double[] x;
+    private final double[] y;
+    private final double[] yaw;
+    private final double[] speed;
+    private final double[] lateralSpeed;
+    private final double[] rpm;
+    private final int[] gear;
+    private final int[] sample;
+    private final double[] position;
+    private final double[] distanceFromStart;
+    private final double[] distanceRaced;
+    private final double[] currentLapTime;
+    private final double[] lastLapTime;
+    private final double[] fuel;
+
+    // Commands of the cars
+    private final double[] accelerate;
+    private final double[] brake;
+    private final double[] clutch;
+    private final double[] steering;
+    private final int[] focus;
+
+    /**
+     * Constructs a new BatchSimulator with all the cars on the grid.
+     *
+     * @param track The track.
+     * @param count The number of cars.
+     */
+    public BatchSimulator(Track track, int count) {
+        this.track = track;
+        this.count = count;
+        this.x = new double[count];
+        this.y = new double[count];
+        this.yaw = new double[count];
+        this.speed = new double[count];
+        this.lateralSpeed = new double[count];
+        this.rpm = new double[count];
+        this.gear = new int[count];
+        this.sample = new int[count];
+        this.position = new double[count];
+        this.distanceFromStart = new double[count];
+        this.distanceRaced = new double[count];
+        this.currentLapTime = new double[count];
+        this.lastLapTime = new double[count];
+        this.fuel = new double[count];
+        this.accelerate = new double[count];
+        this.brake = new double[count];
+        this.clutch = new double[count];
+        this.steering = new double[count];
+        this.focus = new int[count];
+        for (int i = 0; i < count; i++)
+            this.reset(i);
+    }
+
+    /**
+     * Places a car on the grid: stopped, in neutral, on the centerline and a few meters before the start line.
+     * The commands of the car are cleared.
+     *
+     * @param car The index of the car.
+     */
+    public void reset(int car) {
+        int start = Math.floorMod(-(int) Math.round(START_OFFSET * this.track.getSamples()
+                / this.track.getLength()), this.track.getSamples());
+        this.sample[car] = start;
+        this.x[car] = this.track.getX(start);
+        this.y[car] = this.track.getY(start);
+        this.yaw[car] = this.track.getHeading(start);
+        this.speed[car] = 0;
+        this.lateralSpeed[car] = 0;
+        this.rpm[car] = IDLE_RPM;
+        this.gear[car] = 0;
+        this.position[car] = 0;
+        this.distanceFromStart[car] = this.track.distanceFromStart(this.x[car], this.y[car], start);
+        this.distanceRaced[car] = 0;
+        this.currentLapTime[car] = 0;
+        this.lastLapTime[car] = 0;
+        this.fuel[car] = FUEL;
+        this.accelerate[car] = 0;
+        this.brake[car] = 0;
+        this.clutch[car] = 0;
+        this.steering[car] = 0;
+        this.focus[car] = 360;
+    }
+
+    /**
+     * Sets the commands of a car for the next steps.
+     *
+     * @param car    The index of the car.
+     * @param action The action, whose values are limited to their valid ranges.
+     */
+    public void setAction(int car, Action action) {
+        action.limitValues();
+        this.accelerate[car] = action.accelerate;
+        this.brake[car] = action.brake;
+        this.clutch[car] = action.clutch;
+        this.steering[car] = action.steering;
+        this.gear[car] = action.gear;
+        this.focus[car] = action.focus;
+    }
+
+    /**
+     * Advances all the cars by a period of time with their current commands.
+     *
+     * @param dt The period in seconds.
+     */
+    public void step(double dt) {
+        double h = dt / SUBSTEPS;
+        for (int k = 0; k < SUBSTEPS; k++) {
+            this.integrateSpeed(h);
+            this.integratePosition(h);
+            this.project();
+        }
+        for (int i = 0; i < this.count; i++)
+            this.currentLapTime[i] += dt;
+    }
+
+    /**
+     * Updates the engine speed and the speed of every car.
+     *
+     * @param dt The integration step in seconds.
+     */
+    private void integrateSpeed(double dt) {
+        for (int i = 0; i < this.count; i++) {
+            boolean onTrack = Math.abs(this.position[i]) <= 1;
+            double grip = onTrack ? GRIP : GRASS_GRIP;
+            double v = this.speed[i];
+
+            // Engine and gearbox
+            double ratio = GEAR_RATIOS[this.gear[i] + 1] * FINAL_DRIVE;
+            double drive = 0;
+            if (ratio != 0) {
+                double r = Math.max(IDLE_RPM, Math.abs(v) / WHEEL_RADIUS * Math.abs(ratio) * RPM_PER_RAD_S);
+                if (r < MAX_RPM) {
+                    double shape = (r - PEAK_RPM) / 5000.0;
+                    double torque = MAX_TORQUE * Math.max(0.3, 1 - shape * shape);
+                    drive = this.accelerate[i] * (1 - this.clutch[i]) * torque * ratio / WHEEL_RADIUS;
+                }
+                this.rpm[i] = r;
+            } else {
+                this.rpm[i] += (IDLE_RPM + this.accelerate[i] * (MAX_RPM - IDLE_RPM) - this.rpm[i])
+                        * Math.min(1, 5 * dt);
+            }
+            drive = Math.max(-grip, Math.min(grip, drive));
+
+            // Resistances always oppose the motion
+            double resistance = DRAG * v * v + ROLLING + this.brake[i] * BRAKE_FORCE + (onTrack ? 0 : GRASS_DRAG);
+            v += drive / MASS * dt;
+            double slowdown = resistance / MASS * dt;
+            this.speed[i] = Math.abs(v) <= slowdown ? 0 : v - Math.signum(v) * slowdown;
+        }
+    }
+
+    /**
+     * Updates the heading and the position of every car with the kinematic bicycle model, with the yaw rate
+     * limited by the lateral grip.
+     *
+     * @param dt The integration step in seconds.
+     */
+    private void integratePosition(double dt) {
+        for (int i = 0; i < this.count; i++) {
+            double v = this.speed[i];
+            double grip = Math.abs(this.position[i]) <= 1 ? GRIP : GRASS_GRIP;
+            double yawRate = v / WHEELBASE * Math.tan(this.steering[i] * STEER_LOCK);
+            double maxYawRate = grip / MASS / Math.max(1.0, Math.abs(v));
+            double limited = Math.max(-maxYawRate, Math.min(maxYawRate, yawRate));
+            this.lateralSpeed[i] = (yawRate - limited) * WHEELBASE;
+            this.yaw[i] = normalize(this.yaw[i] + limited * dt);
+
+            double dx = v * Math.cos(this.yaw[i]) * dt;
+            double dy = v * Math.sin(this.yaw[i]) * dt;
+            this.x[i] += dx;
+            this.y[i] += dy;
+            this.fuel[i] = Math.max(0, this.fuel[i] - FUEL_PER_METER * Math.abs(v) * dt);
+        }
+    }
+
+    /**
+     * Projects every car onto the track and updates the distances and laps, with the lap change when the start
+     * line is crossed forwards.
+     */
+    private void project() {
+        double length = this.track.getLength();
+        for (int i = 0; i < this.count; i++) {
+            int s = this.track.nearestSample(this.x[i], this.y[i], this.sample[i]);
+            this.sample[i] = s;
+            this.position[i] = this.track.trackPosition(this.x[i], this.y[i], s);
+            double previous = this.distanceFromStart[i];
+            this.distanceFromStart[i] = this.track.distanceFromStart(this.x[i], this.y[i], s);
+            double progress = this.distanceFromStart[i] - previous;
+            if (progress < -length / 2) {
+                progress += length;
+                // The first crossing only starts the first lap
+                if (this.distanceRaced[i] + progress > length / 2)
+                    this.lastLapTime[i] = this.currentLapTime[i];
+                this.currentLapTime[i] = 0;
+            } else if (progress > length / 2) {
+                progress -= length;
+            }
+            this.distanceRaced[i] += progress;
+        }
+    }
+
+    /**
+     * Fills a sensor frame with the current state of a car.
+     *
+     * @param car    The index of the car.
+     * @param frame  The frame to fill.
+     * @param angles The angles of the track rangefinders in degrees, clockwise from the heading of the car.
+     */
+    public void sense(int car, SensorFrame frame, float[] angles) {
+        double trackPosition = this.getTrackPosition(car);
+        boolean onTrack = Math.abs(trackPosition) <= 1;
+        double px = this.x[car];
+        double py = this.y[car];
+        double heading = this.yaw[car];
+
+        frame.speed = this.speed[car] * 3.6;
+        frame.lateralSpeed = this.lateralSpeed[car] * 3.6;
+        frame.zSpeed = 0;
+        frame.angleToTrackAxis = normalize(this.track.getHeading(this.sample[car]) - heading);
+        frame.trackPosition = trackPosition;
+        frame.gear = this.gear[car];
+        frame.racePosition = 1;
+        frame.currentLapTime = this.currentLapTime[car];
+        frame.lastLapTime = this.lastLapTime[car];
+        frame.damage = 0;
+        frame.distanceFromStartLine = this.distanceFromStart[car];
+        frame.distanceRaced = this.distanceRaced[car];
+        frame.fuelLevel = this.fuel[car];
+        frame.rpm = this.rpm[car];
+        frame.z = 0.35;
+
+        int n = Math.min(angles.length, SensorFrame.TRACK_SENSORS);
+        if (onTrack)
+            this.track.castRays(px, py, heading, angles, n, frame.trackEdgeSensors);
+        else
+            Arrays.fill(frame.trackEdgeSensors, 0, n, -1);
+        Arrays.fill(frame.trackEdgeSensors, n, SensorFrame.TRACK_SENSORS, -1);
+
+        int f = this.focus[car];
+        boolean focused = onTrack && f >= -90 && f <= 90;
+        for (int i = 0; i < SensorFrame.FOCUS_SENSORS; i++)
+            frame.focusSensors[i] = focused ? this.track.castRay(px, py, heading - Math.toRadians(f + i - 2)) : -1;
+
+        Arrays.fill(frame.opponentSensors, Track.MAX_RANGE);
+        for (int i = 0; i < SensorFrame.WHEELS; i++)
+            frame.wheelSpinVelocity[i] = this.speed[car] / WHEEL_RADII[i];
+        frame.invalidateFeatures();
+    }
+
+    /**
+     * Returns the number of cars.
+     *
+     * @return The number of cars.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the position of a car across the track.
+     *
+     * @param car The index of the car.
+     *
+     * @return The position, 0 on the centerline, 1 on the left edge and -1 on the right edge.
+     */
+    public double getTrackPosition(int car) {
+        return this.position[car];
+    }
+
+    /**
+     * Returns the speed of a car.
+     *
+     * @param car The index of the car.
+     *
+     * @return The speed in meters per second.
+     */
+    public double getSpeed(int car) {
+        return this.speed[car];
+    }
+
+    /**
+     * Returns the distance raced by a car since it was placed on the grid.
+     *
+     * @param car The index of the car.
+     *
+     * @return The distance in meters.
+     */
+    public double getDistanceRaced(int car) {
+        return this.distanceRaced[car];
+    }
+
+    /**
+     * Returns the track the cars are on.
+     *
+     * @return The track.
+     */
+    public Track getTrack() {
+        return track;
+    }
+
+    /**
+     * Normalizes an angle to {@code [-PI, PI]}.
+     *
+     * @param angle The angle in radians.
+     *
+     * @return The normalized angle.
+     */
+    static double normalize(double angle) {
+        while (angle > Math.PI)
+            angle -= 2 * Math.PI;
+        while (angle < -Math.PI)
+            angle += 2 * Math.PI;
+        return angle;
+    }
+}
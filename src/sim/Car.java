@@ -0,0 +1,89 @@
+package sim;
+
+import torcs.Action;
+import torcs.SensorFrame;
+
+/**
+ * The Car class simulates a single car on a {@link Track}. It is a batch of one car of {@link BatchSimulator}, which
+ * holds the vehicle model.
+ *
+ * <p>The state of the car is published through a {@link SensorFrame} with the units and conventions of the TORCS
+ * sensors, so the same controllers can drive the simulated car and the real one.</p>
+ */
+public class Car {
+
+    private final BatchSimulator simulator;
+
+    /**
+     * Constructs a new Car on the specified track, placed on the grid.
+     *
+     * @param track The track.
+     */
+    public Car(Track track) {
+        this.simulator = new BatchSimulator(track, 1);
+    }
+
+    /**
+     * Places the car on the grid: stopped, in neutral, on the centerline and a few meters before the start line.
+     */
+    public void reset() {
+        this.simulator.reset(0);
+    }
+
+    /**
+     * Applies an action for a period of time.
+     *
+     * @param action The action, whose values are limited to their valid ranges.
+     * @param dt     The period in seconds.
+     */
+    public void step(Action action, double dt) {
+        this.simulator.setAction(0, action);
+        this.simulator.step(dt);
+    }
+
+    /**
+     * Fills a sensor frame with the current state of the car.
+     *
+     * @param frame  The frame to fill.
+     * @param angles The angles of the track rangefinders in degrees, clockwise from the heading of the car.
+     */
+    public void sense(SensorFrame frame, float[] angles) {
+        this.simulator.sense(0, frame, angles);
+    }
+
+    /**
+     * Returns the position of the car across the track.
+     *
+     * @return The position, 0 on the centerline, 1 on the left edge and -1 on the right edge.
+     */
+    public double getTrackPosition() {
+        return this.simulator.getTrackPosition(0);
+    }
+
+    /**
+     * Returns the speed of the car.
+     *
+     * @return The speed in meters per second.
+     */
+    public double getSpeed() {
+        return this.simulator.getSpeed(0);
+    }
+
+    /**
+     * Returns the distance raced since the car was placed on the grid.
+     *
+     * @return The distance in meters.
+     */
+    public double getDistanceRaced() {
+        return this.simulator.getDistanceRaced(0);
+    }
+
+    /**
+     * Returns the track the car is on.
+     *
+     * @return The track.
+     */
+    public Track getTrack() {
+        return this.simulator.getTrack();
+    }
+}
@@ -0,0 +1,134 @@
+package sim;
+
+import torcs.Action;
+import torcs.SensorFrame;
+import torcs.SensorModel;
+
+import java.util.Random;
+
+/**
+ * The Environment class runs the simulated car in-process: an action goes in and the resulting sensor readings come
+ * out as a {@link SensorModel}, with no message encoding, parsing or networking in between. This is the fastest way
+ * to drive a controller in a loop.
+ *
+ * <p>Every call fills the same frame, which allocates nothing: the controllers copy the readings they keep from one
+ * tick to the next.</p>
+ *
+ * <p>Like the TORCS server, the environment can add Gaussian noise to the speed, the track position, the angle to the
+ * track axis and the track edge sensors, to train controllers on the readings of a noisy race.</p>
+ */
+public class Environment {
+
+    private final Car car;
+    private final float[] angles;
+    private final SensorFrame sensors = new SensorFrame();
+    private int ticks;
+    private double noise;
+    private Random random;
+
+    /**
+     * Constructs a new Environment.
+     *
+     * @param track  The track to race on.
+     * @param angles The angles of the track rangefinders in degrees, as returned by
+     *               {@link torcs.Controller#initAngles()}.
+     */
+    public Environment(Track track, float[] angles) {
+        this.car = new Car(track);
+        this.angles = angles;
+        this.reset();
+    }
+
+    /**
+     * Sets the noise added to the sensor readings. The speed and the track edge sensors get a noise proportional to
+     * the reading, the track position and the angle to the track axis an absolute one.
+     *
+     * @param noise The standard deviation of the noise, relative to the reading or in track half-widths and
+     *              radians; 0 for exact readings.
+     * @param seed  The seed of the noise.
+     */
+    public void setNoise(double noise, long seed) {
+        this.noise = noise;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Places the car back on the grid.
+     *
+     * @return The sensor readings on the grid.
+     */
+    public SensorModel reset() {
+        this.car.reset();
+        this.ticks = 0;
+        return this.sense();
+    }
+
+    /**
+     * Applies an action during one TORCS tick.
+     *
+     * @param action The action.
+     *
+     * @return The sensor readings after the tick.
+     */
+    public SensorModel step(Action action) {
+        this.car.step(action, SimServer.TICK);
+        this.ticks++;
+        return this.sense();
+    }
+
+    /**
+     * Reads the sensors of the car into the frame.
+     *
+     * @return The frame.
+     */
+    private SensorModel sense() {
+        this.car.sense(this.sensors, this.angles);
+        if (this.noise > 0)
+            this.perturb(this.sensors);
+        return this.sensors;
+    }
+
+    /**
+     * Adds the sensor noise to a frame.
+     *
+     * @param frame The frame.
+     */
+    private void perturb(SensorFrame frame) {
+        frame.speed *= 1 + this.noise * this.random.nextGaussian();
+        frame.trackPosition += this.noise * this.random.nextGaussian();
+        frame.angleToTrackAxis += this.noise * this.random.nextGaussian();
+        double[] edges = frame.trackEdgeSensors;
+        // Out of the track the rangefinders read -1 with no noise
+        if (edges[0] >= 0) {
+            for (int i = 0; i < edges.length; i++)
+                edges[i] = Math.max(0, edges[i] * (1 + this.noise * this.random.nextGaussian()));
+        }
+    }
+
+    /**
+     * Returns the last sensor readings.
+     *
+     * @return The sensor readings.
+     */
+    public SensorModel getSensors() {
+        return sensors;
+    }
+
+    /**
+     * Returns the number of ticks since the last reset.
+     *
+     * @return The number of ticks.
+     */
+    public int getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Returns the simulated car.
+     *
+     * @return The car.
+     */
+    public Car getCar() {
+        return car;
+    }
+}
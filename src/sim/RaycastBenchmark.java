@@ -0,0 +1,90 @@
+package sim;
+
+import java.util.Random;
+import java.util.StringTokenizer;
+
+/**
+ * The RaycastBenchmark class measures the throughput of the rangefinder raycasts of {@link Track}, with the grid and
+ * by testing every edge segment, from random positions and headings on the track. It also checks that both give the
+ * same distances.
+ *
+ * <p>Usage: {@code java sim.RaycastBenchmark [positions:N] [passes:N] [seed:N]}. Every position casts the 19
+ * rangefinders of {@link torcs.Controller#initAngles()}.</p>
+ */
+public class RaycastBenchmark {
+
+    private static final int RAYS = 19;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optional {@code name:value} options.
+     */
+    public static void main(String[] args) {
+        int positions = 20000;
+        int passes = 5;
+        long seed = 42;
+        for (String arg : args) {
+            StringTokenizer st = new StringTokenizer(arg, ":");
+            String entity = st.nextToken();
+            String value = st.nextToken();
+            if (entity.equals("positions"))
+                positions = Integer.parseInt(value);
+            if (entity.equals("passes"))
+                passes = Integer.parseInt(value);
+            if (entity.equals("seed"))
+                seed = Long.parseLong(value);
+        }
+
+        Track track = Track.oval();
+        float[] angles = new float[RAYS];
+        for (int i = 0; i < RAYS; i++)
+            angles[i] = -90 + i * 10;
+
+        // Random positions across the track, headed roughly along it
+        Random random = new Random(seed);
+        double[] xs = new double[positions];
+        double[] ys = new double[positions];
+        double[] headings = new double[positions];
+        for (int p = 0; p < positions; p++) {
+            int sample = random.nextInt(track.getSamples());
+            double heading = track.getHeading(sample);
+            double lateral = (random.nextDouble() * 2 - 1) * track.getWidth(sample) / 2;
+            xs[p] = track.getX(sample) - Math.sin(heading) * lateral;
+            ys[p] = track.getY(sample) + Math.cos(heading) * lateral;
+            headings[p] = heading + (random.nextDouble() - 0.5);
+        }
+
+        double[] grid = new double[RAYS];
+        double maxDifference = 0;
+        for (int p = 0; p < positions; p++) {
+            track.castRays(xs[p], ys[p], headings[p], angles, RAYS, grid);
+            for (int i = 0; i < RAYS; i++) {
+                double exact = track.castRayBruteForce(xs[p], ys[p], headings[p] - Math.toRadians(angles[i]));
+                maxDifference = Math.max(maxDifference, Math.abs(exact - grid[i]));
+            }
+        }
+        System.out.println("Largest difference between grid and brute force: " + maxDifference + " m");
+
+        for (int pass = 1; pass <= passes; pass++) {
+            double checksum = 0;
+            long start = System.nanoTime();
+            for (int p = 0; p < positions; p++) {
+                track.castRays(xs[p], ys[p], headings[p], angles, RAYS, grid);
+                checksum += grid[RAYS / 2];
+            }
+            double gridSeconds = (System.nanoTime() - start) / 1e9;
+
+            int bruteForcePositions = Math.max(1, positions / 100);
+            start = System.nanoTime();
+            for (int p = 0; p < bruteForcePositions; p++) {
+                for (int i = 0; i < RAYS; i++)
+                    checksum += track.castRayBruteForce(xs[p], ys[p], headings[p] - Math.toRadians(angles[i]));
+            }
+            double bruteForceSeconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.println(String.format("Pass %d: grid %.0f rays/s, brute force %.0f rays/s (checksum %.1f)",
+                    pass, positions * RAYS / gridSeconds, bruteForcePositions * RAYS / bruteForceSeconds, checksum));
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package sim;
+
+import torcs.Action;
+import torcs.SensorFrame;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.util.StringTokenizer;
+
+/**
+ * The SimServer class is a headless stand-in for the TORCS server. It speaks the same UDP protocol that
+ * {@link torcs.Client} expects ({@code ***identified***}, {@code ***restart***} and {@code ***shutdown***}), simulates
+ * the car with {@link Car} on a {@link Track} and answers every action with the standard sensor message. The
+ * simulation is not throttled to real time: every received action advances it by one TORCS tick, so a client trains
+ * as fast as it can answer.
+ *
+ * <p>Usage: {@code java sim.SimServer [port:N] [maxEpisodes:N] [maxTicks:N] [trackName:T] [verbose:on]}. The track
+ * is loaded with {@link TrackFile#forName(String)}. An episode ends when the client asks for a restart or after
+ * {@code maxTicks} ticks; after {@code maxEpisodes} episodes the server shuts down. Zero means no limit.</p>
+ */
+public class SimServer {
+
+    public static final double TICK = 0.02;
+
+    private static final int BUFFER_SIZE = 1000;
+    private static final int CLIENT_TIMEOUT = 10000;
+
+    private final Track track;
+    private final Car car;
+    private final SensorFrame frame = new SensorFrame();
+    private final int maxEpisodes;
+    private final int maxTicks;
+    private final boolean verbose;
+
+    private DatagramSocket socket;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private InetAddress clientAddress;
+    private int clientPort;
+    private float[] angles;
+
+    /**
+     * Constructs a new SimServer.
+     *
+     * @param track       The track to race on.
+     * @param port        The UDP port to listen on.
+     * @param maxEpisodes The number of episodes before shutting down, or 0 for no limit.
+     * @param maxTicks    The number of ticks before restarting an episode, or 0 for no limit.
+     * @param verbose     Whether to print the episodes.
+     */
+    public SimServer(Track track, int port, int maxEpisodes, int maxTicks, boolean verbose) {
+        this.track = track;
+        this.car = new Car(track);
+        this.maxEpisodes = maxEpisodes;
+        this.maxTicks = maxTicks;
+        this.verbose = verbose;
+        try {
+            this.socket = new DatagramSocket(port);
+        } catch (IOException e) {
+            System.out.println("ERROR!!! -> Could not listen on port " + port);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Runs the races until the last episode ends.
+     */
+    public void run() {
+        if (this.socket == null)
+            return;
+        System.out.println("Waiting for a client on port " + this.socket.getLocalPort() + " (" + this.track.getName()
+                + ", " + String.format("%.0f", this.track.getLength()) + " m)");
+        int episode = 0;
+        while (this.maxEpisodes == 0 || episode < this.maxEpisodes) {
+            String message = this.receive(0);
+            if (message == null || message.indexOf("(init") < 0)
+                continue;
+            this.angles = parseAngles(message);
+            this.send("***identified***");
+
+            this.car.reset();
+            long start = System.nanoTime();
+            int ticks = this.race();
+            episode++;
+            boolean last = this.maxEpisodes != 0 && episode >= this.maxEpisodes;
+            this.send(last ? "***shutdown***" : "***restart***");
+            if (this.verbose)
+                System.out.println("Episode " + episode + ": " + ticks + " ticks, "
+                        + String.format("%.1f", this.car.getDistanceRaced()) + " m raced, "
+                        + String.format("%.0f", ticks / ((System.nanoTime() - start) / 1e9)) + " ticks/s");
+        }
+        this.socket.close();
+        System.out.println("Server shutdown.");
+    }
+
+    /**
+     * Drives one episode: sends the sensors and applies the answered action until the client asks for a restart,
+     * the tick limit is reached or the client stops answering.
+     *
+     * @return The number of ticks simulated.
+     */
+    private int race() {
+        int ticks = 0;
+        this.sendSensors();
+        while (this.maxTicks == 0 || ticks < this.maxTicks) {
+            String message = this.receive(CLIENT_TIMEOUT);
+            if (message == null) {
+                System.out.println("Client did not respond within the timeout");
+                break;
+            }
+            if (message.indexOf("(init") >= 0) {
+                // The client missed the identification answer and is still identifying
+                this.send("***identified***");
+                this.sendSensors();
+                continue;
+            }
+            Action action = Action.parse(message);
+            if (action.restartRace)
+                break;
+            this.car.step(action, TICK);
+            ticks++;
+            this.sendSensors();
+        }
+        return ticks;
+    }
+
+    /**
+     * Sends the current sensor readings to the client.
+     */
+    private void sendSensors() {
+        this.car.sense(this.frame, this.angles);
+        this.send(format(this.frame));
+    }
+
+    /**
+     * Formats a sensor frame as a TORCS sensor message.
+     *
+     * @param frame The frame.
+     *
+     * @return The message.
+     */
+    public static String format(SensorFrame frame) {
+        StringBuilder message = new StringBuilder(BUFFER_SIZE);
+        append(message, "angle", frame.angleToTrackAxis);
+        append(message, "curLapTime", frame.currentLapTime);
+        append(message, "damage", frame.damage);
+        append(message, "distFromStart", frame.distanceFromStartLine);
+        append(message, "distRaced", frame.distanceRaced);
+        append(message, "focus", frame.focusSensors);
+        append(message, "fuel", frame.fuelLevel);
+        append(message, "gear", frame.gear);
+        append(message, "lastLapTime", frame.lastLapTime);
+        append(message, "opponents", frame.opponentSensors);
+        append(message, "racePos", frame.racePosition);
+        append(message, "rpm", frame.rpm);
+        append(message, "speedX", frame.speed);
+        append(message, "speedY", frame.lateralSpeed);
+        append(message, "speedZ", frame.zSpeed);
+        append(message, "track", frame.trackEdgeSensors);
+        append(message, "trackPos", frame.trackPosition);
+        append(message, "wheelSpinVel", frame.wheelSpinVelocity);
+        append(message, "z", frame.z);
+        return message.toString();
+    }
+
+    /**
+     * Appends a single-valued reading to a message.
+     *
+     * @param message The message.
+     * @param name    The name of the reading.
+     * @param value   The value.
+     */
+    private static void append(StringBuilder message, String name, double value) {
+        message.append('(').append(name).append(' ').append((float) value).append(')');
+    }
+
+    /**
+     * Appends a multi-valued reading to a message.
+     *
+     * @param message The message.
+     * @param name    The name of the reading.
+     * @param values  The values.
+     */
+    private static void append(StringBuilder message, String name, double[] values) {
+        message.append('(').append(name);
+        for (double value : values)
+            message.append(' ').append((float) value);
+        message.append(')');
+    }
+
+    /**
+     * Reads the rangefinder angles from an identification message such as {@code championship2011(init -90 ... 90)}.
+     *
+     * @param message The identification message.
+     *
+     * @return The angles in degrees.
+     */
+    static float[] parseAngles(String message) {
+        String list = message.substring(message.indexOf("(init") + 5);
+        int end = list.indexOf(')');
+        if (end >= 0)
+            list = list.substring(0, end);
+        StringTokenizer st = new StringTokenizer(list, " ");
+        float[] angles = new float[Math.min(st.countTokens(), SensorFrame.TRACK_SENSORS)];
+        for (int i = 0; i < angles.length; i++)
+            angles[i] = Float.parseFloat(st.nextToken());
+        return angles;
+    }
+
+    /**
+     * Receives a datagram and remembers the client that sent it.
+     *
+     * @param timeout The timeout in milliseconds, or 0 to wait forever.
+     *
+     * @return The received message, or null if the timeout expired.
+     */
+    private String receive(int timeout) {
+        try {
+            this.socket.setSoTimeout(timeout);
+            DatagramPacket packet = new DatagramPacket(this.buffer, this.buffer.length);
+            this.socket.receive(packet);
+            this.clientAddress = packet.getAddress();
+            this.clientPort = packet.getPort();
+            return new String(packet.getData(), 0, packet.getLength());
+        } catch (SocketTimeoutException e) {
+            return null;
+        } catch (IOException e) {
+            System.out.println("ERROR!!! -> Could not receive from the client...");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Sends a message to the last client heard from.
+     *
+     * @param message The message.
+     */
+    private void send(String message) {
+        byte[] bytes = message.getBytes();
+        try {
+            this.socket.send(new DatagramPacket(bytes, bytes.length, this.clientAddress, this.clientPort));
+        } catch (IOException e) {
+            System.out.println("ERROR!!! -> Could not send to the client...");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Starts the server.
+     *
+     * @param args Optional {@code name:value} options.
+     */
+    public static void main(String[] args) {
+        int port = 3001;
+        int maxEpisodes = 1;
+        int maxTicks = 0;
+        String trackName = "oval";
+        boolean verbose = false;
+        for (String arg : args) {
+            StringTokenizer st = new StringTokenizer(arg, ":");
+            String entity = st.nextToken();
+            String value = st.nextToken();
+            if (entity.equals("port"))
+                port = Integer.parseInt(value);
+            if (entity.equals("maxEpisodes"))
+                maxEpisodes = Integer.parseInt(value);
+            if (entity.equals("maxTicks"))
+                maxTicks = Integer.parseInt(value);
+            if (entity.equals("trackName"))
+                trackName = value;
+            if (entity.equals("verbose"))
+                verbose = value.equals("on");
+        }
+        Track track = TrackFile.forName(trackName);
+        if (track == null)
+            return;
+        new SimServer(track, port, maxEpisodes, maxTicks, verbose).run();
+    }
+}
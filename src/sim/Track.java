@@ -0,0 +1,576 @@
+package sim;
+
+import java.util.Arrays;
+
+/**
+ * The Track class describes a closed circuit as a centerline sampled at a fixed step, with the width of the track at
+ * every sample. It projects car positions onto the centerline (distance from the start line, lateral offset and
+ * heading of the track axis) and measures the distance to the track edges along a ray, as the rangefinders do.
+ *
+ * <p>The heading and the curvature of the track axis are tabulated at every sample, so they can be looked up by
+ * distance from the start line in constant time, for instance to know the curvature 100 m ahead of a car.</p>
+ *
+ * <p>Headings are measured counter-clockwise from the x axis, and lateral offsets are positive to the left of the
+ * driving direction, as the TORCS {@code trackPos} sensor.</p>
+ */
+public class Track {
+
+    public static final double MAX_RANGE = 200.0;
+
+    private static final double CELL_SIZE = 8.0;
+    private static final double CURVATURE_BASELINE = 5.0;
+
+    private final String name;
+    private final double step;
+    private final int samples;
+    private final double[] x;
+    private final double[] y;
+    private final double[] heading;
+    private final double[] curvature;
+    private final double[] widths;
+
+    // Edges as closed polylines, left edge first and right edge second
+    private final double[] edgeX;
+    private final double[] edgeY;
+
+    // Uniform grid over the edge segments: the segments of cell c are cellSegments[cellStart[c]..cellStart[c+1])
+    private double gridX;
+    private double gridY;
+    private int columns;
+    private int rows;
+    private int[] cellStart;
+    private int[] cellSegments;
+
+    /**
+     * Constructs a Track from centerline samples taken every {@code step} meters. The curvature is derived from the
+     * headings over a baseline of a few meters on both sides of every sample.
+     *
+     * @param name    The name of the track.
+     * @param step    The distance between two samples in meters.
+     * @param x       The x coordinates of the samples.
+     * @param y       The y coordinates of the samples.
+     * @param heading The heading of the track axis at every sample, in radians.
+     * @param widths  The width of the track at every sample, in meters.
+     */
+    public Track(String name, double step, double[] x, double[] y, double[] heading, double[] widths) {
+        this.name = name;
+        this.step = step;
+        this.samples = x.length;
+        this.x = x;
+        this.y = y;
+        this.heading = heading;
+        this.widths = widths;
+
+        this.curvature = new double[this.samples];
+        int baseline = Math.max(1, (int) Math.round(CURVATURE_BASELINE / step));
+        for (int i = 0; i < this.samples; i++) {
+            double turn = heading[Math.floorMod(i + baseline, this.samples)]
+                    - heading[Math.floorMod(i - baseline, this.samples)];
+            this.curvature[i] = BatchSimulator.normalize(turn) / (2 * baseline * step);
+        }
+
+        this.edgeX = new double[2 * this.samples];
+        this.edgeY = new double[2 * this.samples];
+        for (int i = 0; i < this.samples; i++) {
+            double half = widths[i] / 2;
+            double nx = -Math.sin(heading[i]);
+            double ny = Math.cos(heading[i]);
+            this.edgeX[i] = x[i] + nx * half;
+            this.edgeY[i] = y[i] + ny * half;
+            this.edgeX[this.samples + i] = x[i] - nx * half;
+            this.edgeY[this.samples + i] = y[i] - ny * half;
+        }
+        this.buildGrid();
+    }
+
+    /**
+     * Builds the uniform grid over the edge segments. Every segment is listed in all the cells its bounding box
+     * overlaps.
+     */
+    private void buildGrid() {
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < this.edgeX.length; i++) {
+            minX = Math.min(minX, this.edgeX[i]);
+            minY = Math.min(minY, this.edgeY[i]);
+            maxX = Math.max(maxX, this.edgeX[i]);
+            maxY = Math.max(maxY, this.edgeY[i]);
+        }
+        this.gridX = minX - CELL_SIZE;
+        this.gridY = minY - CELL_SIZE;
+        this.columns = (int) ((maxX - this.gridX) / CELL_SIZE) + 2;
+        this.rows = (int) ((maxY - this.gridY) / CELL_SIZE) + 2;
+
+        // Count the segments of every cell, then fill them in a second pass
+        int segments = this.edgeX.length;
+        this.cellStart = new int[this.columns * this.rows + 1];
+        for (int pass = 0; pass < 2; pass++) {
+            int[] fill = pass == 0 ? null : this.cellStart.clone();
+            for (int k = 0; k < segments; k++) {
+                int j = this.nextEdgePoint(k);
+                int x0 = this.column(Math.min(this.edgeX[k], this.edgeX[j]));
+                int x1 = this.column(Math.max(this.edgeX[k], this.edgeX[j]));
+                int y0 = this.row(Math.min(this.edgeY[k], this.edgeY[j]));
+                int y1 = this.row(Math.max(this.edgeY[k], this.edgeY[j]));
+                for (int cy = y0; cy <= y1; cy++) {
+                    for (int cx = x0; cx <= x1; cx++) {
+                        int cell = cy * this.columns + cx;
+                        if (pass == 0)
+                            this.cellStart[cell + 1]++;
+                        else
+                            this.cellSegments[fill[cell]++] = k;
+                    }
+                }
+            }
+            if (pass == 0) {
+                for (int c = 0; c < this.columns * this.rows; c++)
+                    this.cellStart[c + 1] += this.cellStart[c];
+                this.cellSegments = new int[this.cellStart[this.columns * this.rows]];
+            }
+        }
+    }
+
+    /**
+     * Returns the edge point that ends the segment starting at an edge point, closing each edge into a loop.
+     *
+     * @param k The index of the edge point.
+     *
+     * @return The index of the next edge point of the same edge.
+     */
+    private int nextEdgePoint(int k) {
+        return (k + 1) % this.samples == 0 ? k + 1 - this.samples : k + 1;
+    }
+
+    /**
+     * Returns the grid column of an x coordinate.
+     *
+     * @param px The x coordinate.
+     *
+     * @return The column.
+     */
+    private int column(double px) {
+        return (int) Math.floor((px - this.gridX) / CELL_SIZE);
+    }
+
+    /**
+     * Returns the grid row of a y coordinate.
+     *
+     * @param py The y coordinate.
+     *
+     * @return The row.
+     */
+    private int row(double py) {
+        return (int) Math.floor((py - this.gridY) / CELL_SIZE);
+    }
+
+    /**
+     * Builds a Track from a list of segments. Every segment is either {@code straight <length>} or
+     * {@code curve <radius> <degrees>}, with positive degrees turning left. Segments are separated by {@code ;}.
+     * The segments should close the loop; any remaining gap is closed by the last sample.
+     *
+     * @param name     The name of the track.
+     * @param width    The width of the track in meters.
+     * @param step     The distance between two samples in meters.
+     * @param segments The segment list.
+     *
+     * @return The track.
+     */
+    public static Track fromSegments(String name, double width, double step, String segments) {
+        String[] parts = segments.trim().split("\\s*;\\s*");
+        double length = 0;
+        for (String part : parts) {
+            String[] tokens = part.trim().split("\\s+");
+            if (tokens[0].equals("straight"))
+                length += Double.parseDouble(tokens[1]);
+            else
+                length += Double.parseDouble(tokens[1]) * Math.toRadians(Math.abs(Double.parseDouble(tokens[2])));
+        }
+
+        int n = (int) Math.round(length / step);
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        double[] hs = new double[n];
+        double px = 0;
+        double py = 0;
+        double h = 0;
+        int i = 0;
+        for (String part : parts) {
+            String[] tokens = part.trim().split("\\s+");
+            double segmentLength;
+            double curvature;
+            if (tokens[0].equals("straight")) {
+                segmentLength = Double.parseDouble(tokens[1]);
+                curvature = 0;
+            } else {
+                double radius = Double.parseDouble(tokens[1]);
+                double degrees = Double.parseDouble(tokens[2]);
+                segmentLength = radius * Math.toRadians(Math.abs(degrees));
+                curvature = Math.signum(degrees) / radius;
+            }
+            int steps = (int) Math.round(segmentLength / step);
+            for (int k = 0; k < steps && i < n; k++, i++) {
+                xs[i] = px;
+                ys[i] = py;
+                hs[i] = h;
+                px += Math.cos(h + curvature * step / 2) * step;
+                py += Math.sin(h + curvature * step / 2) * step;
+                h += curvature * step;
+            }
+        }
+        for (; i < n; i++) {
+            xs[i] = px;
+            ys[i] = py;
+            hs[i] = h;
+        }
+        double[] ws = new double[n];
+        Arrays.fill(ws, width);
+        return new Track(name, step, xs, ys, hs, ws);
+    }
+
+    /**
+     * Builds the default track: an oval with two long straights and two hairpins.
+     *
+     * @return The track.
+     */
+    public static Track oval() {
+        return fromSegments("oval", 12.0, 1.0,
+                "straight 600; curve 120 90; straight 150; curve 120 90; straight 600; curve 120 90; "
+                        + "straight 150; curve 120 90");
+    }
+
+    /**
+     * Finds the centerline sample closest to a point, searching around a hint first.
+     *
+     * @param px   The x coordinate of the point.
+     * @param py   The y coordinate of the point.
+     * @param hint The sample found for the previous position, or -1 to search the whole track.
+     *
+     * @return The index of the closest sample.
+     */
+    public int nearestSample(double px, double py, int hint) {
+        if (hint >= 0) {
+            int window = (int) Math.ceil(50.0 / this.step);
+            int best = hint;
+            double bestDistance = Double.MAX_VALUE;
+            for (int k = -window; k <= window; k++) {
+                int i = Math.floorMod(hint + k, this.samples);
+                double dx = px - this.x[i];
+                double dy = py - this.y[i];
+                double distance = dx * dx + dy * dy;
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = i;
+                }
+            }
+            if (bestDistance < this.widths[best] * this.widths[best] * 4)
+                return best;
+        }
+        int best = 0;
+        double bestDistance = Double.MAX_VALUE;
+        for (int i = 0; i < this.samples; i++) {
+            double dx = px - this.x[i];
+            double dy = py - this.y[i];
+            double distance = dx * dx + dy * dy;
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the distance from the start line of a point, given its closest sample.
+     *
+     * @param px     The x coordinate of the point.
+     * @param py     The y coordinate of the point.
+     * @param sample The closest sample.
+     *
+     * @return The distance along the centerline in meters, in {@code [0, length)}.
+     */
+    public double distanceFromStart(double px, double py, int sample) {
+        double along = (px - this.x[sample]) * Math.cos(this.heading[sample])
+                + (py - this.y[sample]) * Math.sin(this.heading[sample]);
+        double s = sample * this.step + along;
+        double length = this.getLength();
+        return ((s % length) + length) % length;
+    }
+
+    /**
+     * Returns the lateral offset of a point from the centerline, given its closest sample.
+     *
+     * @param px     The x coordinate of the point.
+     * @param py     The y coordinate of the point.
+     * @param sample The closest sample.
+     *
+     * @return The offset in meters, positive to the left.
+     */
+    public double lateralOffset(double px, double py, int sample) {
+        return -(px - this.x[sample]) * Math.sin(this.heading[sample])
+                + (py - this.y[sample]) * Math.cos(this.heading[sample]);
+    }
+
+    /**
+     * Measures the distance from a point to the track edges along a ray. The ray walks the grid cell by cell and only
+     * tests the segments of the cells it crosses, stopping at the first cell that contains a hit.
+     *
+     * @param px    The x coordinate of the origin.
+     * @param py    The y coordinate of the origin.
+     * @param angle The direction of the ray, in radians counter-clockwise from the x axis.
+     *
+     * @return The distance to the first edge hit, or {@link #MAX_RANGE} if none is closer.
+     */
+    public double castRay(double px, double py, double angle) {
+        double dx = Math.cos(angle);
+        double dy = Math.sin(angle);
+        int cx = this.column(px);
+        int cy = this.row(py);
+        if (cx < 0 || cy < 0 || cx >= this.columns || cy >= this.rows)
+            return this.castRayBruteForce(px, py, angle);
+
+        int stepX = dx > 0 ? 1 : -1;
+        int stepY = dy > 0 ? 1 : -1;
+        double deltaX = dx != 0 ? CELL_SIZE / Math.abs(dx) : Double.MAX_VALUE;
+        double deltaY = dy != 0 ? CELL_SIZE / Math.abs(dy) : Double.MAX_VALUE;
+        double nextX = dx != 0 ? (this.gridX + (cx + (dx > 0 ? 1 : 0)) * CELL_SIZE - px) / dx : Double.MAX_VALUE;
+        double nextY = dy != 0 ? (this.gridY + (cy + (dy > 0 ? 1 : 0)) * CELL_SIZE - py) / dy : Double.MAX_VALUE;
+
+        double best = MAX_RANGE;
+        while (true) {
+            int cell = cy * this.columns + cx;
+            for (int c = this.cellStart[cell]; c < this.cellStart[cell + 1]; c++) {
+                int k = this.cellSegments[c];
+                double hit = this.intersect(px, py, dx, dy, k, this.nextEdgePoint(k));
+                if (hit < best)
+                    best = hit;
+            }
+            double exit = Math.min(nextX, nextY);
+            if (best <= exit || exit >= MAX_RANGE)
+                return best;
+            if (nextX < nextY) {
+                cx += stepX;
+                nextX += deltaX;
+            } else {
+                cy += stepY;
+                nextY += deltaY;
+            }
+            if (cx < 0 || cy < 0 || cx >= this.columns || cy >= this.rows)
+                return best;
+        }
+    }
+
+    /**
+     * Measures the distances to the track edges along several rays from the same point, as the rangefinders of a
+     * car do on every tick.
+     *
+     * @param px        The x coordinate of the origin.
+     * @param py        The y coordinate of the origin.
+     * @param heading   The heading of the car, in radians counter-clockwise from the x axis.
+     * @param angles    The angles of the rays in degrees, clockwise from the heading.
+     * @param n         The number of rays to cast.
+     * @param distances The array that receives the distances.
+     */
+    public void castRays(double px, double py, double heading, float[] angles, int n, double[] distances) {
+        for (int i = 0; i < n; i++)
+            distances[i] = this.castRay(px, py, heading - Math.toRadians(angles[i]));
+    }
+
+    /**
+     * Measures the distance from a point to the track edges along a ray by testing every edge segment. This is the
+     * reference the grid is checked against.
+     *
+     * @param px    The x coordinate of the origin.
+     * @param py    The y coordinate of the origin.
+     * @param angle The direction of the ray, in radians counter-clockwise from the x axis.
+     *
+     * @return The distance to the first edge hit, or {@link #MAX_RANGE} if none is closer.
+     */
+    public double castRayBruteForce(double px, double py, double angle) {
+        double dx = Math.cos(angle);
+        double dy = Math.sin(angle);
+        double best = MAX_RANGE;
+        for (int k = 0; k < this.edgeX.length; k++) {
+            double hit = this.intersect(px, py, dx, dy, k, this.nextEdgePoint(k));
+            if (hit < best)
+                best = hit;
+        }
+        return best;
+    }
+
+    /**
+     * Intersects a ray with an edge segment.
+     *
+     * @param px The x coordinate of the origin of the ray.
+     * @param py The y coordinate of the origin of the ray.
+     * @param dx The x component of the unit direction of the ray.
+     * @param dy The y component of the unit direction of the ray.
+     * @param a  The index of the first end of the segment.
+     * @param b  The index of the second end of the segment.
+     *
+     * @return The distance along the ray to the segment, or {@link Double#MAX_VALUE} if they do not meet.
+     */
+    double intersect(double px, double py, double dx, double dy, int a, int b) {
+        double ex = this.edgeX[b] - this.edgeX[a];
+        double ey = this.edgeY[b] - this.edgeY[a];
+        double denominator = dx * ey - dy * ex;
+        if (Math.abs(denominator) < 1e-12)
+            return Double.MAX_VALUE;
+        double qx = this.edgeX[a] - px;
+        double qy = this.edgeY[a] - py;
+        double t = (qx * ey - qy * ex) / denominator;
+        double u = (qx * dy - qy * dx) / denominator;
+        if (t < 0 || u < 0 || u > 1)
+            return Double.MAX_VALUE;
+        return t;
+    }
+
+    /**
+     * Returns the name of the track.
+     *
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the width of the track at a centerline sample.
+     *
+     * @param i The index of the sample.
+     *
+     * @return The width in meters.
+     */
+    public double getWidth(int i) {
+        return this.widths[i];
+    }
+
+    /**
+     * Returns the position across the track of a point, given its closest sample.
+     *
+     * @param px     The x coordinate of the point.
+     * @param py     The y coordinate of the point.
+     * @param sample The closest sample.
+     *
+     * @return The position, 0 on the centerline, 1 on the left edge and -1 on the right edge.
+     */
+    public double trackPosition(double px, double py, int sample) {
+        return this.lateralOffset(px, py, sample) / (this.widths[sample] / 2);
+    }
+
+    /**
+     * Returns the centerline sample at a distance from the start line, in constant time.
+     *
+     * @param distance The distance in meters, which may be negative or larger than the length of the track.
+     *
+     * @return The index of the sample.
+     */
+    public int sampleAt(double distance) {
+        return Math.floorMod((long) Math.floor(distance / this.step), this.samples);
+    }
+
+    /**
+     * Returns the curvature of the track axis at a distance from the start line, in constant time.
+     *
+     * @param distance The distance in meters, which may be negative or larger than the length of the track.
+     *
+     * @return The curvature in 1/m, positive for left turns.
+     */
+    public double getCurvatureAt(double distance) {
+        return this.curvature[this.sampleAt(distance)];
+    }
+
+    /**
+     * Returns the heading of the track axis at a distance from the start line, in constant time.
+     *
+     * @param distance The distance in meters, which may be negative or larger than the length of the track.
+     *
+     * @return The heading in radians.
+     */
+    public double getHeadingAt(double distance) {
+        return this.heading[this.sampleAt(distance)];
+    }
+
+    /**
+     * Returns the width of the track at a distance from the start line, in constant time.
+     *
+     * @param distance The distance in meters, which may be negative or larger than the length of the track.
+     *
+     * @return The width in meters.
+     */
+    public double getWidthAt(double distance) {
+        return this.widths[this.sampleAt(distance)];
+    }
+
+    /**
+     * Returns the length of the centerline.
+     *
+     * @return The length in meters.
+     */
+    public double getLength() {
+        return this.samples * this.step;
+    }
+
+    /**
+     * Returns the number of centerline samples.
+     *
+     * @return The number of samples.
+     */
+    public int getSamples() {
+        return samples;
+    }
+
+    /**
+     * Returns the x coordinate of a centerline sample.
+     *
+     * @param i The index of the sample.
+     *
+     * @return The x coordinate.
+     */
+    public double getX(int i) {
+        return this.x[i];
+    }
+
+    /**
+     * Returns the y coordinate of a centerline sample.
+     *
+     * @param i The index of the sample.
+     *
+     * @return The y coordinate.
+     */
+    public double getY(int i) {
+        return this.y[i];
+    }
+
+    /**
+     * Returns the heading of the track axis at a centerline sample.
+     *
+     * @param i The index of the sample.
+     *
+     * @return The heading in radians.
+     */
+    public double getHeading(int i) {
+        return this.heading[i];
+    }
+
+    /**
+     * Returns the curvature of the track axis at a centerline sample.
+     *
+     * @param i The index of the sample.
+     *
+     * @return The curvature in 1/m, positive for left turns.
+     */
+    public double getCurvature(int i) {
+        return this.curvature[i];
+    }
+
+    /**
+     * Returns the distance between two centerline samples.
+     *
+     * @return The distance in meters.
+     */
+    public double getStep() {
+        return step;
+    }
+}
@@ -0,0 +1,98 @@
+package sim;
+
+import torcs.TrackAnalysis;
+
+import java.util.Random;
+import java.util.StringTokenizer;
+
+/**
+ * The TrackAnalysisBenchmark class measures the throughput of {@link TrackAnalysis} on rangefinder readings cast from
+ * random positions on a track, and checks how often the sign of its curvature estimate matches the curvature of the
+ * track where the car is in a turn.
+ *
+ * <p>Usage: {@code java sim.TrackAnalysisBenchmark [positions:N] [passes:N] [seed:N] [trackName:T]}. The track is
+ * loaded with {@link TrackFile#forName(String)}.</p>
+ */
+public class TrackAnalysisBenchmark {
+
+    private static final int REPEATS = 20;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optional {@code name:value} options.
+     */
+    public static void main(String[] args) {
+        int positions = 20000;
+        int passes = 5;
+        long seed = 42;
+        String trackName = "oval";
+        for (String arg : args) {
+            StringTokenizer st = new StringTokenizer(arg, ":");
+            String entity = st.nextToken();
+            String value = st.nextToken();
+            if (entity.equals("positions"))
+                positions = Integer.parseInt(value);
+            if (entity.equals("passes"))
+                passes = Integer.parseInt(value);
+            if (entity.equals("seed"))
+                seed = Long.parseLong(value);
+            if (entity.equals("trackName"))
+                trackName = value;
+        }
+
+        Track track = TrackFile.forName(trackName);
+        if (track == null)
+            return;
+        float[] angles = TrackAnalysis.defaultAngles();
+        // The focus sensors every degree around straight ahead
+        float[] focusAngles = new float[5];
+        for (int i = 0; i < focusAngles.length; i++)
+            focusAngles[i] = i - 2;
+
+        // Readings from random positions across the track, aligned with it
+        Random random = new Random(seed);
+        double[][] readings = new double[positions][angles.length];
+        double[][] focus = new double[positions][focusAngles.length];
+        double[] curvatures = new double[positions];
+        for (int p = 0; p < positions; p++) {
+            int sample = random.nextInt(track.getSamples());
+            double heading = track.getHeading(sample);
+            double lateral = (random.nextDouble() * 2 - 1) * track.getWidth(sample) / 4;
+            double x = track.getX(sample) - Math.sin(heading) * lateral;
+            double y = track.getY(sample) + Math.cos(heading) * lateral;
+            track.castRays(x, y, heading, angles, angles.length, readings[p]);
+            track.castRays(x, y, heading, focusAngles, focusAngles.length, focus[p]);
+            curvatures[p] = track.getCurvature(sample);
+        }
+
+        TrackAnalysis analysis = new TrackAnalysis(angles);
+        int turns = 0;
+        int agreeing = 0;
+        for (int p = 0; p < positions; p++) {
+            analysis.analyze(readings[p], focus[p]);
+            double estimate = analysis.getCurvature();
+            if (curvatures[p] != 0 && !Double.isNaN(estimate) && estimate != 0) {
+                turns++;
+                if (Math.signum(estimate) == Math.signum(curvatures[p]))
+                    agreeing++;
+            }
+        }
+        System.out.println(String.format("Curvature sign matches the track in %d of %d readings in turns",
+                agreeing, turns));
+
+        for (int pass = 1; pass <= passes; pass++) {
+            double checksum = 0;
+            long start = System.nanoTime();
+            for (int r = 0; r < REPEATS; r++) {
+                for (int p = 0; p < positions; p++) {
+                    analysis.analyze(readings[p], focus[p]);
+                    checksum += analysis.getAsymmetry() + analysis.getLongestRay();
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.println(String.format("Pass %d: %.0f analyses/s, %.1f ns each (checksum %.1f)", pass,
+                    positions * REPEATS / seconds, seconds * 1e9 / (positions * REPEATS), checksum));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package sim;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Scanner;
+
+import static torcs.Constants.*;
+
+/**
+ * The TrackFile class reads and writes track descriptions as .csv files. A file starts with a {@code NAME} line and
+ * a {@code X,Y,WIDTH} header, followed by the centerline samples of the closed circuit in driving order, starting at
+ * the start line, with the width of the track at each of them. The samples may have any spacing.
+ *
+ * <p>When a file is loaded, the centerline is resampled by arc length at a fixed resolution and the heading and
+ * curvature tables of the {@link Track} are computed from it, so every lookup by distance from the start line is a
+ * single array access.</p>
+ */
+public class TrackFile {
+
+    /**
+     * Loads a track from a .csv file, resampled at {@link torcs.Constants#TRACK_RESOLUTION}.
+     *
+     * @param filePath The file path.
+     *
+     * @return The track, or null if the file could not be read.
+     */
+    public static Track load(String filePath) {
+        return load(filePath, TRACK_RESOLUTION);
+    }
+
+    /**
+     * Loads a track from a .csv file.
+     *
+     * @param filePath   The file path.
+     * @param resolution The distance between two samples of the loaded track, in meters.
+     *
+     * @return The track, or null if the file could not be read.
+     */
+    public static Track load(String filePath, double resolution) {
+        String name = new File(filePath).getName();
+        double[] xs = new double[1024];
+        double[] ys = new double[1024];
+        double[] ws = new double[1024];
+        int m = 0;
+        try (Scanner file = new Scanner(new File(filePath))) {
+            while (file.hasNextLine()) {
+                String[] row = file.nextLine().trim().split(SEPARATOR);
+                if (row[0].isEmpty() || row[0].equals("X"))
+                    continue;
+                if (row[0].equals("NAME")) {
+                    name = row[1];
+                    continue;
+                }
+                if (m == xs.length) {
+                    xs = Arrays.copyOf(xs, m * 2);
+                    ys = Arrays.copyOf(ys, m * 2);
+                    ws = Arrays.copyOf(ws, m * 2);
+                }
+                xs[m] = Double.parseDouble(row[0]);
+                ys[m] = Double.parseDouble(row[1]);
+                ws[m] = Double.parseDouble(row[2]);
+                m++;
+            }
+        } catch (FileNotFoundException | RuntimeException e) {
+            System.out.println("ERROR!!! -> Could not load track from .csv file...");
+            e.printStackTrace();
+            return null;
+        }
+        if (m < 3) {
+            System.out.println("ERROR!!! -> " + filePath + " has too few centerline samples");
+            return null;
+        }
+        return resample(name, xs, ys, ws, m, resolution);
+    }
+
+    /**
+     * Resamples a closed centerline by arc length and computes the headings of the new samples.
+     *
+     * @param name       The name of the track.
+     * @param xs         The x coordinates of the raw samples.
+     * @param ys         The y coordinates of the raw samples.
+     * @param ws         The widths at the raw samples.
+     * @param m          The number of raw samples.
+     * @param resolution The distance between two new samples, in meters.
+     *
+     * @return The track.
+     */
+    static Track resample(String name, double[] xs, double[] ys, double[] ws, int m, double resolution) {
+        // Arc length at every raw sample, the last entry closing the loop
+        double[] arc = new double[m + 1];
+        for (int k = 0; k < m; k++) {
+            int next = (k + 1) % m;
+            arc[k + 1] = arc[k] + Math.hypot(xs[next] - xs[k], ys[next] - ys[k]);
+        }
+        int n = Math.max(3, (int) Math.round(arc[m] / resolution));
+        double step = arc[m] / n;
+
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double[] width = new double[n];
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            double s = i * step;
+            while (k < m - 1 && arc[k + 1] <= s)
+                k++;
+            int next = (k + 1) % m;
+            double t = arc[k + 1] > arc[k] ? (s - arc[k]) / (arc[k + 1] - arc[k]) : 0;
+            x[i] = xs[k] + (xs[next] - xs[k]) * t;
+            y[i] = ys[k] + (ys[next] - ys[k]) * t;
+            width[i] = ws[k] + (ws[next] - ws[k]) * t;
+        }
+
+        double[] heading = new double[n];
+        for (int i = 0; i < n; i++) {
+            int before = (i + n - 1) % n;
+            int after = (i + 1) % n;
+            heading[i] = Math.atan2(y[after] - y[before], x[after] - x[before]);
+        }
+        return new Track(name, step, x, y, heading, width);
+    }
+
+    /**
+     * Writes a track to a .csv file, keeping one of every {@code stride} samples.
+     *
+     * @param filePath The file path.
+     * @param track    The track.
+     * @param stride   The number of samples between two written ones.
+     */
+    public static void write(String filePath, Track track, int stride) {
+        try (PrintWriter file = new PrintWriter(filePath)) {
+            file.write("NAME" + SEPARATOR + track.getName() + "\n");
+            file.write("X" + SEPARATOR + "Y" + SEPARATOR + "WIDTH\n");
+            for (int i = 0; i < track.getSamples(); i += Math.max(1, stride)) {
+                file.write(track.getX(i) + SEPARATOR + track.getY(i) + SEPARATOR + track.getWidth(i) + "\n");
+            }
+        } catch (FileNotFoundException e) {
+            System.out.println("ERROR!!! -> Could not save track in .csv file...");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns the track of a given name: the file {@code <name>.csv} of {@link torcs.Constants#TRACKS_PATH} if
+     * there is one, or the default oval for the name {@code oval}. Any other name without a readable file is an
+     * error, since the tables learned on the oval would be saved under the name of another track.
+     *
+     * @param trackName The name of the track.
+     *
+     * @return The track, or null if there is no track of that name.
+     */
+    public static Track forName(String trackName) {
+        String filePath = TRACKS_PATH + trackName + ".csv";
+        if (new File(filePath).exists()) {
+            Track track = load(filePath);
+            if (track != null)
+                return track;
+        }
+        if (trackName.equals("oval"))
+            return Track.oval();
+        System.out.println("ERROR!!! -> There is no readable track " + filePath);
+        return null;
+    }
+
+    /**
+     * Writes the default oval to a .csv file, as a starting point for new track files.
+     *
+     * @param args The output file and optionally the number of samples between two written ones.
+     */
+    public static void main(String[] args) {
+        write(args[0], Track.oval(), args.length > 1 ? Integer.parseInt(args[1]) : 5);
+    }
+}
@@ -0,0 +1,248 @@
+package sim;
+
+import torcs.Action;
+import torcs.Client;
+import torcs.Constants;
+import torcs.Controller;
+import torcs.LearningSettings;
+import torcs.PipelineController;
+import torcs.SensorFilter;
+import torcs.SensorModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.StringTokenizer;
+
+/**
+ * The Training class drives a controller against the in-process {@link Environment} in a tight loop, with the same
+ * episode semantics as {@link Client} against the TORCS server: the controller is reset whenever it asks for a
+ * restart or reaches the tick limit. Several learning rates and discount factors can be given, in which case every
+ * combination is trained with a fresh controller, given its own {@link LearningSettings}, and the results are
+ * compared. For a {@link PipelineController} the time taken by every stage is reported too.
+ *
+ * <p>Usage: {@code java sim.Training <controller> [episodes:N] [maxTicks:N] [learningRate:A,B,...]
+ * [discount:A,B,...] [fresh:off] [output:D] [trackName:T] [noise:N] [filter:on] [verbose:on]}. The track is loaded
+ * with {@link TrackFile#forName(String)} and its name is passed to the controller. Every combination starts from
+ * empty Q-tables, or from the saved ones with {@code fresh:off}, and saves its tables, models and statistics to its
+ * own directory under {@code output}, a new temporary directory by default, so the saved tables are never
+ * overwritten. {@code noise:N} adds noise of standard deviation N to the sensors, see
+ * {@link Environment#setNoise(double, long)}, and {@code filter:on} passes the readings through a
+ * {@link SensorFilter} before the controller, as the client does. The controllers are quiet unless
+ * {@code verbose:on} is given.</p>
+ */
+public class Training {
+
+    private final Track track;
+    private final int episodes;
+    private final int maxTicks;
+    private final Controller.Stage stage;
+    private final String trackName;
+    private double noise;
+    private boolean filter;
+    private boolean verbose;
+
+    private long ticks;
+    private double[] distances;
+    private long elapsed;
+    private String timings;
+
+    /**
+     * Constructs a new Training.
+     *
+     * @param track     The track to race on.
+     * @param episodes  The number of episodes to run.
+     * @param maxTicks  The number of ticks before an episode is restarted, or 0 for no limit.
+     * @param stage     The stage of the race passed to the controller.
+     * @param trackName The name of the track passed to the controller.
+     */
+    public Training(Track track, int episodes, int maxTicks, Controller.Stage stage, String trackName) {
+        this.track = track;
+        this.episodes = episodes;
+        this.maxTicks = maxTicks;
+        this.stage = stage;
+        this.trackName = trackName;
+    }
+
+    /**
+     * Sets the noise added to the sensor readings and whether they are filtered before the controller.
+     *
+     * @param noise  The standard deviation of the noise, see {@link Environment#setNoise(double, long)}.
+     * @param filter Whether to pass the readings through a {@link SensorFilter}.
+     */
+    public void setSensors(double noise, boolean filter) {
+        this.noise = noise;
+        this.filter = filter;
+    }
+
+    /**
+     * Sets whether the controller prints its progress, which is kept out of the loop by default.
+     *
+     * @param verbose True to let the controller print on every tick.
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * Runs all the episodes with a fresh controller.
+     *
+     * @param controllerName The class name of the controller.
+     * @param settings       How the controller learns and where it saves.
+     */
+    public void run(String controllerName, LearningSettings settings) {
+        Controller driver = Client.load(controllerName);
+        driver.setQuiet(!this.verbose);
+        driver.setStage(this.stage);
+        driver.setLearningSettings(settings);
+        driver.setTrackName(this.trackName);
+        Environment environment = new Environment(this.track, driver.initAngles());
+        environment.setNoise(this.noise, 42);
+        SensorFilter sensorFilter = this.filter ? new SensorFilter() : null;
+
+        this.ticks = 0;
+        this.distances = new double[this.episodes];
+        Action action = new Action();
+        long start = System.nanoTime();
+        for (int episode = 0; episode < this.episodes; episode++) {
+            SensorModel sensors = environment.reset();
+            if (sensorFilter != null)
+                sensorFilter.reset();
+            while (this.maxTicks == 0 || environment.getTicks() < this.maxTicks) {
+                driver.control(sensorFilter == null ? sensors : sensorFilter.filter(sensors), action);
+                if (action.restartRace)
+                    break;
+                sensors = environment.step(action);
+            }
+            this.ticks += environment.getTicks();
+            this.distances[episode] = environment.getCar().getDistanceRaced();
+            driver.reset();
+        }
+        this.elapsed = System.nanoTime() - start;
+        this.timings = driver instanceof PipelineController ? ((PipelineController) driver).timingReport() : null;
+        driver.shutdown();
+    }
+
+    /**
+     * Returns the mean distance raced in the last quarter of the episodes of the last run, which measures how well
+     * the controller drives once it has trained.
+     *
+     * @return The mean distance in meters.
+     */
+    public double getFinalDistance() {
+        int from = this.episodes - Math.max(1, this.episodes / 4);
+        double sum = 0;
+        for (int i = from; i < this.episodes; i++)
+            sum += this.distances[i];
+        return sum / (this.episodes - from);
+    }
+
+    /**
+     * Builds the report of the last run.
+     *
+     * @return The report.
+     */
+    public String report() {
+        return this.episodes + " episodes, " + this.ticks + " ticks, "
+                + String.format("%.0f", this.ticks / (this.elapsed / 1e9)) + " ticks/s, "
+                + String.format("%.1f", this.getFinalDistance()) + " m raced per episode in the last quarter";
+    }
+
+    /**
+     * Returns the time taken by every stage of the controller of the last run.
+     *
+     * @return The timing report, or null if the controller is not a {@link PipelineController}.
+     */
+    public String getTimings() {
+        return timings;
+    }
+
+    /**
+     * Parses a comma-separated list of numbers.
+     *
+     * @param value The list.
+     *
+     * @return The numbers.
+     */
+    private static double[] parseList(String value) {
+        String[] items = value.split(",");
+        double[] numbers = new double[items.length];
+        for (int i = 0; i < items.length; i++)
+            numbers[i] = Double.parseDouble(items[i]);
+        return numbers;
+    }
+
+    /**
+     * Trains a controller in-process and prints the report of every combination of hyperparameters.
+     *
+     * @param args The controller class name and optional {@code name:value} options.
+     */
+    public static void main(String[] args) {
+        int episodes = 100;
+        int maxTicks = 0;
+        double[] learningRates = {Constants.LEARNING_RATE};
+        double[] discounts = {Constants.DISCOUNT_FACTOR};
+        boolean fresh = true;
+        String output = null;
+        String trackName = "oval";
+        double noise = 0;
+        boolean filter = false;
+        boolean verbose = false;
+        for (int i = 1; i < args.length; i++) {
+            StringTokenizer st = new StringTokenizer(args[i], ":");
+            String entity = st.nextToken();
+            String value = st.nextToken();
+            if (entity.equals("episodes"))
+                episodes = Integer.parseInt(value);
+            if (entity.equals("maxTicks"))
+                maxTicks = Integer.parseInt(value);
+            if (entity.equals("learningRate"))
+                learningRates = parseList(value);
+            if (entity.equals("discount"))
+                discounts = parseList(value);
+            if (entity.equals("fresh"))
+                fresh = value.equals("on");
+            if (entity.equals("output"))
+                output = value;
+            if (entity.equals("trackName"))
+                trackName = value;
+            if (entity.equals("noise"))
+                noise = Double.parseDouble(value);
+            if (entity.equals("filter"))
+                filter = value.equals("on");
+            if (entity.equals("verbose"))
+                verbose = value.equals("on");
+        }
+
+        Track track = TrackFile.forName(trackName);
+        if (track == null)
+            return;
+        if (output == null) {
+            try {
+                output = Files.createTempDirectory("training").toString();
+            } catch (IOException e) {
+                System.out.println("ERROR!!! -> Could not create the output directory...");
+                e.printStackTrace();
+                return;
+            }
+        }
+
+        Training training = new Training(track, episodes, maxTicks, Controller.Stage.UNKNOWN, trackName);
+        training.setSensors(noise, filter);
+        training.setVerbose(verbose);
+        for (double learningRate : learningRates) {
+            for (double discount : discounts) {
+                File directory = new File(output, "learningRate" + learningRate + "_discount" + discount);
+                if (!directory.isDirectory() && !directory.mkdirs()) {
+                    System.out.println("ERROR!!! -> Could not create " + directory);
+                    return;
+                }
+                training.run(args[0], new LearningSettings(learningRate, discount, !fresh, directory.getPath()));
+                System.out.println("learningRate " + learningRate + ", discount " + discount + ": "
+                        + training.report() + " -> " + directory);
+                if (training.getTimings() != null)
+                    System.out.println(training.getTimings());
+            }
+        }
+    }
+}
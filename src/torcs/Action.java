@@ -35,6 +35,64 @@ public class Action {
                 "(focus " + focus + ")";
     }
 
+    /**
+     * Copies all the values of another action into this one.
+     *
+     * @param other The action to copy.
+     */
+    public void copyFrom(Action other) {
+        accelerate = other.accelerate;
+        brake = other.brake;
+        clutch = other.clutch;
+        gear = other.gear;
+        steering = other.steering;
+        restartRace = other.restartRace;
+        focus = other.focus;
+    }
+
+    /**
+     * Sets all the values back to their defaults, so the action can be filled again on the next tick.
+     */
+    public void reset() {
+        accelerate = 0;
+        brake = 0;
+        clutch = 0;
+        gear = 0;
+        steering = 0;
+        restartRace = false;
+        focus = 360;
+    }
+
+    /**
+     * Builds an Action from its string representation, as produced by {@link #toString()}.
+     * Missing values keep their defaults.
+     *
+     * @param message The string representation of the action.
+     *
+     * @return The parsed Action object.
+     */
+    public static Action parse(String message) {
+        MessageParser parser = new MessageParser(message);
+        Action action = new Action();
+        if (parser.getReading("accel") != null)
+            action.accelerate = (Double) parser.getReading("accel");
+        if (parser.getReading("brake") != null)
+            action.brake = (Double) parser.getReading("brake");
+        if (parser.getReading("clutch") != null)
+            action.clutch = (Double) parser.getReading("clutch");
+        if (parser.getReading("gear") != null)
+            action.gear = (int) (double) (Double) parser.getReading("gear");
+        if (parser.getReading("steer") != null)
+            action.steering = (Double) parser.getReading("steer");
+        if (parser.getReading("meta") != null)
+            action.restartRace = (Double) parser.getReading("meta") != 0;
+        // The parser reads focus as a multi-valued sensor, so it comes back as an array
+        Object focus = parser.getReading("focus");
+        if (focus instanceof double[] && ((double[]) focus).length > 0)
+            action.focus = (int) ((double[]) focus)[0];
+        return action;
+    }
+
     /**
      * Limits the values of the action variables to their valid ranges.
      */
@@ -24,6 +24,9 @@ public class Client {
     private static int maxSteps;
     private static Stage stage;
     private static String trackName;
+    private static String logPath;
+    private static String recordPath;
+    private static boolean filter;
 
     /**
      * The main entry point of the client.
@@ -33,6 +36,13 @@ public class Client {
     public static void main(String[] args) {
         parseParameters(args);
         SocketHandler mySocket = new SocketHandler(host, port, verbose);
+        MessageLogWriter log = logPath == null ? null : new MessageLogWriter(logPath);
+        FrameRecorder recorder = recordPath == null ? null
+                : new FrameRecorder(recordPath, Constants.RECORDER_RING_CAPACITY, Constants.RECORDER_REGION_BYTES);
+        SensorFilter sensorFilter = filter ? new SensorFilter() : null;
+        // Reused on every tick, so the loop does not allocate sensor models or actions
+        SensorFrame sensors = new SensorFrame();
+        Action action = new Action();
         String inMsg;
 
         Controller driver = load(args[0]);
@@ -85,20 +95,32 @@ public class Client {
                      * Check if race is restarted
                      */
                     if (inMsg.indexOf("***restart***") >= 0) {
+                        if (log != null)
+                            log.endEpisode();
+                        if (recorder != null)
+                            recorder.endEpisode();
                         driver.reset();
+                        if (sensorFilter != null)
+                            sensorFilter.reset();
                         if (verbose)
                             System.out.println("Server restarting!");
                         break;
                     }
 
-                    Action action = new Action();
+                    sensors.parse(inMsg);
                     if (currStep < maxSteps || maxSteps == 0)
-                        action = driver.control(new MessageBasedSensorModel(inMsg));
-                    else
+                        driver.control(sensorFilter == null ? sensors : sensorFilter.filter(sensors), action);
+                    else {
+                        action.reset();
                         action.restartRace = true;
+                    }
 
                     currStep++;
                     mySocket.send(action.toString());
+                    if (log != null)
+                        log.write(inMsg, action);
+                    if (recorder != null)
+                        recorder.record(sensors, action);
                 } else
                     System.out.println("Server did not respond within the timeout");
             }
@@ -109,6 +131,13 @@ public class Client {
          * Shutdown the controller
          */
         driver.shutdown();
+        if (log != null)
+            log.close();
+        if (recorder != null) {
+            recorder.close();
+            System.out.println("Recorded " + recorder.getWritten() + " frames (" + recorder.getDropped()
+                    + " dropped).");
+        }
         mySocket.close();
         System.out.println("Client shutdown.");
         System.out.println("Bye, bye!");
@@ -132,6 +161,9 @@ public class Client {
         maxSteps = 0;
         stage = Stage.UNKNOWN;
         trackName = "unknown";
+        logPath = null;
+        recordPath = null;
+        filter = false;
 
         for (int i = 1; i
 
@@ -167,6 +199,22 @@ public class Client {
             if (entity.equals("trackName")) {
                 trackName = value;
             }
+            if (entity.equals("log")) {
+                logPath = value;
+            }
+            if (entity.equals("record")) {
+                recordPath = value;
+            }
+            if (entity.equals("filter")) {
+                if (value.equals("on"))
+                    filter = true;
+                else if (value.equals("off"))
+                    filter = false;
+                else {
+                    System.out.println(entity + ":" + value + " is not a valid option");
+                    System.exit(0);
+                }
+            }
             if (entity.equals("maxEpisodes")) {
                 maxEpisodes = Integer.parseInt(value);
                 if (maxEpisodes <= 0) {
@@ -191,7 +239,7 @@ public class Client {
      *
      * @return The loaded controller instance.
      */
-    private static Controller load(String name) {
+    public static Controller load(String name) {
         Controller controller = null;
         try {
             controller = (Controller) (Object) Class.forName(name).newInstance();
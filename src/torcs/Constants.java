@@ -19,14 +19,48 @@ public class Constants {
     public static final double DISCOUNT_FACTOR = 0.85;
     public static final int MAX_EPOCHS = 250;
     public static final int RANGE_EPOCHS = 100;
+    public static final int PLANNING_BACKUPS = 200;
+    public static final double PLANNING_THRESHOLD = 0.01;
+    public static final double SOLVER_TOLERANCE = 1e-6;
+    public static final int SOLVER_MAX_ITERATIONS = 10000;
+    public static final int BATCH_STRIDE = 5;
+    public static final int BATCH_CHUNK_SIZE = 65536;
+    public static final int RECORDER_RING_CAPACITY = 4096;
+    public static final long RECORDER_REGION_BYTES = 64L * 1024 * 1024;
+    public static final double TRACK_RESOLUTION = 1.0;
+    public static final int Q_TABLE_CACHE_SIZE = 8;
+    public static final long Q_TABLE_WATCH_INTERVAL = 500;
+    public static final double TRACK_MAP_BUCKET = 10.0;
+    public static final int TRACK_MAP_BUCKETS = 2000;
+    public static final double TRACK_MAP_SAFE_DISTANCE = 100.0;
+    public static final int OPPONENT_HISTORY = 10;
+    public static final int SENSOR_HISTORY_CAPACITY = 32;
+    public static final double SENSOR_HISTORY_SMOOTHING = 0.2;
+    public static final double SENSOR_FILTER_ALPHA = 0.5;
+    public static final double SENSOR_FILTER_BETA = 0.05;
     public static final String STEER_Q_TABLE_PATH = System.getProperty("user.dir") + "/mdp/resources/QTable_Steer.csv";
     public static final String ACCEL_Q_TABLE_PATH = System.getProperty("user.dir") + "/mdp/resources/QTable_Accel.csv";
     public static final String GEAR_Q_TABLE_PATH = System.getProperty("user.dir") + "/mdp/resources/QTable_Gear.csv";
+    public static final String OPPONENT_Q_TABLE_PATH = System.getProperty("user.dir") + "/mdp/resources/QTable_Opponent.csv";
+    public static final String STEER_MODEL_PATH = System.getProperty("user.dir") + "/mdp/resources/QModel_Steer.csv";
+    public static final String ACCEL_MODEL_PATH = System.getProperty("user.dir") + "/mdp/resources/QModel_Accel.csv";
+    public static final String GEAR_MODEL_PATH = System.getProperty("user.dir") + "/mdp/resources/QModel_Gear.csv";
+    public static final String OPPONENT_MODEL_PATH = System.getProperty("user.dir") + "/mdp/resources/QModel_Opponent.csv";
     public static final String STATISTICS_TRAIN_PATH = System.getProperty("user.dir") + "/mdp/resources/StatisticsTrain.csv";
+    public static final String TRACK_MAP_PATH = System.getProperty("user.dir") + "/mdp/resources/TrackMap_";
+    public static final String TRACKS_PATH = System.getProperty("user.dir") + "/sim/resources/";
     public static final String STATISTICS_TEST_PATH = System.getProperty("user.dir") + "/mdp/resources/StatisticsTest.csv";
 
+    // Powers of ten exactly representable as doubles, and the largest scaled number whose fraction is exact
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+            1e13, 1e14, 1e15};
+    private static final double MAX_SCALED = 0x1p52;
+
     /**
-     * Rounds a number to the specified number of decimal places.
+     * Rounds a number to the specified number of decimal places, half away from zero. The result is the same as
+     * {@link #roundExact(double, int)}, but the usual cases are computed with double arithmetic only: the number is
+     * scaled by a power of ten and rounded, which is exact unless the scaled number is within its rounding error of
+     * a tie. Those cases, and the numbers too large to scale, fall back to {@code BigDecimal}.
      *
      * @param number The number to be rounded.
      * @param dec    The number of decimal places.
@@ -34,6 +68,35 @@ public class Constants {
      * @return The rounded number.
      */
     public static double round(double number, int dec) {
+        if (dec >= 0 && dec < POWERS_OF_TEN.length) {
+            double scale = POWERS_OF_TEN[dec];
+            double scaled = Math.abs(number) * scale;
+            if (scaled < MAX_SCALED) {
+                double whole = Math.floor(scaled);
+                double fraction = scaled - whole;
+                // The product is off by at most half an ulp, so only a fraction that close to a tie is ambiguous
+                if (Math.abs(fraction - 0.5) > Math.ulp(scaled)) {
+                    double rounded = fraction > 0.5 ? whole + 1 : whole;
+                    if (rounded == 0)
+                        return 0.0;
+                    // Both operands are exact, so the division is the double nearest to the decimal result
+                    return number < 0 ? -rounded / scale : rounded / scale;
+                }
+            }
+        }
+        return roundExact(number, dec);
+    }
+
+    /**
+     * Rounds a number to the specified number of decimal places, half away from zero, with {@code BigDecimal}
+     * arithmetic on the exact value of the number.
+     *
+     * @param number The number to be rounded.
+     * @param dec    The number of decimal places.
+     *
+     * @return The rounded number.
+     */
+    public static double roundExact(double number, int dec) {
         BigDecimal bd = new BigDecimal(number);
         bd = bd.setScale(dec, RoundingMode.HALF_UP);
         return bd.doubleValue();
@@ -43,6 +106,6 @@ public class Constants {
      * The ControlSystems enum represents the different control systems in TORCS.
      */
     public enum ControlSystems {
-        STEERING_CONTROL_SYSTEM, ACCELERATION_CONTROL_SYSTEM, GEAR_CONTROL_SYSTEM
+        STEERING_CONTROL_SYSTEM, ACCELERATION_CONTROL_SYSTEM, GEAR_CONTROL_SYSTEM, OPPONENT_CONTROL_SYSTEM
     }
 }
\ No newline at end of file
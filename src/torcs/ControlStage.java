@@ -0,0 +1,108 @@
+package torcs;
+
+/**
+ * The ControlStage class is one step of a {@link PipelineController}: on every tick it reads the sensors and fills in
+ * its part of the action, such as the gear, the steering or the clutch, or ends the tick for the stages after it.
+ *
+ * <p>A stage that has nothing to do on a tick says so in {@link #isActive(SensorModel, Action)}, and the pipeline
+ * skips it without timing it. At the end of an episode the pipeline calls {@link #endEpisode()} on every stage, so
+ * the learners can update and save their tables while the counters of the episode are still there, and then
+ * {@link #reset()} on every stage.</p>
+ */
+public abstract class ControlStage {
+
+    private final String name;
+    private PipelineController controller;
+
+    /**
+     * Constructs a new ControlStage.
+     *
+     * @param name The name of the stage in the timing report.
+     */
+    protected ControlStage(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the name of the stage.
+     *
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the controller that runs the stage.
+     *
+     * @return The controller, or null before the stage is added to one.
+     */
+    public PipelineController getController() {
+        return controller;
+    }
+
+    /**
+     * Sets the controller that runs the stage.
+     *
+     * @param controller The controller.
+     */
+    void setController(PipelineController controller) {
+        this.controller = controller;
+    }
+
+    /**
+     * Checks whether the stage has something to do on this tick.
+     *
+     * @param sensors The sensor readings.
+     * @param action  The action filled in by the stages before.
+     *
+     * @return True if the stage must run, false to skip it.
+     */
+    public boolean isActive(SensorModel sensors, Action action) {
+        return true;
+    }
+
+    /**
+     * Runs the stage on this tick.
+     *
+     * @param sensors The sensor readings.
+     * @param action  The action to fill in.
+     *
+     * @return True if the action is complete and the stages after this one must not run.
+     */
+    public abstract boolean apply(SensorModel sensors, Action action);
+
+    /**
+     * Called at the end of every episode, before any stage is reset.
+     */
+    public void endEpisode() {
+    }
+
+    /**
+     * Resets the state of the stage for a new episode.
+     */
+    public void reset() {
+    }
+
+    /**
+     * Sets the name of the track the car races on.
+     *
+     * @param trackName The name of the track.
+     */
+    public void setTrackName(String trackName) {
+    }
+
+    /**
+     * Sets how the stage learns, if it is a learner.
+     *
+     * @param learningSettings The learning settings.
+     */
+    public void setLearningSettings(LearningSettings learningSettings) {
+    }
+
+    /**
+     * Performs any necessary cleanup when the controller shuts down.
+     */
+    public void shutdown() {
+    }
+}
@@ -13,6 +13,8 @@ public abstract class Controller {
 
     private Stage stage;
     private String trackName;
+    private boolean quiet;
+    private LearningSettings learningSettings = LearningSettings.DEFAULT;
 
     /**
      * Initializes an array of angles for the car's orientation.
@@ -62,6 +64,43 @@ public abstract class Controller {
         this.trackName = trackName;
     }
 
+    /**
+     * Retrieves how the learners of the controller learn.
+     *
+     * @return The learning settings.
+     */
+    public LearningSettings getLearningSettings() {
+        return learningSettings;
+    }
+
+    /**
+     * Sets how the learners of the controller learn. Controllers that do not learn ignore them.
+     *
+     * @param learningSettings The learning settings.
+     */
+    public void setLearningSettings(LearningSettings learningSettings) {
+        this.learningSettings = learningSettings;
+    }
+
+    /**
+     * Checks whether the controller is quiet: a quiet controller does not print its progress on every tick nor the
+     * end of every episode. Errors are printed anyway.
+     *
+     * @return True if the controller is quiet.
+     */
+    public boolean isQuiet() {
+        return quiet;
+    }
+
+    /**
+     * Sets whether the controller is quiet, such as when it runs many episodes in-process for a benchmark.
+     *
+     * @param quiet True to keep the progress of the race out of the standard output.
+     */
+    public void setQuiet(boolean quiet) {
+        this.quiet = quiet;
+    }
+
     /**
      * Controls the car's behavior based on the sensor readings.
      *
@@ -71,6 +110,18 @@ public abstract class Controller {
      */
     public abstract Action control(SensorModel sensors);
 
+    /**
+     * Controls the car's behavior based on the sensor readings, filling in an action owned by the caller, which can
+     * then reuse one action for the whole race. This implementation copies the action returned by
+     * {@link #control(SensorModel)}; controllers that can fill the action in place override it to allocate nothing.
+     *
+     * @param sensors The sensor readings from the car.
+     * @param action  The action to fill in; every value is overwritten.
+     */
+    public void control(SensorModel sensors, Action action) {
+        action.copyFrom(this.control(sensors));
+    }
+
     /**
      * Resets the controller's state at the beginning of each new trial.
      */
@@ -0,0 +1,202 @@
+package torcs;
+
+import static torcs.DrivingInstructor.*;
+
+/**
+ * The DerivedFeatures class holds the quantities that the control systems, their rewards and the
+ * {@link DrivingInstructor} derive from the readings of one tick: the target speed of the turn ahead, the
+ * accel/brake sigmoid, the wheel slip, the direction of the turn, the steering target angle and the
+ * {@link TrackAnalysis} of the whole rangefinder array. Each one is computed the first time it is asked for and
+ * remembered until the readings change, so the state evaluation, the action mapping and the reward of a tick share a
+ * single computation.
+ *
+ * <p>The features of a {@link SensorModel} are obtained with {@link SensorModel#getFeatures()}.</p>
+ */
+public class DerivedFeatures {
+
+    private static final int STRAIGHT = 1;
+    private static final int CURVE_SPEED = 1 << 1;
+    private static final int CURVE_ACCEL = 1 << 2;
+    private static final int TARGET_ACCEL = 1 << 3;
+    private static final int FULL_THROTTLE = 1 << 4;
+    private static final int SLIP = 1 << 5;
+    private static final int STEER_ANGLE = 1 << 6;
+    private static final int TRACK_ANALYSIS = 1 << 7;
+
+    private final SensorModel sensors;
+    private int computed;
+
+    private boolean straight;
+    private int turnDirection;
+    private double curveSpeed;
+    private double curveAccelAndBrake;
+    private double targetAccelAndBrake;
+    private double fullThrottle;
+    private double slip;
+    private double steerTargetAngle;
+    private TrackAnalysis trackAnalysis;
+
+    /**
+     * Constructs the features of a sensor model.
+     *
+     * @param sensors The sensor readings they are derived from.
+     */
+    public DerivedFeatures(SensorModel sensors) {
+        this.sensors = sensors;
+    }
+
+    /**
+     * Forgets every computed feature, for sensor models whose readings are changed in place.
+     */
+    public void invalidate() {
+        this.computed = 0;
+    }
+
+    /**
+     * Checks whether the track ahead is straight, or the turn is far enough to go at the maximum speed: the reading
+     * straight ahead is beyond {@link DrivingInstructor#maxSpeedDist} or not shorter than the ones at +-10 degrees.
+     *
+     * @return True if the track ahead is straight, false if there is a turn.
+     */
+    public boolean isStraight() {
+        if ((this.computed & STRAIGHT) == 0) {
+            double[] track = this.sensors.getTrackEdgeSensors();
+            double rxSensor = track[10];
+            double sensorSensor = track[9];
+            double sxSensor = track[8];
+            this.straight = sensorSensor > maxSpeedDist || (sensorSensor >= rxSensor && sensorSensor >= sxSensor);
+            this.turnDirection = this.straight ? 0 : rxSensor > sxSensor ? 1 : -1;
+            this.computed |= STRAIGHT;
+        }
+        return this.straight;
+    }
+
+    /**
+     * Returns the direction of the turn ahead.
+     *
+     * @return 1 for a turn on the right, -1 for a turn on the left and 0 if the track ahead is straight.
+     */
+    public int getTurnDirection() {
+        this.isStraight();
+        return this.turnDirection;
+    }
+
+    /**
+     * Returns the speed at which to approach the turn ahead, estimated from its "angle" and how close it is. Unlike
+     * {@link #getTargetSpeed()}, it is estimated even where the track ahead is straight.
+     *
+     * @return The speed in km/h.
+     */
+    public double getCurveSpeed() {
+        if ((this.computed & CURVE_SPEED) == 0) {
+            double[] track = this.sensors.getTrackEdgeSensors();
+            double rxSensor = track[10];
+            double sensorSensor = track[9];
+            double sxSensor = track[8];
+            // Computing approximately the "angle" of turn
+            double h = sensorSensor * sin5;
+            double b = (rxSensor > sxSensor ? rxSensor : sxSensor) - sensorSensor * cos5;
+            double sinAngle = b * b / (h * h + b * b);
+            this.curveSpeed = maxSpeed * (sensorSensor * sinAngle / maxSpeedDist);
+            this.computed |= CURVE_SPEED;
+        }
+        return this.curveSpeed;
+    }
+
+    /**
+     * Returns the speed to drive at: the maximum speed if the track ahead is straight, the speed of the turn
+     * otherwise.
+     *
+     * @return The speed in km/h.
+     */
+    public double getTargetSpeed() {
+        return this.isStraight() ? maxSpeed : this.getCurveSpeed();
+    }
+
+    /**
+     * Returns the joint accel/brake command towards the speed of the turn ahead, exponentially scaled w.r.t. the
+     * difference between that speed and the current one.
+     *
+     * @return The command, positive to accelerate and negative to brake.
+     */
+    public double getCurveAccelAndBrake() {
+        if ((this.computed & CURVE_ACCEL) == 0) {
+            this.curveAccelAndBrake = TransferFunction.accelAndBrake(this.sensors.getSpeed() - this.getCurveSpeed());
+            this.computed |= CURVE_ACCEL;
+        }
+        return this.curveAccelAndBrake;
+    }
+
+    /**
+     * Returns the joint accel/brake command towards {@link #getTargetSpeed()}.
+     *
+     * @return The command, positive to accelerate and negative to brake.
+     */
+    public double getAccelAndBrake() {
+        if ((this.computed & TARGET_ACCEL) == 0) {
+            this.targetAccelAndBrake = this.isStraight() ? this.getFullThrottle() : this.getCurveAccelAndBrake();
+            this.computed |= TARGET_ACCEL;
+        }
+        return this.targetAccelAndBrake;
+    }
+
+    /**
+     * Returns the joint accel/brake command towards the maximum speed.
+     *
+     * @return The command, positive to accelerate and negative to brake.
+     */
+    public double getFullThrottle() {
+        if ((this.computed & FULL_THROTTLE) == 0) {
+            this.fullThrottle = TransferFunction.accelAndBrake(this.sensors.getSpeed() - maxSpeed);
+            this.computed |= FULL_THROTTLE;
+        }
+        return this.fullThrottle;
+    }
+
+    /**
+     * Returns the wheel slip: the difference between the speed of the car and the average speed of its wheels.
+     *
+     * @return The slip in m/s.
+     */
+    public double getSlip() {
+        if ((this.computed & SLIP) == 0) {
+            double[] wheelSpinVelocity = this.sensors.getWheelSpinVelocity();
+            double wheels = 0.0;
+            for (int i = 0; i < 4; i++)
+                wheels += wheelSpinVelocity[i] * wheelRadius[i];
+            this.slip = this.sensors.getSpeed() / 3.6 - wheels / 4.0;
+            this.computed |= SLIP;
+        }
+        return this.slip;
+    }
+
+    /**
+     * Returns the steering target angle: the angle of the car w.r.t. the track axis, corrected to bring the car
+     * back to the middle of the track.
+     *
+     * @return The angle in radians.
+     */
+    public double getSteerTargetAngle() {
+        if ((this.computed & STEER_ANGLE) == 0) {
+            this.steerTargetAngle = (float) (this.sensors.getAngleToTrackAxis() - this.sensors.getTrackPosition() * 0.5);
+            this.computed |= STEER_ANGLE;
+        }
+        return this.steerTargetAngle;
+    }
+
+    /**
+     * Returns the analysis of the track edge and focus sensors, which are expected at the default angles of
+     * {@link Controller#initAngles()}.
+     *
+     * @return The analysis, valid until the readings change.
+     */
+    public TrackAnalysis getTrackAnalysis() {
+        if ((this.computed & TRACK_ANALYSIS) == 0) {
+            if (this.trackAnalysis == null)
+                this.trackAnalysis = new TrackAnalysis();
+            this.trackAnalysis.analyze(this.sensors.getTrackEdgeSensors(), this.sensors.getFocusSensors());
+            this.computed |= TRACK_ANALYSIS;
+        }
+        return this.trackAnalysis;
+    }
+}
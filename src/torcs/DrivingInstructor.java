@@ -101,46 +101,31 @@ public class DrivingInstructor {
     public static float getAccel(SensorModel sensors) {
         // Check if the car is out of the track
         if (sensors.getTrackPosition() < 1 && sensors.getTrackPosition() > -1) {
-            // Reading of sensor at +5 degrees w.r.t. car axis
-            float rxSensor = (float) sensors.getTrackEdgeSensors()[10];
-            // Reading of sensor parallel to car axis
-            float sensorSensor = (float) sensors.getTrackEdgeSensors()[9];
-            // Reading of sensor at -5 degrees w.r.t. car axis
-            float sxSensor = (float) sensors.getTrackEdgeSensors()[8];
-
-            float targetSpeed;
-
-            // If the track is straight and far enough from a turn, go to max speed
-            if (sensorSensor > maxSpeedDist || (sensorSensor >= rxSensor && sensorSensor >= sxSensor))
-                targetSpeed = maxSpeed;
-            else {
-                // Approaching a turn on the right
-                if (rxSensor > sxSensor) {
-                    // Computing approximately the "angle" of turn
-                    float h = sensorSensor * sin5;
-                    float b = rxSensor - sensorSensor * cos5;
-                    float sinAngle = b * b / (h * h + b * b);
-                    // Estimate the target speed depending on the turn and how close it is
-                    targetSpeed = maxSpeed * (sensorSensor * sinAngle / maxSpeedDist);
-                }
-                // Approaching a turn on the left
-                else {
-                    // Computing approximately the "angle" of turn
-                    float h = sensorSensor * sin5;
-                    float b = sxSensor - sensorSensor * cos5;
-                    float sinAngle = b * b / (h * h + b * b);
-                    // Estimate the target speed depending on the turn and how close it is
-                    targetSpeed = maxSpeed * (sensorSensor * sinAngle / maxSpeedDist);
-                }
-
-            }
-
-            // The accel/brake command is exponentially scaled w.r.t. the difference between target speed and current speed
-            return (float) (2 / (1 + Math.exp(sensors.getSpeed() - targetSpeed)) - 1);
+            // The target speed is the max speed on straights, and depends on the turn and how close it is otherwise;
+            // the accel/brake command is exponentially scaled w.r.t. the difference between target and current speed
+            return (float) sensors.getFeatures().getAccelAndBrake();
         } else
             return (float) 0.3; // When out of track, return a moderate acceleration command
     }
 
+    /**
+     * Calculates the acceleration command from the target speed learned by a track map, which already brakes for the
+     * known corners ahead. Where the map has not seen the track yet, the target speed is estimated from the sensors
+     * as in {@link #getAccel(SensorModel)}.
+     *
+     * @param sensors The sensor readings from the car.
+     * @param map     The track map, or null if there is none.
+     *
+     * @return The acceleration command value.
+     */
+    public static float getAccel(SensorModel sensors, TrackMap map) {
+        double distance = sensors.getDistanceFromStartLine();
+        if (map == null || !map.isKnown(distance) || Math.abs(sensors.getTrackPosition()) >= 1)
+            return getAccel(sensors);
+        double targetSpeed = Math.min(maxSpeed, map.getTargetSpeed(distance));
+        return (float) TransferFunction.accelAndBrake(sensors.getSpeed() - targetSpeed);
+    }
+
     /**
      * Determines the appropriate gear for the car based on the current RPM and gear shifting thresholds.
      *
@@ -181,13 +166,8 @@ public class DrivingInstructor {
         if (speed < absMinSpeed)
             return brake;
 
-        // Compute the speed of wheels in m/s
-        float slip = 0.0f;
-        for (int i = 0; i < 4; i++) {
-            slip += sensors.getWheelSpinVelocity()[i] * wheelRadius[i];
-        }
         // Slip is the difference between actual speed of the car and average speed of the wheels
-        slip = speed - slip / 4.0f;
+        float slip = (float) sensors.getFeatures().getSlip();
         // When slip is too high, apply ABS
         if (slip > absSlip) {
             brake = brake - (slip - absSlip) / absRange;
@@ -209,7 +189,7 @@ public class DrivingInstructor {
      */
     public static float getSteer(SensorModel sensors) {
         // Steering angle is computed by correcting the actual car angle w.r.t. the track axis and adjusting the car position w.r.t. the middle of the track
-        float targetAngle = (float) (sensors.getAngleToTrackAxis() - sensors.getTrackPosition() * 0.5);
+        float targetAngle = (float) sensors.getFeatures().getSteerTargetAngle();
         // At high speed, reduce the steering command to avoid losing control
         if (sensors.getSpeed() > steerSensitivityOffset)
             return (float) (targetAngle / (steerLock * (sensors.getSpeed() - steerSensitivityOffset) * wheelSensitivityCoeff));
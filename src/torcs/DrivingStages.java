@@ -0,0 +1,490 @@
+package torcs;
+
+/**
+ * The DrivingStages class holds the {@link ControlStage}s shared by the controllers, which used to repeat them in
+ * every trainer and driver: the episode guard that counts laps and restarts the race, the stuck recovery, and the gear,
+ * steering, acceleration, clutch and ABS of the {@link DrivingInstructor}. A learner replaces the stage of the command
+ * it learns and keeps the others.
+ */
+public class DrivingStages {
+
+    /**
+     * The EpisodeGuard stage counts the ticks and laps of the episode, keeps its statistics, and restarts the race on
+     * a time-out, once the laps are complete, or when the car leaves the track. It must be the first stage.
+     */
+    public static class EpisodeGuard extends ControlStage {
+
+        private final int maxLaps;
+        private final double timeLimit;
+
+        private int tics;
+        private int epochs;
+        private int laps;
+        private double previousDistanceFromStartLine;
+        private double currentDistanceFromStartLine;
+        private int completeLaps;
+        private double distanceRaced;
+        private double highSpeed;
+        private boolean completeLap;
+        private boolean offTrack;
+        private boolean timeOut;
+
+        /**
+         * Constructs a new EpisodeGuard.
+         *
+         * @param maxLaps   The number of laps of an episode.
+         * @param timeLimit The lap time in seconds after which the race is restarted.
+         */
+        public EpisodeGuard(int maxLaps, double timeLimit) {
+            super("episode guard");
+            this.maxLaps = maxLaps;
+            this.timeLimit = timeLimit;
+            this.epochs = 0;
+            this.completeLaps = 0;
+            this.startEpisode();
+        }
+
+        /**
+         * Updates the counters and restarts the race if the episode is over.
+         *
+         * @param sensors The sensor readings.
+         * @param action  The action to fill in.
+         *
+         * @return True if the race is restarted.
+         */
+        @Override
+        public boolean apply(SensorModel sensors, Action action) {
+            if (this.tics == 0) {
+                this.previousDistanceFromStartLine = sensors.getDistanceFromStartLine();
+                this.currentDistanceFromStartLine = this.previousDistanceFromStartLine;
+                this.tics++;
+            } else {
+                this.previousDistanceFromStartLine = this.currentDistanceFromStartLine;
+                this.currentDistanceFromStartLine = sensors.getDistanceFromStartLine();
+                this.tics++;
+
+                if (!this.getController().isQuiet()) {
+                    System.out.println("Tics: " + this.tics);
+                    System.out.println("Laps: " + this.laps + "/" + this.maxLaps);
+                    System.out.println("Epochs: " + this.epochs + "/" + Constants.MAX_EPOCHS);
+                    System.out.println("Complete Laps: " + this.completeLaps + "/" + Constants.MAX_EPOCHS);
+                    System.out.println();
+                }
+            }
+
+            if (sensors.getCurrentLapTime() > this.timeLimit) {
+                this.timeOut = true;
+                action.restartRace = true;
+                return true;
+            }
+
+            this.distanceRaced = sensors.getDistanceRaced();
+            if (sensors.getSpeed() > this.highSpeed)
+                this.highSpeed = sensors.getSpeed();
+
+            if (this.previousDistanceFromStartLine > 1 && this.currentDistanceFromStartLine < 1) {
+                this.laps++;
+
+                // The car starts behind the line, so the first crossing does not count
+                if (this.laps >= this.maxLaps) {
+                    this.completeLap = true;
+                    action.restartRace = true;
+                    return true;
+                }
+            }
+
+            if (Math.abs(sensors.getTrackPosition()) >= 1) {
+                this.offTrack = true;
+                action.restartRace = true;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Counts the episode and prints how it ended.
+         */
+        @Override
+        public void endEpisode() {
+            if (this.completeLap)
+                this.completeLaps++;
+            if (this.getController().isQuiet())
+                return;
+            if (this.timeOut)
+                System.out.println("Time out!!!");
+            if (this.completeLap)
+                System.out.println("Complete lap!");
+            if (this.offTrack)
+                System.out.println("Out of track!");
+        }
+
+        /**
+         * Counts the last episode and starts a new one.
+         */
+        @Override
+        public void reset() {
+            this.epochs++;
+            this.startEpisode();
+        }
+
+        /**
+         * Clears the counters of the episode.
+         */
+        private void startEpisode() {
+            this.tics = 0;
+            this.laps = -1;
+            this.distanceRaced = 0;
+            this.highSpeed = 0;
+            this.completeLap = false;
+            this.offTrack = false;
+            this.timeOut = false;
+        }
+
+        /**
+         * Returns the number of ticks of the episode, including the current one.
+         *
+         * @return The number of ticks.
+         */
+        public int getTics() {
+            return tics;
+        }
+
+        /**
+         * Returns the number of episodes before the current one.
+         *
+         * @return The number of episodes.
+         */
+        public int getEpochs() {
+            return epochs;
+        }
+
+        /**
+         * Returns the number of episodes that ended with the laps complete.
+         *
+         * @return The number of episodes.
+         */
+        public int getCompleteLaps() {
+            return completeLaps;
+        }
+
+        /**
+         * Returns the distance raced in the episode.
+         *
+         * @return The distance in meters.
+         */
+        public double getDistanceRaced() {
+            return distanceRaced;
+        }
+
+        /**
+         * Returns the highest speed of the episode.
+         *
+         * @return The speed in km/h.
+         */
+        public double getHighSpeed() {
+            return highSpeed;
+        }
+
+        /**
+         * Checks whether the episode ended with the laps complete.
+         *
+         * @return True if the laps are complete.
+         */
+        public boolean isCompleteLap() {
+            return completeLap;
+        }
+
+        /**
+         * Checks whether the episode ended with the car out of the track.
+         *
+         * @return True if the car left the track.
+         */
+        public boolean isOffTrack() {
+            return offTrack;
+        }
+
+        /**
+         * Checks whether the episode ended with a time-out.
+         *
+         * @return True if the lap took too long.
+         */
+        public boolean isTimeOut() {
+            return timeOut;
+        }
+    }
+
+    /**
+     * The HistoryRecorder stage records the readings of every tick in a {@link SensorHistory}.
+     */
+    public static class HistoryRecorder extends ControlStage {
+
+        private final SensorHistory history;
+
+        /**
+         * Constructs a new HistoryRecorder.
+         *
+         * @param history The history to record into.
+         */
+        public HistoryRecorder(SensorHistory history) {
+            super("history");
+            this.history = history;
+        }
+
+        /**
+         * Records the readings of the tick.
+         *
+         * @param sensors The sensor readings.
+         * @param action  The action to fill in.
+         *
+         * @return False, the action is left to the next stages.
+         */
+        @Override
+        public boolean apply(SensorModel sensors, Action action) {
+            this.history.record(sensors);
+            return false;
+        }
+
+        /**
+         * Forgets the readings of the last episode.
+         */
+        @Override
+        public void reset() {
+            this.history.clear();
+        }
+    }
+
+    /**
+     * The StuckRecovery stage takes over once the car has been pointing away from the track axis for a while: it
+     * drives back, or forward if the car already points to the middle of the track, steering towards the axis.
+     */
+    public static class StuckRecovery extends ControlStage {
+
+        private final Clutch clutch;
+        private int stuck;
+
+        /**
+         * Constructs a new StuckRecovery.
+         *
+         * @param clutch The clutch stage, which also sets the clutch while recovering.
+         */
+        public StuckRecovery(Clutch clutch) {
+            super("stuck recovery");
+            this.clutch = clutch;
+            this.stuck = 0;
+        }
+
+        /**
+         * Counts the ticks the car is stuck and fills in the whole action once it is.
+         *
+         * @param sensors The sensor readings.
+         * @param action  The action to fill in.
+         *
+         * @return True if the car is recovering.
+         */
+        @Override
+        public boolean apply(SensorModel sensors, Action action) {
+            if (Math.abs(sensors.getAngleToTrackAxis()) > DrivingInstructor.stuckAngle)
+                this.stuck++;
+            else
+                this.stuck = 0;
+            if (this.stuck <= DrivingInstructor.stuckTime)
+                return false;
+
+            // To bring the car parallel to the track axis, in reverse
+            float steer = (float) (-sensors.getAngleToTrackAxis() / DrivingInstructor.steerLock);
+            int gear = -1;
+            // If the car is pointing in the correct direction, revert gear and steer
+            if (sensors.getAngleToTrackAxis() * sensors.getTrackPosition() > 0) {
+                gear = 1;
+                steer = -steer;
+            }
+            action.gear = gear;
+            action.steering = steer;
+            action.accelerate = 1.0;
+            action.brake = 0;
+            this.clutch.apply(sensors, action);
+            return true;
+        }
+
+        /**
+         * Forgets the stuck ticks of the last episode.
+         */
+        @Override
+        public void reset() {
+            this.stuck = 0;
+        }
+    }
+
+    /**
+     * The GearShift stage sets the gear from the RPM.
+     */
+    public static class GearShift extends ControlStage {
+
+        /**
+         * Constructs a new GearShift.
+         */
+        public GearShift() {
+            super("gear");
+        }
+
+        /**
+         * Sets the gear.
+         *
+         * @param sensors The sensor readings.
+         * @param action  The action to fill in.
+         *
+         * @return False, the action is left to the next stages.
+         */
+        @Override
+        public boolean apply(SensorModel sensors, Action action) {
+            action.gear = DrivingInstructor.getGear(sensors);
+            return false;
+        }
+    }
+
+    /**
+     * The Steering stage steers towards the middle of the track.
+     */
+    public static class Steering extends ControlStage {
+
+        /**
+         * Constructs a new Steering.
+         */
+        public Steering() {
+            super("steer");
+        }
+
+        /**
+         * Sets the steering, normalized to [-1, 1].
+         *
+         * @param sensors The sensor readings.
+         * @param action  The action to fill in.
+         *
+         * @return False, the action is left to the next stages.
+         */
+        @Override
+        public boolean apply(SensorModel sensors, Action action) {
+            float steer = DrivingInstructor.getSteer(sensors);
+            if (steer < -1)
+                steer = -1;
+            if (steer > 1)
+                steer = 1;
+            action.steering = steer;
+            return false;
+        }
+    }
+
+    /**
+     * The Acceleration stage sets the throttle or the brake from the target speed of the turn ahead. The brake is
+     * left unfiltered, for the {@link ABS} stage.
+     */
+    public static class Acceleration extends ControlStage {
+
+        /**
+         * Constructs a new Acceleration.
+         */
+        public Acceleration() {
+            super("accel");
+        }
+
+        /**
+         * Sets the throttle and the brake.
+         *
+         * @param sensors The sensor readings.
+         * @param action  The action to fill in.
+         *
+         * @return False, the action is left to the next stages.
+         */
+        @Override
+        public boolean apply(SensorModel sensors, Action action) {
+            float accelAndBrake = DrivingInstructor.getAccel(sensors);
+            if (accelAndBrake > 0) {
+                action.accelerate = accelAndBrake;
+                action.brake = 0;
+            } else {
+                action.accelerate = 0;
+                action.brake = -accelAndBrake;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The Clutch stage releases the clutch progressively at the start of the race and when shifting.
+     */
+    public static class Clutch extends ControlStage {
+
+        private double clutch;
+
+        /**
+         * Constructs a new Clutch.
+         */
+        public Clutch() {
+            super("clutch");
+            this.clutch = 0;
+        }
+
+        /**
+         * Sets the clutch.
+         *
+         * @param sensors The sensor readings.
+         * @param action  The action to fill in.
+         *
+         * @return False, the action is left to the next stages.
+         */
+        @Override
+        public boolean apply(SensorModel sensors, Action action) {
+            this.clutch = DrivingInstructor.clutching(sensors, (float) this.clutch, this.getController().getStage());
+            action.clutch = this.clutch;
+            return false;
+        }
+
+        /**
+         * Releases the clutch of the last episode.
+         */
+        @Override
+        public void reset() {
+            this.clutch = 0;
+        }
+    }
+
+    /**
+     * The ABS stage lowers the brake when the wheels slip. It is skipped when the car is not braking.
+     */
+    public static class ABS extends ControlStage {
+
+        /**
+         * Constructs a new ABS.
+         */
+        public ABS() {
+            super("ABS");
+        }
+
+        /**
+         * Checks whether the car is braking.
+         *
+         * @param sensors The sensor readings.
+         * @param action  The action filled in by the stages before.
+         *
+         * @return True if the brake is on.
+         */
+        @Override
+        public boolean isActive(SensorModel sensors, Action action) {
+            return action.brake > 0;
+        }
+
+        /**
+         * Filters the brake.
+         *
+         * @param sensors The sensor readings.
+         * @param action  The action to fill in.
+         *
+         * @return False, the action is left to the next stages.
+         */
+        @Override
+        public boolean apply(SensorModel sensors, Action action) {
+            action.brake = DrivingInstructor.filterABS(sensors, (float) action.brake);
+            return false;
+        }
+    }
+}
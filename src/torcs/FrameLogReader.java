@@ -0,0 +1,210 @@
+package torcs;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * The FrameLogReader class reads a binary log written by {@link FrameRecorder}. The log is memory-mapped region by
+ * region and every record is decoded into the same {@link SensorFrame} and {@link Action}, so iterating a log does
+ * not allocate.
+ */
+public class FrameLogReader implements FrameSource {
+
+    private static final long REGION_RECORDS = 65536;
+
+    private final String filePath;
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private long count;
+    private long[] episodes;
+
+    private MappedByteBuffer region;
+    private long regionFirst;
+    private long position;
+    private int nextEpisode;
+    private boolean episodeStart;
+
+    private final SensorFrame sensors = new SensorFrame();
+    private final Action action = new Action();
+
+    /**
+     * Constructs a new FrameLogReader over the specified file.
+     *
+     * @param filePath The file path.
+     */
+    public FrameLogReader(String filePath) {
+        this.filePath = filePath;
+        this.episodes = new long[0];
+        try {
+            this.file = new RandomAccessFile(filePath, "r");
+            this.channel = this.file.getChannel();
+            MappedByteBuffer header = this.channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    FrameRecorder.HEADER_BYTES);
+            if (header.getInt() != FrameRecorder.MAGIC || header.getInt() != FrameRecorder.VERSION
+                    || header.getInt() != FrameRecorder.RECORD_BYTES) {
+                System.out.println("ERROR!!! -> " + filePath + " is not a frame log of this version");
+            } else {
+                this.count = header.getLong(FrameRecorder.COUNT_OFFSET);
+            }
+        } catch (IOException e) {
+            System.out.println("ERROR!!! -> Could not open frame log " + filePath);
+            e.printStackTrace();
+        }
+        this.loadIndex();
+        this.rewind();
+    }
+
+    /**
+     * Advances to the next record.
+     *
+     * @return True if a frame is available, false at the end of the log.
+     */
+    public boolean next() {
+        if (this.position >= this.count)
+            return false;
+        if (this.region == null || this.position < this.regionFirst
+                || this.position >= this.regionFirst + REGION_RECORDS) {
+            this.mapRegion(this.position);
+            if (this.position >= this.count)
+                return false;
+        }
+
+        this.region.position((int) ((this.position - this.regionFirst) * FrameRecorder.RECORD_BYTES));
+        this.sensors.read(this.region);
+        FrameRecorder.readAction(this.action, this.region);
+
+        this.episodeStart = false;
+        while (this.nextEpisode < this.episodes.length && this.episodes[this.nextEpisode] <= this.position) {
+            this.episodeStart = true;
+            this.nextEpisode++;
+        }
+        this.position++;
+        return true;
+    }
+
+    /**
+     * Retrieves the sensor readings of the current record. The same object is reused by every record.
+     *
+     * @return The sensor readings.
+     */
+    public SensorModel getSensors() {
+        return sensors;
+    }
+
+    /**
+     * Retrieves the action of the current record. The same object is reused by every record.
+     *
+     * @return The recorded action.
+     */
+    public Action getAction() {
+        return action;
+    }
+
+    /**
+     * Checks whether the current record is the first one of an episode.
+     *
+     * @return True if the current record starts an episode, false otherwise.
+     */
+    public boolean isEpisodeStart() {
+        return episodeStart;
+    }
+
+    /**
+     * Goes back to the first record.
+     */
+    public void rewind() {
+        this.position = 0;
+        this.nextEpisode = 0;
+        this.episodeStart = false;
+    }
+
+    /**
+     * Positions the reader so that the next record read is the first one of an episode.
+     *
+     * @param episode The index of the episode.
+     */
+    public void seekEpisode(int episode) {
+        this.position = this.episodes[episode];
+        this.nextEpisode = episode;
+    }
+
+    /**
+     * Returns the number of records in the log.
+     *
+     * @return The number of records.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of episodes in the log.
+     *
+     * @return The number of episodes.
+     */
+    public int getEpisodeCount() {
+        return episodes.length;
+    }
+
+    /**
+     * Closes the log.
+     */
+    public void close() {
+        if (this.file == null)
+            return;
+        try {
+            this.file.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        this.file = null;
+    }
+
+    /**
+     * Maps the region of the log that contains a record.
+     *
+     * @param record The record number.
+     */
+    private void mapRegion(long record) {
+        this.regionFirst = record - record % REGION_RECORDS;
+        long records = Math.min(REGION_RECORDS, this.count - this.regionFirst);
+        try {
+            this.region = this.channel.map(FileChannel.MapMode.READ_ONLY,
+                    FrameRecorder.HEADER_BYTES + this.regionFirst * FrameRecorder.RECORD_BYTES,
+                    records * FrameRecorder.RECORD_BYTES);
+        } catch (IOException e) {
+            System.out.println("ERROR!!! -> Could not read frame log " + this.filePath);
+            e.printStackTrace();
+            this.count = record;
+        }
+    }
+
+    /**
+     * Loads the episode index written next to the log, if there is one.
+     */
+    private void loadIndex() {
+        File indexFile = new File(this.filePath + FrameRecorder.INDEX_EXTENSION);
+        if (!indexFile.exists())
+            return;
+        int n = (int) (indexFile.length() / Long.BYTES);
+        long[] starts = new long[n];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            for (int i = 0; i < n; i++)
+                starts[i] = in.readLong();
+        } catch (IOException e) {
+            System.out.println("ERROR!!! -> Could not read frame log index...");
+            e.printStackTrace();
+        }
+        int valid = 0;
+        while (valid < n && starts[valid] < this.count)
+            valid++;
+        this.episodes = Arrays.copyOf(starts, valid);
+    }
+}
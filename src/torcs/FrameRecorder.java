@@ -0,0 +1,279 @@
+package torcs;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The FrameRecorder class appends every frame of a race (the parsed sensor readings and the action sent back) to a
+ * compact binary log made of fixed-width records.
+ *
+ * <p>The control thread only copies the frame into a preallocated ring of slots, which never allocates and never
+ * blocks: if the ring is full because the writer fell behind, the frame is dropped and counted. A background
+ * writer thread drains the ring into memory-mapped regions of the log file, and keeps a separate index file with
+ * the record number where every episode starts.</p>
+ *
+ * <p>The log starts with a header of {@link #HEADER_BYTES} bytes holding a magic number, the format version, the
+ * record size and the number of records, followed by the records. The episode index ({@code <log>.idx}) is a
+ * sequence of record numbers. Logs are read back with {@link FrameLogReader}.</p>
+ */
+public class FrameRecorder {
+
+    public static final int MAGIC = 0x54524353; // "TRCS"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 64;
+    public static final int COUNT_OFFSET = 16;
+    public static final int ACTION_BYTES = 7 * Double.BYTES;
+    public static final int RECORD_BYTES = SensorFrame.BYTES + ACTION_BYTES;
+    public static final String INDEX_EXTENSION = ".idx";
+
+    private static final long PARK_NANOS = 100000;
+
+    private final SensorFrame[] frames;
+    private final Action[] actions;
+    private final boolean[] episodeStarts;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private boolean pendingEpisodeStart;
+
+    private final long regionBytes;
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private MappedByteBuffer region;
+    private long regionStart;
+    private DataOutputStream index;
+    private long written;
+
+    // Whether the writer still accepts frames; it stops on its own if the log cannot be extended
+    private volatile boolean running;
+    private boolean closed;
+    private final Thread writer;
+
+    /**
+     * Constructs a new FrameRecorder writing to the specified file, which is truncated.
+     *
+     * @param filePath     The file path.
+     * @param ringCapacity The number of frames that can wait for the writer, rounded up to a power of two.
+     * @param regionBytes  The size of every memory-mapped append region.
+     */
+    public FrameRecorder(String filePath, int ringCapacity, long regionBytes) {
+        int capacity = Integer.highestOneBit(Math.max(2, ringCapacity) - 1) << 1;
+        this.frames = new SensorFrame[capacity];
+        this.actions = new Action[capacity];
+        this.episodeStarts = new boolean[capacity];
+        for (int i = 0; i < capacity; i++) {
+            this.frames[i] = new SensorFrame();
+            this.actions[i] = new Action();
+        }
+        this.mask = capacity - 1;
+        this.pendingEpisodeStart = true;
+        this.regionBytes = Math.max(1, regionBytes / RECORD_BYTES) * RECORD_BYTES;
+
+        try {
+            this.file = new RandomAccessFile(filePath, "rw");
+            this.file.setLength(0);
+            this.channel = this.file.getChannel();
+            this.header = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            this.header.putInt(MAGIC);
+            this.header.putInt(VERSION);
+            this.header.putInt(RECORD_BYTES);
+            this.header.putInt(0);
+            this.header.putLong(COUNT_OFFSET, 0);
+            this.regionStart = HEADER_BYTES;
+            this.region = this.channel.map(FileChannel.MapMode.READ_WRITE, this.regionStart, this.regionBytes);
+            this.index = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(filePath + INDEX_EXTENSION)));
+        } catch (IOException e) {
+            System.out.println("ERROR!!! -> Could not open frame log " + filePath);
+            e.printStackTrace();
+        }
+
+        this.running = this.region != null;
+        this.writer = new Thread(this::drain, "frame-recorder");
+        this.writer.setDaemon(true);
+        if (this.running)
+            this.writer.start();
+    }
+
+    /**
+     * Queues a frame for writing. This method never allocates and never blocks.
+     *
+     * @param sensors The sensor readings received from the server.
+     * @param action  The action sent back.
+     *
+     * @return True if the frame was queued, false if it was dropped.
+     */
+    public boolean record(SensorModel sensors, Action action) {
+        long h = this.head.get();
+        if (!this.running || h - this.tail.get() > this.mask) {
+            this.dropped.incrementAndGet();
+            return false;
+        }
+        int slot = (int) (h & this.mask);
+        this.frames[slot].copyFrom(sensors);
+        this.actions[slot].copyFrom(action);
+        this.episodeStarts[slot] = this.pendingEpisodeStart;
+        this.pendingEpisodeStart = false;
+        this.head.lazySet(h + 1);
+        return true;
+    }
+
+    /**
+     * Marks the end of the current episode: the next recorded frame starts a new one.
+     */
+    public void endEpisode() {
+        this.pendingEpisodeStart = true;
+    }
+
+    /**
+     * Returns the number of frames dropped because the writer fell behind.
+     *
+     * @return The number of dropped frames.
+     */
+    public long getDropped() {
+        return this.dropped.get();
+    }
+
+    /**
+     * Returns the number of frames written to the log.
+     *
+     * @return The number of written frames.
+     */
+    public long getWritten() {
+        return this.tail.get();
+    }
+
+    /**
+     * Writes the frames still queued, then closes the log and its index. The records written before the writer
+     * stopped on an error are kept. Calling it again does nothing.
+     */
+    public void close() {
+        if (this.closed)
+            return;
+        this.closed = true;
+        this.running = false;
+        try {
+            this.writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (this.region != null) {
+                this.header.putLong(COUNT_OFFSET, this.written);
+                this.header.force();
+                this.region.force();
+            }
+            if (this.index != null)
+                this.index.close();
+            if (this.file != null) {
+                try {
+                    this.channel.truncate(HEADER_BYTES + this.written * RECORD_BYTES);
+                } catch (IOException e) {
+                    // Some platforms do not allow truncating a mapped file; the header count is authoritative anyway
+                }
+                this.file.close();
+            }
+        } catch (IOException e) {
+            System.out.println("ERROR!!! -> Could not close frame log...");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * The loop of the writer thread: copies the queued frames into the mapped log until the recorder is closed
+     * and the ring is empty.
+     */
+    private void drain() {
+        while (true) {
+            long t = this.tail.get();
+            long h = this.head.get();
+            if (t == h) {
+                if (!this.running && this.head.get() == t)
+                    break;
+                LockSupport.parkNanos(PARK_NANOS);
+                continue;
+            }
+            for (; t < h; t++) {
+                if (!this.write((int) (t & this.mask)))
+                    return;
+                this.tail.lazySet(t + 1);
+            }
+            this.header.putLong(COUNT_OFFSET, this.written);
+        }
+    }
+
+    /**
+     * Writes one queued frame as a record, mapping a new region when the current one is full.
+     *
+     * @param slot The slot of the ring.
+     *
+     * @return True if the frame was written, false if the log could not be extended.
+     */
+    private boolean write(int slot) {
+        if (this.region.remaining() < RECORD_BYTES) {
+            try {
+                this.region.force();
+                this.regionStart += this.regionBytes;
+                this.region = this.channel.map(FileChannel.MapMode.READ_WRITE, this.regionStart, this.regionBytes);
+            } catch (IOException e) {
+                System.out.println("ERROR!!! -> Could not extend frame log...");
+                e.printStackTrace();
+                this.running = false;
+                return false;
+            }
+        }
+        if (this.episodeStarts[slot]) {
+            try {
+                this.index.writeLong(this.written);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        this.frames[slot].write(this.region);
+        writeAction(this.actions[slot], this.region);
+        this.written++;
+        return true;
+    }
+
+    /**
+     * Writes an action as {@link #ACTION_BYTES} bytes at the current position of a buffer.
+     *
+     * @param action The action.
+     * @param buffer The buffer to write to.
+     */
+    static void writeAction(Action action, ByteBuffer buffer) {
+        buffer.putDouble(action.accelerate);
+        buffer.putDouble(action.brake);
+        buffer.putDouble(action.clutch);
+        buffer.putDouble(action.gear);
+        buffer.putDouble(action.steering);
+        buffer.putDouble(action.restartRace ? 1 : 0);
+        buffer.putDouble(action.focus);
+    }
+
+    /**
+     * Reads an action written by {@link #writeAction(Action, ByteBuffer)} at the current position of a buffer.
+     *
+     * @param action The action to fill.
+     * @param buffer The buffer to read from.
+     */
+    static void readAction(Action action, ByteBuffer buffer) {
+        action.accelerate = buffer.getDouble();
+        action.brake = buffer.getDouble();
+        action.clutch = buffer.getDouble();
+        action.gear = (int) buffer.getDouble();
+        action.steering = buffer.getDouble();
+        action.restartRace = buffer.getDouble() != 0;
+        action.focus = (int) buffer.getDouble();
+    }
+}
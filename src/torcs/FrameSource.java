@@ -0,0 +1,72 @@
+package torcs;
+
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * The FrameSource interface provides sequential access to recorded race frames: the sensor readings received from
+ * the server and the action that was sent back for them. Sources can be rewound, so that offline algorithms can
+ * stream the same recording several times without keeping it in memory.
+ *
+ * <p>Sources may reuse the returned sensor and action objects for every frame; callers that need to keep a frame
+ * must copy it.</p>
+ */
+public interface FrameSource {
+
+    /**
+     * Opens a recording, choosing the reader from its content: binary logs written by {@link FrameRecorder} or text
+     * logs written by {@link MessageLogWriter}.
+     *
+     * @param filePath The file path.
+     *
+     * @return The frame source.
+     */
+    public static FrameSource open(String filePath) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(filePath))) {
+            if (in.readInt() == FrameRecorder.MAGIC)
+                return new FrameLogReader(filePath);
+        } catch (IOException e) {
+            // Too short to be a binary log
+        }
+        return new MessageLogReader(filePath);
+    }
+
+    /**
+     * Advances to the next recorded frame.
+     *
+     * @return True if a frame is available, false at the end of the recording.
+     */
+    public boolean next();
+
+    /**
+     * Retrieves the sensor readings of the current frame.
+     *
+     * @return The sensor readings.
+     */
+    public SensorModel getSensors();
+
+    /**
+     * Retrieves the action that was sent for the current frame.
+     *
+     * @return The recorded action.
+     */
+    public Action getAction();
+
+    /**
+     * Checks whether the current frame is the first one of an episode.
+     *
+     * @return True if the current frame starts an episode, false otherwise.
+     */
+    public boolean isEpisodeStart();
+
+    /**
+     * Goes back to the beginning of the recording.
+     */
+    public void rewind();
+
+    /**
+     * Releases the resources held by the source.
+     */
+    public void close();
+}
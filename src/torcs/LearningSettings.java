@@ -0,0 +1,90 @@
+package torcs;
+
+import java.io.File;
+
+/**
+ * The LearningSettings class holds how the learners of a controller learn: the learning rate and discount factor,
+ * whether they start from the saved tables, and where they save their tables, transition models and statistics. It
+ * is passed to a controller with {@link Controller#setLearningSettings(LearningSettings)}, so that in-process runs
+ * such as a hyperparameter sweep configure every controller they create without touching any global state.
+ */
+public class LearningSettings {
+
+    /**
+     * The settings of the trainers run against TORCS: the rates of {@link Constants}, starting from the saved tables
+     * and saving over them.
+     */
+    public static final LearningSettings DEFAULT = new LearningSettings(Constants.LEARNING_RATE,
+            Constants.DISCOUNT_FACTOR, true, null);
+
+    private final double learningRate;
+    private final double discountFactor;
+    private final boolean loadSavedTables;
+    private final String directory;
+
+    /**
+     * Constructs new LearningSettings.
+     *
+     * @param learningRate    The learning rate.
+     * @param discountFactor  The discount factor.
+     * @param loadSavedTables True to start from the saved Q-tables and transition models, false to start from empty
+     *                        ones.
+     * @param directory       The directory the tables, models and statistics are saved to, or null to save them over
+     *                        the saved ones.
+     */
+    public LearningSettings(double learningRate, double discountFactor, boolean loadSavedTables, String directory) {
+        this.learningRate = learningRate;
+        this.discountFactor = discountFactor;
+        this.loadSavedTables = loadSavedTables;
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the learning rate.
+     *
+     * @return The learning rate.
+     */
+    public double getLearningRate() {
+        return learningRate;
+    }
+
+    /**
+     * Returns the discount factor.
+     *
+     * @return The discount factor.
+     */
+    public double getDiscountFactor() {
+        return discountFactor;
+    }
+
+    /**
+     * Checks whether the learners start from the saved tables.
+     *
+     * @return True to load the saved tables, false to start from empty ones.
+     */
+    public boolean isLoadSavedTables() {
+        return loadSavedTables;
+    }
+
+    /**
+     * Returns the directory the learners save to.
+     *
+     * @return The directory, or null if they save over the saved tables.
+     */
+    public String getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the file a learner saves to instead of one of the saved files.
+     *
+     * @param filePath The path of the saved file.
+     *
+     * @return The file of the same name in the directory, or the path itself if there is no directory.
+     */
+    public String resolve(String filePath) {
+        if (this.directory == null || filePath == null)
+            return filePath;
+        return new File(this.directory, new File(filePath).getName()).getPath();
+    }
+}
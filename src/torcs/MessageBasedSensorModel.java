@@ -12,6 +12,7 @@ package torcs;
 public class MessageBasedSensorModel implements SensorModel {
 
     private MessageParser message; // The parsed message containing the sensor readings
+    private DerivedFeatures features; // Created the first time they are needed
 
     /**
      * Constructs a new MessageBasedSensorModel with the specified MessageParser object.
@@ -196,6 +197,17 @@ public class MessageBasedSensorModel implements SensorModel {
         return message.getMessage();
     }
 
+    /**
+     * Retrieves the quantities derived from the readings of the message.
+     *
+     * @return The derived features.
+     */
+    public DerivedFeatures getFeatures() {
+        if (features == null)
+            features = new DerivedFeatures(this);
+        return features;
+    }
+
     /**
      * Retrieves the z-coordinate of the car's position.
      *
@@ -0,0 +1,119 @@
+package torcs;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * The MessageLogReader class streams a text log written by {@link MessageLogWriter} frame by frame, so logs of any
+ * size can be processed without loading them into memory.
+ */
+public class MessageLogReader implements FrameSource {
+
+    private final String filePath;
+    private BufferedReader reader;
+    private SensorModel sensors;
+    private Action action;
+    private boolean episodeStart;
+    private boolean pendingStart;
+
+    /**
+     * Constructs a new MessageLogReader over the specified file.
+     *
+     * @param filePath The file path.
+     */
+    public MessageLogReader(String filePath) {
+        this.filePath = filePath;
+        this.rewind();
+    }
+
+    /**
+     * Advances to the next recorded frame, skipping episode markers.
+     *
+     * @return True if a frame is available, false at the end of the log.
+     */
+    public boolean next() {
+        if (this.reader == null)
+            return false;
+        try {
+            String line;
+            while ((line = this.reader.readLine()) != null) {
+                if (line.startsWith(MessageLogWriter.EPISODE_MARKER)) {
+                    this.pendingStart = true;
+                    continue;
+                }
+                int split = line.lastIndexOf(MessageLogWriter.FRAME_SEPARATOR);
+                if (split < 0)
+                    continue;
+                // A frame answered with a restart request also ends its episode
+                this.episodeStart = this.pendingStart || (this.action != null && this.action.restartRace);
+                this.pendingStart = false;
+                this.sensors = new MessageBasedSensorModel(line.substring(0, split));
+                this.action = Action.parse(line.substring(split + 1));
+                return true;
+            }
+        } catch (IOException e) {
+            System.out.println("ERROR!!! -> Could not read message log...");
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Retrieves the sensor readings of the current frame.
+     *
+     * @return The sensor readings.
+     */
+    public SensorModel getSensors() {
+        return sensors;
+    }
+
+    /**
+     * Retrieves the action that was sent for the current frame.
+     *
+     * @return The recorded action.
+     */
+    public Action getAction() {
+        return action;
+    }
+
+    /**
+     * Checks whether the current frame is the first one of an episode.
+     *
+     * @return True if the current frame starts an episode, false otherwise.
+     */
+    public boolean isEpisodeStart() {
+        return episodeStart;
+    }
+
+    /**
+     * Goes back to the beginning of the log.
+     */
+    public void rewind() {
+        this.close();
+        try {
+            this.reader = new BufferedReader(new FileReader(this.filePath));
+        } catch (IOException e) {
+            System.out.println("ERROR!!! -> Could not open message log " + this.filePath);
+            e.printStackTrace();
+        }
+        this.sensors = null;
+        this.action = null;
+        this.episodeStart = false;
+        this.pendingStart = true;
+    }
+
+    /**
+     * Closes the log.
+     */
+    public void close() {
+        if (this.reader == null)
+            return;
+        try {
+            this.reader.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        this.reader = null;
+    }
+}
@@ -0,0 +1,80 @@
+package torcs;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * The MessageLogWriter class records a race as text: one line per frame holding the message received from the
+ * server and the action sent back, separated by {@link #FRAME_SEPARATOR}. Episodes are separated by a line holding
+ * {@link #EPISODE_MARKER}. The log can be read back with {@link MessageLogReader}.
+ */
+public class MessageLogWriter {
+
+    public static final String FRAME_SEPARATOR = "|";
+    public static final String EPISODE_MARKER = "***restart***";
+
+    private BufferedWriter writer;
+
+    /**
+     * Constructs a new MessageLogWriter appending to the specified file.
+     *
+     * @param filePath The file path.
+     */
+    public MessageLogWriter(String filePath) {
+        try {
+            this.writer = new BufferedWriter(new FileWriter(filePath, true));
+        } catch (IOException e) {
+            System.out.println("ERROR!!! -> Could not open message log " + filePath);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Records a frame.
+     *
+     * @param message The message received from the server.
+     * @param action  The action sent back.
+     */
+    public void write(String message, Action action) {
+        if (this.writer == null)
+            return;
+        try {
+            this.writer.write(message.trim());
+            this.writer.write(FRAME_SEPARATOR);
+            this.writer.write(action.toString());
+            this.writer.newLine();
+        } catch (IOException e) {
+            System.out.println("ERROR!!! -> Could not write message log...");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Records the end of the current episode.
+     */
+    public void endEpisode() {
+        if (this.writer == null)
+            return;
+        try {
+            this.writer.write(EPISODE_MARKER);
+            this.writer.newLine();
+        } catch (IOException e) {
+            System.out.println("ERROR!!! -> Could not write message log...");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Flushes and closes the log.
+     */
+    public void close() {
+        if (this.writer == null)
+            return;
+        try {
+            this.writer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package torcs;
+
+import static torcs.Constants.OPPONENT_HISTORY;
+
+/**
+ * The OpponentPerception class turns the 36 opponent sensors into the threats the controllers care about: the
+ * nearest opponent ahead, on the left, on the right and behind, and how fast the gap to the one ahead is closing.
+ *
+ * <p>Every opponent sensor covers 10 degrees around the car, from -180 to 180 degrees w.r.t. its axis, negative on
+ * the left as for the rangefinders, and reads the distance of the closest opponent in it, or 200 meters if there is
+ * none. The sectors within 30 degrees of the axis are ahead, the ones within 30 degrees of the opposite direction are
+ * behind, and the rest are beside the car. The closing speed is estimated from the gaps of the last
+ * {@link Constants#OPPONENT_HISTORY} ticks, kept in primitive arrays, so an update allocates nothing.</p>
+ */
+public class OpponentPerception {
+
+    public static final double MAX_RANGE = 200.0;
+
+    private static final int SECTORS = SensorFrame.OPPONENT_SENSORS;
+    // First sector of every group; the sectors before the left ones are behind too
+    private static final int LEFT_SECTORS = 3;
+    private static final int AHEAD_SECTORS = 15;
+    private static final int RIGHT_SECTORS = 21;
+    private static final int BEHIND_SECTORS = 33;
+
+    private double ahead;
+    private double left;
+    private double right;
+    private double behind;
+    private int aheadSector;
+
+    // Gaps to the opponent ahead and the lap times they were read at, oldest first from head
+    private final double[] gaps = new double[OPPONENT_HISTORY];
+    private final double[] times = new double[OPPONENT_HISTORY];
+    private int head;
+    private int count;
+    private double closingSpeed;
+
+    /**
+     * Constructs a new OpponentPerception with no opponents in sight.
+     */
+    public OpponentPerception() {
+        this.reset();
+    }
+
+    /**
+     * Forgets the opponents seen so far, at the start of an episode.
+     */
+    public void reset() {
+        this.ahead = this.left = this.right = this.behind = MAX_RANGE;
+        this.aheadSector = -1;
+        this.head = 0;
+        this.count = 0;
+        this.closingSpeed = 0;
+    }
+
+    /**
+     * Scans the opponent sensors of one tick.
+     *
+     * @param sensors The sensor readings.
+     */
+    public void update(SensorModel sensors) {
+        double[] opponents = sensors.getOpponentSensors();
+        if (opponents == null || opponents.length < SECTORS) {
+            this.reset();
+            return;
+        }
+
+        double nearestBehind = MAX_RANGE;
+        for (int i = 0; i < LEFT_SECTORS; i++)
+            nearestBehind = Math.min(nearestBehind, opponents[i]);
+        for (int i = BEHIND_SECTORS; i < SECTORS; i++)
+            nearestBehind = Math.min(nearestBehind, opponents[i]);
+        double nearestLeft = MAX_RANGE;
+        for (int i = LEFT_SECTORS; i < AHEAD_SECTORS; i++)
+            nearestLeft = Math.min(nearestLeft, opponents[i]);
+        double nearestRight = MAX_RANGE;
+        for (int i = RIGHT_SECTORS; i < BEHIND_SECTORS; i++)
+            nearestRight = Math.min(nearestRight, opponents[i]);
+        double nearestAhead = MAX_RANGE;
+        int sector = -1;
+        for (int i = AHEAD_SECTORS; i < RIGHT_SECTORS; i++) {
+            if (opponents[i] < nearestAhead) {
+                nearestAhead = opponents[i];
+                sector = i;
+            }
+        }
+        this.ahead = nearestAhead;
+        this.left = nearestLeft;
+        this.right = nearestRight;
+        this.behind = nearestBehind;
+        this.aheadSector = sector;
+
+        this.track(nearestAhead, sensors.getCurrentLapTime());
+    }
+
+    /**
+     * Adds the gap to the opponent ahead to the history and estimates the closing speed from the oldest and newest
+     * gaps. The history starts over when there is no opponent ahead or the lap time goes back, at the start line.
+     *
+     * @param gap  The gap to the opponent ahead, or {@link #MAX_RANGE} if there is none.
+     * @param time The current lap time.
+     */
+    private void track(double gap, double time) {
+        if (gap >= MAX_RANGE || (this.count > 0 && time <= this.times[this.newest()])) {
+            this.head = 0;
+            this.count = 0;
+        }
+        if (gap >= MAX_RANGE) {
+            this.closingSpeed = 0;
+            return;
+        }
+
+        int slot = (this.head + this.count) % OPPONENT_HISTORY;
+        this.gaps[slot] = gap;
+        this.times[slot] = time;
+        if (this.count < OPPONENT_HISTORY)
+            this.count++;
+        else
+            this.head = (this.head + 1) % OPPONENT_HISTORY;
+
+        int newest = this.newest();
+        double elapsed = this.times[newest] - this.times[this.head];
+        this.closingSpeed = this.count > 1 && elapsed > 0 ? (this.gaps[this.head] - this.gaps[newest]) / elapsed : 0;
+    }
+
+    /**
+     * Returns the slot of the newest gap of the history.
+     *
+     * @return The index in the history arrays.
+     */
+    private int newest() {
+        return (this.head + this.count - 1) % OPPONENT_HISTORY;
+    }
+
+    /**
+     * Returns the distance of the nearest opponent ahead.
+     *
+     * @return The distance in meters, or {@link #MAX_RANGE} if there is none.
+     */
+    public double getAhead() {
+        return ahead;
+    }
+
+    /**
+     * Returns the distance of the nearest opponent on the left.
+     *
+     * @return The distance in meters, or {@link #MAX_RANGE} if there is none.
+     */
+    public double getLeft() {
+        return left;
+    }
+
+    /**
+     * Returns the distance of the nearest opponent on the right.
+     *
+     * @return The distance in meters, or {@link #MAX_RANGE} if there is none.
+     */
+    public double getRight() {
+        return right;
+    }
+
+    /**
+     * Returns the distance of the nearest opponent behind.
+     *
+     * @return The distance in meters, or {@link #MAX_RANGE} if there is none.
+     */
+    public double getBehind() {
+        return behind;
+    }
+
+    /**
+     * Returns the distance of the nearest opponent beside the car, on either side.
+     *
+     * @return The distance in meters, or {@link #MAX_RANGE} if there is none.
+     */
+    public double getBeside() {
+        return Math.min(this.left, this.right);
+    }
+
+    /**
+     * Returns the sector of the nearest opponent ahead.
+     *
+     * @return The index of the opponent sensor, or -1 if there is none.
+     */
+    public int getAheadSector() {
+        return aheadSector;
+    }
+
+    /**
+     * Returns the speed at which the gap to the opponent ahead is closing.
+     *
+     * @return The speed in m/s, positive when the car is catching up, or 0 if there is no opponent ahead.
+     */
+    public double getClosingSpeed() {
+        return closingSpeed;
+    }
+
+    /**
+     * Returns the time left before reaching the opponent ahead at the current closing speed.
+     *
+     * @return The time in seconds, or {@link Double#MAX_VALUE} if the gap is not closing.
+     */
+    public double getTimeToContact() {
+        return this.closingSpeed > 0 ? this.ahead / this.closingSpeed : Double.MAX_VALUE;
+    }
+}
@@ -0,0 +1,162 @@
+package torcs;
+
+/**
+ * The PipelineController class is a {@link Controller} built from an ordered list of {@link ControlStage}s, such as the
+ * ones of {@link DrivingStages}: episode guard, stuck recovery, gear, steering, acceleration, clutch and ABS. On every
+ * tick the stages fill in one action in order, until one of them completes it.
+ *
+ * <p>Every stage that runs is timed with {@link System#nanoTime()}, and the pipeline counts the ticks each stage ran
+ * and was skipped, so {@link #timingReport()} shows which stage costs what per tick. The report is printed on
+ * shutdown, unless the controller is quiet.</p>
+ *
+ * <p>The stages fill in the action given to {@link #control(SensorModel, Action)}, so with a reused action and stages
+ * that keep their state in fields, a tick allocates nothing.</p>
+ */
+public class PipelineController extends Controller {
+
+    private final ControlStage[] stages;
+    private final long[] nanos;
+    private final long[] runs;
+    private final long[] skips;
+    private long ticks;
+
+    /**
+     * Constructs a new PipelineController.
+     *
+     * @param stages The stages, in the order they run on every tick.
+     */
+    public PipelineController(ControlStage... stages) {
+        this.stages = stages;
+        this.nanos = new long[stages.length];
+        this.runs = new long[stages.length];
+        this.skips = new long[stages.length];
+        for (ControlStage stage : stages)
+            stage.setController(this);
+    }
+
+    /**
+     * Sets the name of the track, on the controller and on every stage.
+     *
+     * @param trackName The name of the track.
+     */
+    @Override
+    public void setTrackName(String trackName) {
+        super.setTrackName(trackName);
+        for (ControlStage stage : this.stages)
+            stage.setTrackName(trackName);
+    }
+
+    /**
+     * Sets how the learners learn, on the controller and on every stage.
+     *
+     * @param learningSettings The learning settings.
+     */
+    @Override
+    public void setLearningSettings(LearningSettings learningSettings) {
+        super.setLearningSettings(learningSettings);
+        for (ControlStage stage : this.stages)
+            stage.setLearningSettings(learningSettings);
+    }
+
+    /**
+     * Runs the stages on the sensor readings of one tick.
+     *
+     * @param sensors The sensor readings from the car.
+     *
+     * @return The action to be performed by the car.
+     */
+    @Override
+    public Action control(SensorModel sensors) {
+        Action action = new Action();
+        this.control(sensors, action);
+        return action;
+    }
+
+    /**
+     * Runs the stages on the sensor readings of one tick, filling in an action owned by the caller.
+     *
+     * @param sensors The sensor readings from the car.
+     * @param action  The action to fill in; every value is overwritten.
+     */
+    @Override
+    public void control(SensorModel sensors, Action action) {
+        action.reset();
+        this.ticks++;
+        for (int i = 0; i < this.stages.length; i++) {
+            ControlStage stage = this.stages[i];
+            if (!stage.isActive(sensors, action)) {
+                this.skips[i]++;
+                continue;
+            }
+            long start = System.nanoTime();
+            boolean complete = stage.apply(sensors, action);
+            this.nanos[i] += System.nanoTime() - start;
+            this.runs[i]++;
+            if (complete)
+                break;
+        }
+    }
+
+    /**
+     * Ends the episode on every stage, then resets them all.
+     */
+    @Override
+    public void reset() {
+        for (ControlStage stage : this.stages)
+            stage.endEpisode();
+        for (ControlStage stage : this.stages)
+            stage.reset();
+
+        if (!this.isQuiet()) {
+            System.out.println();
+            System.out.println("*** Restarting the race ***");
+            System.out.println();
+        }
+    }
+
+    /**
+     * Shuts down every stage and prints the timing report, unless the controller is quiet.
+     */
+    @Override
+    public void shutdown() {
+        for (ControlStage stage : this.stages)
+            stage.shutdown();
+
+        if (!this.isQuiet()) {
+            System.out.println();
+            System.out.println(this.timingReport());
+            System.out.println("*** Finish the test ***");
+            System.out.println();
+        }
+    }
+
+    /**
+     * Builds the timing report: for every stage, the ticks it ran and was skipped, and the mean time it took per tick
+     * it ran and per tick of the pipeline.
+     *
+     * @return The report, one line per stage.
+     */
+    public String timingReport() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-16s %10s %10s %12s %12s%n", "Stage", "Runs", "Skips", "ns/run", "ns/tick"));
+        long total = 0;
+        for (int i = 0; i < this.stages.length; i++) {
+            total += this.nanos[i];
+            report.append(String.format("%-16s %10d %10d %12.1f %12.1f%n", this.stages[i].getName(), this.runs[i],
+                    this.skips[i], this.runs[i] == 0 ? 0.0 : this.nanos[i] / (double) this.runs[i],
+                    this.ticks == 0 ? 0.0 : this.nanos[i] / (double) this.ticks));
+        }
+        report.append(String.format("%-16s %10d %10s %12s %12.1f", "Total", this.ticks, "", "",
+                this.ticks == 0 ? 0.0 : total / (double) this.ticks));
+        return report.toString();
+    }
+
+    /**
+     * Returns the stages of the pipeline.
+     *
+     * @return The stages, in order.
+     */
+    public ControlStage[] getStages() {
+        return stages;
+    }
+}
@@ -0,0 +1,250 @@
+package torcs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.StringTokenizer;
+
+/**
+ * The Replay class drives a controller from a recorded race instead of the TORCS server. Every recorded frame is fed
+ * to {@link Controller#control(SensorModel)} as fast as possible; the produced action is compared with the recorded
+ * one and the cost of every call is measured. This gives a reproducible latency and throughput benchmark and a
+ * behavioural regression check for controller changes.
+ *
+ * <p>Usage: {@code java torcs.Replay <controller> <log> [passes:N] [tolerance:X] [trackName:T] [stage:S]
+ * [output:D] [verbose:on]}. The log may be a binary frame log or a text message log. Every pass replays the whole log
+ * with a fresh controller, so the first passes warm up the JIT; the report of every pass is printed. The controller
+ * starts from the saved tables, as it did in the recorded race, but every pass gets its own {@link LearningSettings}
+ * and saves its tables, models and statistics to its own directory under {@code output}, a new temporary directory
+ * by default, so replaying a trainer never overwrites the saved tables.</p>
+ */
+public class Replay {
+
+    private static final int MAX_REPORTED_MISMATCHES = 10;
+    private static final String[] FIELDS = {"accel", "brake", "clutch", "gear", "steer", "meta"};
+
+    private final String controllerName;
+    private final FrameSource source;
+    private final double tolerance;
+    private final Controller.Stage stage;
+    private final String trackName;
+    private boolean verbose;
+
+    private long[] latencies = new long[1024];
+    private int frames;
+    private int episodes;
+    private final int[] fieldMismatches = new int[FIELDS.length];
+    private int mismatchingFrames;
+    private final int[] firstMismatches = new int[MAX_REPORTED_MISMATCHES];
+
+    /**
+     * Constructs a new Replay.
+     *
+     * @param controllerName The class name of the controller to drive.
+     * @param source         The recorded race.
+     * @param tolerance      The largest difference between a produced and a recorded value that is still a match.
+     * @param stage          The stage of the race passed to the controller.
+     * @param trackName      The name of the track passed to the controller.
+     */
+    public Replay(String controllerName, FrameSource source, double tolerance, Controller.Stage stage,
+                  String trackName) {
+        this.controllerName = controllerName;
+        this.source = source;
+        this.tolerance = tolerance;
+        this.stage = stage;
+        this.trackName = trackName;
+    }
+
+    /**
+     * Sets whether the controller prints its progress, which is kept out of the measurement by default.
+     *
+     * @param verbose True to let the controller print on every tick.
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * Replays the whole recording once with a fresh controller.
+     *
+     * @param settings How the controller learns and where it saves.
+     */
+    public void run(LearningSettings settings) {
+        Controller driver = Client.load(this.controllerName);
+        driver.setQuiet(!this.verbose);
+        driver.setStage(this.stage);
+        driver.setLearningSettings(settings);
+        driver.setTrackName(this.trackName);
+
+        this.frames = 0;
+        this.episodes = 0;
+        this.mismatchingFrames = 0;
+        Arrays.fill(this.fieldMismatches, 0);
+
+        this.source.rewind();
+        while (this.source.next()) {
+            if (this.source.isEpisodeStart()) {
+                if (this.episodes > 0)
+                    driver.reset();
+                this.episodes++;
+            }
+
+            // Controllers may keep the frames they receive, so every frame gets its own copy
+            SensorFrame sensors = new SensorFrame();
+            sensors.copyFrom(this.source.getSensors());
+
+            long start = System.nanoTime();
+            Action action = driver.control(sensors);
+            long elapsed = System.nanoTime() - start;
+
+            if (this.frames == this.latencies.length)
+                this.latencies = Arrays.copyOf(this.latencies, this.frames * 2);
+            this.latencies[this.frames] = elapsed;
+            this.compare(action, this.source.getAction());
+            this.frames++;
+        }
+        driver.shutdown();
+    }
+
+    /**
+     * Compares a produced action with the recorded one, after limiting it as it would be before being sent.
+     *
+     * @param produced The action produced by the controller.
+     * @param recorded The recorded action.
+     */
+    private void compare(Action produced, Action recorded) {
+        produced.limitValues();
+        boolean mismatch = false;
+        double[] differences = {
+                produced.accelerate - recorded.accelerate,
+                produced.brake - recorded.brake,
+                produced.clutch - recorded.clutch,
+                produced.gear - recorded.gear,
+                produced.steering - recorded.steering,
+                (produced.restartRace ? 1 : 0) - (recorded.restartRace ? 1 : 0)
+        };
+        for (int i = 0; i < differences.length; i++) {
+            if (Math.abs(differences[i]) > this.tolerance) {
+                this.fieldMismatches[i]++;
+                mismatch = true;
+            }
+        }
+        if (mismatch) {
+            if (this.mismatchingFrames < MAX_REPORTED_MISMATCHES)
+                this.firstMismatches[this.mismatchingFrames] = this.frames;
+            this.mismatchingFrames++;
+        }
+    }
+
+    /**
+     * Builds the report of the last pass.
+     *
+     * @return The report.
+     */
+    public String report() {
+        if (this.frames == 0)
+            return "No frames replayed.";
+        long[] sorted = Arrays.copyOf(this.latencies, this.frames);
+        Arrays.sort(sorted);
+        long total = 0;
+        for (long latency : sorted)
+            total += latency;
+
+        StringBuilder report = new StringBuilder();
+        report.append(this.frames).append(" frames, ").append(this.episodes).append(" episodes, ")
+                .append(String.format("%.1f", this.frames / (total / 1e9))).append(" frames/s of control()\n");
+        report.append(String.format("control() ns: mean %.0f, p50 %d, p90 %d, p99 %d, max %d\n",
+                (double) total / this.frames, percentile(sorted, 0.50), percentile(sorted, 0.90),
+                percentile(sorted, 0.99), sorted[sorted.length - 1]));
+        report.append(this.mismatchingFrames).append(" frames differ from the recording");
+        if (this.mismatchingFrames > 0) {
+            report.append(" (");
+            for (int i = 0; i < FIELDS.length; i++) {
+                report.append(FIELDS[i]).append(' ').append(this.fieldMismatches[i]);
+                report.append(i < FIELDS.length - 1 ? ", " : ")");
+            }
+            report.append(", first at frames ");
+            for (int i = 0; i < Math.min(this.mismatchingFrames, MAX_REPORTED_MISMATCHES); i++)
+                report.append(i > 0 ? " " : "").append(this.firstMismatches[i]);
+        }
+        return report.toString();
+    }
+
+    /**
+     * Returns the number of frames that differed from the recording in the last pass.
+     *
+     * @return The number of mismatching frames.
+     */
+    public int getMismatchingFrames() {
+        return mismatchingFrames;
+    }
+
+    /**
+     * Returns a percentile of sorted latencies.
+     *
+     * @param sorted   The latencies in ascending order.
+     * @param fraction The percentile, between 0 and 1.
+     *
+     * @return The latency at the percentile.
+     */
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (fraction * sorted.length))];
+    }
+
+    /**
+     * Replays a recorded race with a controller and prints the report of every pass.
+     *
+     * @param args The controller class name, the log and optional {@code name:value} options.
+     */
+    public static void main(String[] args) {
+        int passes = 1;
+        double tolerance = 1e-9;
+        String trackName = "unknown";
+        Controller.Stage stage = Controller.Stage.UNKNOWN;
+        String output = null;
+        boolean verbose = false;
+        for (int i = 2; i < args.length; i++) {
+            StringTokenizer st = new StringTokenizer(args[i], ":");
+            String entity = st.nextToken();
+            String value = st.nextToken();
+            if (entity.equals("passes"))
+                passes = Integer.parseInt(value);
+            if (entity.equals("tolerance"))
+                tolerance = Double.parseDouble(value);
+            if (entity.equals("trackName"))
+                trackName = value;
+            if (entity.equals("stage"))
+                stage = Controller.Stage.fromInt(Integer.parseInt(value));
+            if (entity.equals("output"))
+                output = value;
+            if (entity.equals("verbose"))
+                verbose = value.equals("on");
+        }
+
+        if (output == null) {
+            try {
+                output = Files.createTempDirectory("replay").toString();
+            } catch (IOException e) {
+                System.out.println("ERROR!!! -> Could not create the output directory...");
+                e.printStackTrace();
+                return;
+            }
+        }
+
+        FrameSource source = FrameSource.open(args[1]);
+        Replay replay = new Replay(args[0], source, tolerance, stage, trackName);
+        replay.setVerbose(verbose);
+        for (int pass = 1; pass <= passes; pass++) {
+            File directory = new File(output, "pass" + pass);
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                System.out.println("ERROR!!! -> Could not create " + directory);
+                break;
+            }
+            replay.run(new LearningSettings(Constants.LEARNING_RATE, Constants.DISCOUNT_FACTOR, true,
+                    directory.getPath()));
+            System.out.println("Pass " + pass + ": " + replay.report());
+        }
+        source.close();
+    }
+}
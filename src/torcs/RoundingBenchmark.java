@@ -0,0 +1,128 @@
+package torcs;
+
+import java.util.Random;
+import java.util.StringTokenizer;
+
+/**
+ * The RoundingBenchmark class checks that {@link Constants#round(double, int)} gives the same results as the
+ * {@code BigDecimal} rounding of {@link Constants#roundExact(double, int)} and measures both.
+ *
+ * <p>The check draws random numbers in the ranges the learners round (Q-values, rewards, accel and brake commands
+ * and their differences), numbers on both sides of every tie, and special values, and compares every decimal place
+ * count up to 15. The benchmark then times both on Q-values and commands. Usage: {@code java torcs.RoundingBenchmark [samples:N] [passes:N] [seed:N]}.</p>
+ */
+public class RoundingBenchmark {
+
+    private static final int[] DECIMALS = {3, 8};
+
+    /**
+     * Runs the check and the benchmark.
+     *
+     * @param args Optional {@code name:value} options.
+     */
+    public static void main(String[] args) {
+        int samples = 1000000;
+        int passes = 5;
+        long seed = 42;
+        for (String arg : args) {
+            StringTokenizer st = new StringTokenizer(arg, ":");
+            String entity = st.nextToken();
+            String value = st.nextToken();
+            if (entity.equals("samples"))
+                samples = Integer.parseInt(value);
+            if (entity.equals("passes"))
+                passes = Integer.parseInt(value);
+            if (entity.equals("seed"))
+                seed = Long.parseLong(value);
+        }
+
+        Random random = new Random(seed);
+        double[] numbers = new double[samples];
+        double[] hot = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            numbers[i] = sample(random, i);
+            // Only the ranges of the training hot path are timed
+            hot[i] = sample(random, 2 * (i % 2));
+        }
+
+        long mismatches = 0;
+        long checked = 0;
+        for (int dec = 0; dec <= 15; dec++) {
+            for (double number : numbers) {
+                checked++;
+                if (!same(Constants.round(number, dec), Constants.roundExact(number, dec))) {
+                    if (mismatches++ < 10)
+                        System.out.println("Mismatch: round(" + number + ", " + dec + ") = "
+                                + Constants.round(number, dec) + " instead of " + Constants.roundExact(number, dec));
+                }
+            }
+        }
+        System.out.println(checked + " roundings checked against BigDecimal, " + mismatches + " mismatches");
+
+        for (int pass = 1; pass <= passes; pass++) {
+            for (int dec : DECIMALS) {
+                double checksum = 0;
+                long start = System.nanoTime();
+                for (double number : hot)
+                    checksum += Constants.round(number, dec);
+                double fast = (System.nanoTime() - start) / (double) samples;
+
+                start = System.nanoTime();
+                for (double number : hot)
+                    checksum -= Constants.roundExact(number, dec);
+                double exact = (System.nanoTime() - start) / (double) samples;
+
+                System.out.println(String.format("Pass %d, %d decimals: %.1f ns/round, BigDecimal %.1f ns/round "
+                        + "(checksum %.3g)", pass, dec, fast, exact, checksum));
+            }
+        }
+    }
+
+    /**
+     * Draws a number to round: a Q-value or reward, a tie, a command, a number read back from a file, any double or
+     * a special value.
+     *
+     * @param random The random number generator.
+     * @param i      The index of the sample.
+     *
+     * @return The number.
+     */
+    private static double sample(Random random, int i) {
+        switch (i % 6) {
+            case 0:
+                // Q-values and rewards
+                return (random.nextDouble() * 2 - 1) * Math.pow(10, random.nextInt(7));
+            case 1:
+                // Decimal ties, and their neighbours
+                double tie = (random.nextInt(2000000) - 1000000 + 0.5) / Math.pow(10, random.nextInt(9));
+                int side = random.nextInt(3) - 1;
+                return side == 0 ? tie : side < 0 ? Math.nextDown(tie) : Math.nextUp(tie);
+            case 2:
+                // Accel and brake commands and their differences
+                return random.nextDouble() * 2 - 1;
+            case 3:
+                // Numbers with few significant digits, as read back from the .csv files
+                return Double.parseDouble(String.format("%.4f", (random.nextDouble() * 2 - 1) * 1000));
+            case 4:
+                // Any double, including huge and tiny ones
+                double any = Double.longBitsToDouble(random.nextLong());
+                return Double.isNaN(any) || Double.isInfinite(any) ? 0.0 : any;
+            default:
+                double[] special = {0.0, -0.0, Double.MIN_VALUE, -Double.MIN_VALUE, 0.5, -0.5, 1e15, 0x1p52, 0x1p53,
+                        Double.MAX_VALUE, 4.35, 1.005, 2.675, 0.125, 1e-9};
+                return special[random.nextInt(special.length)];
+        }
+    }
+
+    /**
+     * Checks whether two results are the same double, telling 0.0 from -0.0.
+     *
+     * @param a The first result.
+     * @param b The second result.
+     *
+     * @return True if they are the same.
+     */
+    private static boolean same(double a, double b) {
+        return Double.doubleToLongBits(a) == Double.doubleToLongBits(b);
+    }
+}
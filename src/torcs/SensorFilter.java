@@ -0,0 +1,101 @@
+package torcs;
+
+/**
+ * The SensorFilter class smooths the noisy sensor channels before they reach a {@link Controller}: the speed, the
+ * track position, the angle to the track axis and every track edge sensor are followed by an alpha-beta filter,
+ * which predicts the next reading from the current value and rate of change and corrects both by a fixed fraction
+ * of the prediction error. The other readings are passed through unchanged.
+ *
+ * <p>The filtered readings are written into a {@link SensorFrame} owned by the filter and returned on every tick, so
+ * filtering allocates nothing. The filter state lives in primitive arrays of fixed size.</p>
+ */
+public class SensorFilter {
+
+    private static final int SPEED = 0;
+    private static final int TRACK_POSITION = 1;
+    private static final int ANGLE = 2;
+    private static final int TRACK_EDGES = 3;
+    private static final int CHANNELS = TRACK_EDGES + SensorFrame.TRACK_SENSORS;
+
+    private final double alpha;
+    private final double beta;
+    private final SensorFrame frame = new SensorFrame();
+    // Estimated value and change per tick of every channel
+    private final double[] values = new double[CHANNELS];
+    private final double[] rates = new double[CHANNELS];
+    private final boolean[] tracking = new boolean[CHANNELS];
+
+    /**
+     * Constructs a new SensorFilter with the gains of {@link Constants}.
+     */
+    public SensorFilter() {
+        this(Constants.SENSOR_FILTER_ALPHA, Constants.SENSOR_FILTER_BETA);
+    }
+
+    /**
+     * Constructs a new SensorFilter.
+     *
+     * @param alpha The fraction of the prediction error added to the value, in (0, 1]; 1 disables the filter.
+     * @param beta  The fraction of the prediction error added to the rate of change, in [0, 2 - alpha).
+     */
+    public SensorFilter(double alpha, double beta) {
+        this.alpha = alpha;
+        this.beta = beta;
+    }
+
+    /**
+     * Forgets the filter state, at the start of an episode. The next readings are taken as they are.
+     */
+    public void reset() {
+        for (int c = 0; c < CHANNELS; c++)
+            this.tracking[c] = false;
+    }
+
+    /**
+     * Filters the readings of one tick.
+     *
+     * @param sensors The raw sensor readings.
+     *
+     * @return The filtered readings, in a frame that is overwritten on the next call.
+     */
+    public SensorModel filter(SensorModel sensors) {
+        SensorFrame frame = this.frame;
+        frame.copyFrom(sensors);
+        frame.speed = this.update(SPEED, frame.speed);
+        frame.trackPosition = this.update(TRACK_POSITION, frame.trackPosition);
+        frame.angleToTrackAxis = this.update(ANGLE, frame.angleToTrackAxis);
+
+        double[] edges = frame.trackEdgeSensors;
+        // Out of the track every rangefinder reads -1, which is not a distance to smooth
+        if (edges[0] < 0) {
+            for (int i = 0; i < edges.length; i++)
+                this.tracking[TRACK_EDGES + i] = false;
+        } else {
+            for (int i = 0; i < edges.length; i++)
+                edges[i] = this.update(TRACK_EDGES + i, edges[i]);
+        }
+        return frame;
+    }
+
+    /**
+     * Corrects the estimate of a channel with a new reading.
+     *
+     * @param channel The channel.
+     * @param reading The new reading.
+     *
+     * @return The filtered value.
+     */
+    private double update(int channel, double reading) {
+        if (!this.tracking[channel]) {
+            this.values[channel] = reading;
+            this.rates[channel] = 0;
+            this.tracking[channel] = true;
+            return reading;
+        }
+        double predicted = this.values[channel] + this.rates[channel];
+        double error = reading - predicted;
+        this.values[channel] = predicted + this.alpha * error;
+        this.rates[channel] += this.beta * error;
+        return this.values[channel];
+    }
+}
@@ -0,0 +1,557 @@
+package torcs;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The SensorFrame class implements the SensorModel interface with plain primitive fields and fixed-size arrays.
+ * A frame can be filled from any other sensor model and written to or read from a fixed-width binary record without
+ * allocating, which makes it suitable for recording, replaying and reusing readings on every tick.
+ *
+ * <p>The arrays have the sizes of the standard TORCS sensors; longer readings are truncated and shorter ones are
+ * padded with zeros.</p>
+ *
+ * <p>A frame can also be filled straight from a server message with {@link #parse(String)}, which reads the numbers
+ * in place instead of building the table of a {@link MessageParser}, so a client can reuse one frame for the whole
+ * race.</p>
+ */
+public class SensorFrame implements SensorModel {
+
+    public static final int TRACK_SENSORS = 19;
+    public static final int FOCUS_SENSORS = 5;
+    public static final int OPPONENT_SENSORS = 36;
+    public static final int WHEELS = 4;
+
+    /**
+     * The size in bytes of a frame written by {@link #write(ByteBuffer)}.
+     */
+    public static final int BYTES = (15 + TRACK_SENSORS + FOCUS_SENSORS + OPPONENT_SENSORS + WHEELS) * Double.BYTES;
+
+    // The powers of ten that are exact doubles
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+            1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    public double speed;
+    public double angleToTrackAxis;
+    public double trackPosition;
+    public int gear;
+    public int racePosition;
+    public double lateralSpeed;
+    public double currentLapTime;
+    public double damage;
+    public double distanceFromStartLine;
+    public double distanceRaced;
+    public double fuelLevel;
+    public double lastLapTime;
+    public double rpm;
+    public double zSpeed;
+    public double z;
+    public final double[] trackEdgeSensors = new double[TRACK_SENSORS];
+    public final double[] focusSensors = new double[FOCUS_SENSORS];
+    public final double[] opponentSensors = new double[OPPONENT_SENSORS];
+    public final double[] wheelSpinVelocity = new double[WHEELS];
+    private final DerivedFeatures features = new DerivedFeatures(this);
+
+    /**
+     * Copies all the readings of another sensor model into this frame.
+     *
+     * @param sensors The sensor model to copy.
+     */
+    public void copyFrom(SensorModel sensors) {
+        this.speed = sensors.getSpeed();
+        this.angleToTrackAxis = sensors.getAngleToTrackAxis();
+        this.trackPosition = sensors.getTrackPosition();
+        this.gear = sensors.getGear();
+        this.racePosition = sensors.getRacePosition();
+        this.lateralSpeed = sensors.getLateralSpeed();
+        this.currentLapTime = sensors.getCurrentLapTime();
+        this.damage = sensors.getDamage();
+        this.distanceFromStartLine = sensors.getDistanceFromStartLine();
+        this.distanceRaced = sensors.getDistanceRaced();
+        this.fuelLevel = sensors.getFuelLevel();
+        this.lastLapTime = sensors.getLastLapTime();
+        this.rpm = sensors.getRPM();
+        this.zSpeed = sensors.getZSpeed();
+        this.z = sensors.getZ();
+        copy(sensors.getTrackEdgeSensors(), this.trackEdgeSensors);
+        copy(sensors.getFocusSensors(), this.focusSensors);
+        copy(sensors.getOpponentSensors(), this.opponentSensors);
+        copy(sensors.getWheelSpinVelocity(), this.wheelSpinVelocity);
+        this.features.invalidate();
+    }
+
+    /**
+     * Writes this frame as a fixed-width record of {@link #BYTES} bytes at the current position of a buffer.
+     *
+     * @param buffer The buffer to write to.
+     */
+    public void write(ByteBuffer buffer) {
+        buffer.putDouble(this.speed);
+        buffer.putDouble(this.angleToTrackAxis);
+        buffer.putDouble(this.trackPosition);
+        buffer.putDouble(this.gear);
+        buffer.putDouble(this.racePosition);
+        buffer.putDouble(this.lateralSpeed);
+        buffer.putDouble(this.currentLapTime);
+        buffer.putDouble(this.damage);
+        buffer.putDouble(this.distanceFromStartLine);
+        buffer.putDouble(this.distanceRaced);
+        buffer.putDouble(this.fuelLevel);
+        buffer.putDouble(this.lastLapTime);
+        buffer.putDouble(this.rpm);
+        buffer.putDouble(this.zSpeed);
+        buffer.putDouble(this.z);
+        for (double value : this.trackEdgeSensors)
+            buffer.putDouble(value);
+        for (double value : this.focusSensors)
+            buffer.putDouble(value);
+        for (double value : this.opponentSensors)
+            buffer.putDouble(value);
+        for (double value : this.wheelSpinVelocity)
+            buffer.putDouble(value);
+    }
+
+    /**
+     * Reads this frame from a record written by {@link #write(ByteBuffer)} at the current position of a buffer.
+     *
+     * @param buffer The buffer to read from.
+     */
+    public void read(ByteBuffer buffer) {
+        this.speed = buffer.getDouble();
+        this.angleToTrackAxis = buffer.getDouble();
+        this.trackPosition = buffer.getDouble();
+        this.gear = (int) buffer.getDouble();
+        this.racePosition = (int) buffer.getDouble();
+        this.lateralSpeed = buffer.getDouble();
+        this.currentLapTime = buffer.getDouble();
+        this.damage = buffer.getDouble();
+        this.distanceFromStartLine = buffer.getDouble();
+        this.distanceRaced = buffer.getDouble();
+        this.fuelLevel = buffer.getDouble();
+        this.lastLapTime = buffer.getDouble();
+        this.rpm = buffer.getDouble();
+        this.zSpeed = buffer.getDouble();
+        this.z = buffer.getDouble();
+        for (int i = 0; i < TRACK_SENSORS; i++)
+            this.trackEdgeSensors[i] = buffer.getDouble();
+        for (int i = 0; i < FOCUS_SENSORS; i++)
+            this.focusSensors[i] = buffer.getDouble();
+        for (int i = 0; i < OPPONENT_SENSORS; i++)
+            this.opponentSensors[i] = buffer.getDouble();
+        for (int i = 0; i < WHEELS; i++)
+            this.wheelSpinVelocity[i] = buffer.getDouble();
+        this.features.invalidate();
+    }
+
+    /**
+     * Fills this frame from a message of the TORCS server, such as {@code (angle 0.003)(curLapTime -0.982)...}. The
+     * readings are the same as those of a {@link MessageBasedSensorModel} of the message; the ones missing from it
+     * keep their values, except that the arrays are padded with zeros. Nothing is allocated unless a number has more
+     * than 15 significant digits or an exponent.
+     *
+     * @param message The message.
+     */
+    public void parse(String message) {
+        int length = message.length();
+        int open = message.indexOf('(');
+        while (open >= 0) {
+            int start = open + 1;
+            int nameEnd = start;
+            while (nameEnd < length && message.charAt(nameEnd) != ' ' && message.charAt(nameEnd) != ')')
+                nameEnd++;
+            int close = message.indexOf(')', nameEnd);
+            if (close < 0)
+                close = length;
+            int next = message.indexOf('(', start);
+            if (next >= 0 && next < close)
+                close = next;
+
+            if (name(message, start, nameEnd, "speedX"))
+                this.speed = value(message, nameEnd, close, this.speed);
+            else if (name(message, start, nameEnd, "angle"))
+                this.angleToTrackAxis = value(message, nameEnd, close, this.angleToTrackAxis);
+            else if (name(message, start, nameEnd, "trackPos"))
+                this.trackPosition = value(message, nameEnd, close, this.trackPosition);
+            else if (name(message, start, nameEnd, "gear"))
+                this.gear = (int) value(message, nameEnd, close, this.gear);
+            else if (name(message, start, nameEnd, "racePos"))
+                this.racePosition = (int) value(message, nameEnd, close, this.racePosition);
+            else if (name(message, start, nameEnd, "speedY"))
+                this.lateralSpeed = value(message, nameEnd, close, this.lateralSpeed);
+            else if (name(message, start, nameEnd, "curLapTime"))
+                this.currentLapTime = value(message, nameEnd, close, this.currentLapTime);
+            else if (name(message, start, nameEnd, "damage"))
+                this.damage = value(message, nameEnd, close, this.damage);
+            else if (name(message, start, nameEnd, "distFromStart"))
+                this.distanceFromStartLine = value(message, nameEnd, close, this.distanceFromStartLine);
+            else if (name(message, start, nameEnd, "distRaced"))
+                this.distanceRaced = value(message, nameEnd, close, this.distanceRaced);
+            else if (name(message, start, nameEnd, "fuel"))
+                this.fuelLevel = value(message, nameEnd, close, this.fuelLevel);
+            else if (name(message, start, nameEnd, "lastLapTime"))
+                this.lastLapTime = value(message, nameEnd, close, this.lastLapTime);
+            else if (name(message, start, nameEnd, "rpm"))
+                this.rpm = value(message, nameEnd, close, this.rpm);
+            else if (name(message, start, nameEnd, "speedZ"))
+                this.zSpeed = value(message, nameEnd, close, this.zSpeed);
+            else if (name(message, start, nameEnd, "z"))
+                this.z = value(message, nameEnd, close, this.z);
+            else if (name(message, start, nameEnd, "track"))
+                values(message, nameEnd, close, this.trackEdgeSensors);
+            else if (name(message, start, nameEnd, "focus"))
+                values(message, nameEnd, close, this.focusSensors);
+            else if (name(message, start, nameEnd, "opponents"))
+                values(message, nameEnd, close, this.opponentSensors);
+            else if (name(message, start, nameEnd, "wheelSpinVel"))
+                values(message, nameEnd, close, this.wheelSpinVelocity);
+
+            open = next;
+        }
+        this.features.invalidate();
+    }
+
+    /**
+     * Checks whether the name of a reading in a message is the given one.
+     *
+     * @param message The message.
+     * @param start   The index of the first character of the name.
+     * @param end     The index after the last character of the name.
+     * @param name    The name to compare with.
+     *
+     * @return True if the names are the same.
+     */
+    private static boolean name(String message, int start, int end, String name) {
+        return end - start == name.length() && message.regionMatches(start, name, 0, name.length());
+    }
+
+    /**
+     * Parses the first value of a reading.
+     *
+     * @param message  The message.
+     * @param from     The index after the name of the reading.
+     * @param end      The index of the end of the reading.
+     * @param previous The value to keep if the reading has none.
+     *
+     * @return The value.
+     */
+    private static double value(String message, int from, int end, double previous) {
+        int start = skipSpaces(message, from, end);
+        if (start == end)
+            return previous;
+        return number(message, start, tokenEnd(message, start, end));
+    }
+
+    /**
+     * Parses the values of a reading into a fixed-size array, truncating or padding them with zeros.
+     *
+     * @param message The message.
+     * @param from    The index after the name of the reading.
+     * @param end     The index of the end of the reading.
+     * @param to      The array to fill.
+     */
+    private static void values(String message, int from, int end, double[] to) {
+        int n = 0;
+        int start = skipSpaces(message, from, end);
+        while (start < end && n < to.length) {
+            int stop = tokenEnd(message, start, end);
+            to[n++] = number(message, start, stop);
+            start = skipSpaces(message, stop, end);
+        }
+        for (int i = n; i < to.length; i++)
+            to[i] = 0.0;
+    }
+
+    /**
+     * Returns the index of the first character that is not a space.
+     *
+     * @param message The message.
+     * @param from    The index to start from.
+     * @param end     The index to stop at.
+     *
+     * @return The index, or end if there is none.
+     */
+    private static int skipSpaces(String message, int from, int end) {
+        while (from < end && message.charAt(from) == ' ')
+            from++;
+        return from;
+    }
+
+    /**
+     * Returns the index after the last character of a number.
+     *
+     * @param message The message.
+     * @param start   The index of the first character of the number.
+     * @param end     The index to stop at.
+     *
+     * @return The index of the next space, or end if there is none.
+     */
+    private static int tokenEnd(String message, int start, int end) {
+        while (start < end && message.charAt(start) != ' ')
+            start++;
+        return start;
+    }
+
+    /**
+     * Parses a decimal number. Numbers of up to 15 significant digits and no exponent are divided by a power of ten,
+     * which gives the correctly rounded double as {@link Double#parseDouble(String)} does, since both operands are
+     * exact; the rest fall back to it.
+     *
+     * @param message The message.
+     * @param start   The index of the first character of the number.
+     * @param end     The index after the last character of the number.
+     *
+     * @return The number, or 0 if it cannot be parsed.
+     */
+    private static double number(String message, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (message.charAt(i) == '-' || message.charAt(i) == '+')) {
+            negative = message.charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = 0;
+        boolean point = false;
+        boolean seen = false;
+        boolean fast = true;
+        for (; i < end && fast; i++) {
+            char c = message.charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                seen = true;
+                if (point)
+                    decimals++;
+                // Only the digits from the first non-zero one on can make the mantissa inexact
+                if (mantissa != 0)
+                    digits++;
+                fast = digits <= 15;
+            } else if (c == '.' && !point)
+                point = true;
+            else
+                fast = false;
+        }
+        if (fast && seen && decimals < POWERS_OF_TEN.length) {
+            double number = mantissa / POWERS_OF_TEN[decimals];
+            return negative ? -number : number;
+        }
+        String token = message.substring(start, end);
+        try {
+            return Double.parseDouble(token);
+        } catch (Exception e) {
+            System.out.println("Error parsing value '" + token + "' using 0.0");
+            System.out.println("Message: " + message);
+            return 0.0;
+        }
+    }
+
+    /**
+     * Copies a reading into a fixed-size array, truncating or padding it with zeros.
+     *
+     * @param from The reading, which may be null if the sensor was not sent.
+     * @param to   The array to fill.
+     */
+    private static void copy(double[] from, double[] to) {
+        int n = from == null ? 0 : Math.min(from.length, to.length);
+        if (n > 0)
+            System.arraycopy(from, 0, to, 0, n);
+        for (int i = n; i < to.length; i++)
+            to[i] = 0.0;
+    }
+
+    /**
+     * Retrieves the current speed of the car.
+     *
+     * @return The car's speed in units per second.
+     */
+    public double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Retrieves the angle between the car's orientation and the track's axis.
+     *
+     * @return The angle to the track's axis in radians.
+     */
+    public double getAngleToTrackAxis() {
+        return angleToTrackAxis;
+    }
+
+    /**
+     * Retrieves an array of sensor readings representing the track's edge distances.
+     *
+     * @return An array of track edge sensor readings.
+     */
+    public double[] getTrackEdgeSensors() {
+        return trackEdgeSensors;
+    }
+
+    /**
+     * Retrieves an array of sensor readings representing the focus on specific objects in the environment.
+     *
+     * @return An array of focus sensor readings.
+     */
+    public double[] getFocusSensors() {
+        return focusSensors;
+    }
+
+    /**
+     * Retrieves the car's position on the track.
+     *
+     * @return The car's track position as a value between -1.0 (left) and 1.0 (right).
+     */
+    public double getTrackPosition() {
+        return trackPosition;
+    }
+
+    /**
+     * Retrieves the current gear of the car.
+     *
+     * @return The car's gear as an integer value.
+     */
+    public int getGear() {
+        return gear;
+    }
+
+    /**
+     * Retrieves an array of sensor readings representing other cars on the track.
+     *
+     * @return An array of opponent sensor readings.
+     */
+    public double[] getOpponentSensors() {
+        return opponentSensors;
+    }
+
+    /**
+     * Retrieves the current race position of the car.
+     *
+     * @return The car's race position as an integer value.
+     */
+    public int getRacePosition() {
+        return racePosition;
+    }
+
+    /**
+     * Retrieves the lateral speed of the car.
+     *
+     * @return The car's lateral speed in units per second.
+     */
+    public double getLateralSpeed() {
+        return lateralSpeed;
+    }
+
+    /**
+     * Retrieves the current lap time of the car.
+     *
+     * @return The car's current lap time in seconds.
+     */
+    public double getCurrentLapTime() {
+        return currentLapTime;
+    }
+
+    /**
+     * Retrieves the damage level of the car.
+     *
+     * @return The car's damage level as a value between 0.0 (no damage) and 1.0 (severe damage).
+     */
+    public double getDamage() {
+        return damage;
+    }
+
+    /**
+     * Retrieves the distance from the start line to the car's current position.
+     *
+     * @return The car's distance from the start line in meters.
+     */
+    public double getDistanceFromStartLine() {
+        return distanceFromStartLine;
+    }
+
+    /**
+     * Retrieves the total distance raced by the car.
+     *
+     * @return The car's total distance raced in meters.
+     */
+    public double getDistanceRaced() {
+        return distanceRaced;
+    }
+
+    /**
+     * Retrieves the current fuel level of the car.
+     *
+     * @return The car's fuel level as a percentage.
+     */
+    public double getFuelLevel() {
+        return fuelLevel;
+    }
+
+    /**
+     * Retrieves the time taken to complete the last lap.
+     *
+     * @return The car's last lap time in seconds.
+     */
+    public double getLastLapTime() {
+        return lastLapTime;
+    }
+
+    /**
+     * Retrieves the current RPM (Revolutions Per Minute) of the car's engine.
+     *
+     * @return The car's current RPM.
+     */
+    public double getRPM() {
+        return rpm;
+    }
+
+    /**
+     * Retrieves an array of sensor readings representing the wheel spin velocities.
+     *
+     * @return An array of wheel spin velocity sensor readings.
+     */
+    public double[] getWheelSpinVelocity() {
+        return wheelSpinVelocity;
+    }
+
+    /**
+     * Retrieves the speed of the car along the z-axis (vertical axis).
+     *
+     * @return The car's z-axis speed in units per second.
+     */
+    public double getZSpeed() {
+        return zSpeed;
+    }
+
+    /**
+     * Retrieves the z-coordinate of the car's position.
+     *
+     * @return The car's z-coordinate.
+     */
+    public double getZ() {
+        return z;
+    }
+
+    /**
+     * A frame is not backed by a server message.
+     *
+     * @return Always null.
+     */
+    public String getMessage() {
+        return null;
+    }
+
+    /**
+     * Retrieves the quantities derived from the readings of this frame. Code that changes the public fields
+     * directly must call {@link #invalidateFeatures()} afterwards.
+     *
+     * @return The derived features.
+     */
+    public DerivedFeatures getFeatures() {
+        return features;
+    }
+
+    /**
+     * Forgets the derived features, after the readings of this frame were changed in place.
+     */
+    public void invalidateFeatures() {
+        this.features.invalidate();
+    }
+}
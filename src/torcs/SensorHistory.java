@@ -0,0 +1,204 @@
+package torcs;
+
+/**
+ * The SensorHistory class keeps the scalar readings of the last ticks in a ring of primitive arrays, so controllers
+ * can compute deltas, moving averages and exponentially smoothed values without holding on to the sensor models of
+ * earlier ticks. Recording a tick copies one value per {@link Channel} and allocates nothing; every query takes
+ * constant time.
+ *
+ * <p>Queries about more ticks than were recorded since the last {@link #clear()} use the oldest recorded tick, so
+ * the deltas at the start of an episode are zero, as when the previous and current sensor models are the same.</p>
+ */
+public class SensorHistory {
+
+    private static final Channel[] CHANNELS = Channel.values();
+
+    private final int capacity;
+    private final double smoothing;
+    // Channel c of the tick in slot s is at c * capacity + s
+    private final double[] values;
+    private final double[] sums;
+    private final double[] smoothed;
+    private int newest;
+    private int size;
+
+    /**
+     * Constructs a new SensorHistory with the capacity and smoothing factor of {@link Constants}.
+     */
+    public SensorHistory() {
+        this(Constants.SENSOR_HISTORY_CAPACITY, Constants.SENSOR_HISTORY_SMOOTHING);
+    }
+
+    /**
+     * Constructs a new SensorHistory.
+     *
+     * @param capacity  The number of ticks kept.
+     * @param smoothing The weight of the newest tick in the exponentially smoothed values, in (0, 1].
+     */
+    public SensorHistory(int capacity, double smoothing) {
+        this.capacity = capacity;
+        this.smoothing = smoothing;
+        this.values = new double[CHANNELS.length * capacity];
+        this.sums = new double[CHANNELS.length];
+        this.smoothed = new double[CHANNELS.length];
+        this.clear();
+    }
+
+    /**
+     * Forgets every recorded tick, at the start of an episode.
+     */
+    public void clear() {
+        this.newest = this.capacity - 1;
+        this.size = 0;
+        for (int c = 0; c < CHANNELS.length; c++) {
+            this.sums[c] = 0;
+            this.smoothed[c] = 0;
+        }
+    }
+
+    /**
+     * Records the readings of one tick, replacing the oldest tick once the history is full.
+     *
+     * @param sensors The sensor readings.
+     */
+    public void record(SensorModel sensors) {
+        this.newest = (this.newest + 1) % this.capacity;
+        boolean full = this.size == this.capacity;
+        for (int c = 0; c < CHANNELS.length; c++) {
+            double value = CHANNELS[c].read(sensors);
+            int index = c * this.capacity + this.newest;
+            if (full)
+                this.sums[c] -= this.values[index];
+            this.values[index] = value;
+            this.sums[c] += value;
+            this.smoothed[c] = this.size == 0 ? value : this.smoothed[c] + this.smoothing * (value - this.smoothed[c]);
+        }
+        if (!full)
+            this.size++;
+        // Adding and subtracting accumulates rounding errors, so the sums start over once per lap of the ring
+        if (full && this.newest == this.capacity - 1)
+            this.resum();
+    }
+
+    /**
+     * Recomputes the running sums from the recorded values.
+     */
+    private void resum() {
+        for (int c = 0; c < CHANNELS.length; c++) {
+            double sum = 0;
+            int offset = c * this.capacity;
+            for (int s = 0; s < this.capacity; s++)
+                sum += this.values[offset + s];
+            this.sums[c] = sum;
+        }
+    }
+
+    /**
+     * Returns the reading of a channel some ticks ago.
+     *
+     * @param channel  The channel.
+     * @param ticksAgo The number of ticks before the newest one, 0 for the newest.
+     *
+     * @return The reading, or 0 if nothing was recorded.
+     */
+    public double get(Channel channel, int ticksAgo) {
+        if (this.size == 0)
+            return 0;
+        int back = Math.min(Math.max(ticksAgo, 0), this.size - 1);
+        int slot = (this.newest - back + this.capacity) % this.capacity;
+        return this.values[channel.ordinal() * this.capacity + slot];
+    }
+
+    /**
+     * Returns how much a channel changed over some ticks.
+     *
+     * @param channel The channel.
+     * @param ticks   The number of ticks.
+     *
+     * @return The newest reading minus the one {@code ticks} ticks before it.
+     */
+    public double delta(Channel channel, int ticks) {
+        return this.get(channel, 0) - this.get(channel, ticks);
+    }
+
+    /**
+     * Returns the mean of a channel over the recorded ticks.
+     *
+     * @param channel The channel.
+     *
+     * @return The mean, or 0 if nothing was recorded.
+     */
+    public double average(Channel channel) {
+        return this.size == 0 ? 0 : this.sums[channel.ordinal()] / this.size;
+    }
+
+    /**
+     * Returns the exponentially smoothed value of a channel.
+     *
+     * @param channel The channel.
+     *
+     * @return The smoothed value, or 0 if nothing was recorded.
+     */
+    public double smoothed(Channel channel) {
+        return this.smoothed[channel.ordinal()];
+    }
+
+    /**
+     * Returns the number of recorded ticks.
+     *
+     * @return The number of ticks, at most the capacity.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of ticks kept.
+     *
+     * @return The capacity.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * The scalar readings kept by a SensorHistory.
+     */
+    public enum Channel {
+        SPEED, LATERAL_SPEED, ANGLE_TO_TRACK_AXIS, TRACK_POSITION, RPM, GEAR, DAMAGE, DISTANCE_RACED, RACE_POSITION,
+        CURRENT_LAP_TIME;
+
+        /**
+         * Reads the value of this channel from a sensor model.
+         *
+         * @param sensors The sensor readings.
+         *
+         * @return The value.
+         */
+        double read(SensorModel sensors) {
+            switch (this) {
+                case SPEED:
+                    return sensors.getSpeed();
+                case LATERAL_SPEED:
+                    return sensors.getLateralSpeed();
+                case ANGLE_TO_TRACK_AXIS:
+                    return sensors.getAngleToTrackAxis();
+                case TRACK_POSITION:
+                    return sensors.getTrackPosition();
+                case RPM:
+                    return sensors.getRPM();
+                case GEAR:
+                    return sensors.getGear();
+                case DAMAGE:
+                    return sensors.getDamage();
+                case DISTANCE_RACED:
+                    return sensors.getDistanceRaced();
+                case RACE_POSITION:
+                    return sensors.getRacePosition();
+                case CURRENT_LAP_TIME:
+                    return sensors.getCurrentLapTime();
+            }
+            return 0;
+        }
+    }
+}
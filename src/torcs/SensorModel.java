@@ -154,4 +154,11 @@ public interface SensorModel {
      * @return The car's message as a string.
      */
     public String getMessage();
+
+    /**
+     * Retrieves the quantities derived from these readings, computed once and shared by everyone who asks.
+     *
+     * @return The derived features.
+     */
+    public DerivedFeatures getFeatures();
 }
\ No newline at end of file
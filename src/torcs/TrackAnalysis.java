@@ -0,0 +1,291 @@
+package torcs;
+
+/**
+ * The TrackAnalysis class summarizes the whole rangefinder array of one tick: the direction of the longest free ray,
+ * an estimate of the curvature of the track ahead, the free-space profile along and across the car, the free area
+ * in front of it, the left/right asymmetry of the free space and the nearest edge seen by the focus sensors.
+ *
+ * <p>Every quantity is computed by a few counted passes over the arrays, against the sines, cosines and angular widths
+ * of the rays computed once in the constructor, with only minimums, maximums and sums in their bodies, so the JIT
+ * compiler can turn the passes into SIMD instructions. An instance is reused from tick to tick:
+ * {@link #analyze(double[], double[])} overwrites the previous results.</p>
+ */
+public class TrackAnalysis {
+
+    private static final double MAX_RANGE = 200.0;
+
+    private final float[] angles;
+    private final double[] sines;
+    private final double[] cosines;
+    private final double[] halfSpans;
+    private final int ahead;
+
+    private final double[] forward;
+    private final double[] lateral;
+
+    private boolean valid;
+    private int longestRay;
+    private double longestDistance;
+    private double curvature;
+    private double asymmetry;
+    private double meanFreeSpace;
+    private double freeArea;
+    private double width;
+    private double focusDistance;
+
+    /**
+     * Constructs a new TrackAnalysis for the default rangefinders of {@link Controller#initAngles()}.
+     */
+    public TrackAnalysis() {
+        this(defaultAngles());
+    }
+
+    /**
+     * Constructs a new TrackAnalysis for rangefinders at given angles.
+     *
+     * @param angles The angles of the rangefinders in degrees, in increasing order, negative on the left.
+     */
+    public TrackAnalysis(float[] angles) {
+        int n = angles.length;
+        this.angles = angles.clone();
+        this.sines = new double[n];
+        this.cosines = new double[n];
+        this.halfSpans = new double[n];
+        this.forward = new double[n];
+        this.lateral = new double[n];
+
+        int ahead = 0;
+        for (int i = 0; i < n; i++) {
+            double radians = Math.toRadians(angles[i]);
+            this.sines[i] = Math.sin(radians);
+            this.cosines[i] = Math.cos(radians);
+            if (Math.abs(angles[i]) < Math.abs(angles[ahead]))
+                ahead = i;
+            // Every ray stands for the sector halfway to its neighbours
+            double before = i > 0 ? angles[i] - angles[i - 1] : 0;
+            double after = i < n - 1 ? angles[i + 1] - angles[i] : 0;
+            this.halfSpans[i] = Math.toRadians((before + after) / 2) / 2;
+        }
+        this.ahead = ahead;
+    }
+
+    /**
+     * Returns the default rangefinder angles of {@link Controller#initAngles()}: from -90 to 90 degrees in steps of
+     * 10.
+     *
+     * @return The angles in degrees.
+     */
+    public static float[] defaultAngles() {
+        float[] angles = new float[SensorFrame.TRACK_SENSORS];
+        for (int i = 0; i < angles.length; i++)
+            angles[i] = -90 + i * 10;
+        return angles;
+    }
+
+    /**
+     * Analyzes the rangefinder readings of one tick.
+     *
+     * @param track The track edge sensors, at the angles of this analysis.
+     * @param focus The focus sensors, or null if there are none.
+     *
+     * @return True if the readings are valid, false if the car is outside the track and they are all -1.
+     */
+    public boolean analyze(double[] track, double[] focus) {
+        int n = this.angles.length;
+        this.valid = track[this.ahead] >= 0;
+        if (!this.valid) {
+            this.longestRay = this.ahead;
+            this.longestDistance = this.curvature = this.asymmetry = 0;
+            this.meanFreeSpace = this.freeArea = this.width = 0;
+            this.focusDistance = -1;
+            return false;
+        }
+
+        // Profile: how far the free space reaches along and across the car in the direction of every ray
+        for (int i = 0; i < n; i++) {
+            this.forward[i] = track[i] * this.cosines[i];
+            this.lateral[i] = track[i] * this.sines[i];
+        }
+
+        double longest = 0;
+        double sum = 0;
+        double area = 0;
+        double right = 0;
+        double left = 0;
+        for (int i = 0; i < n; i++) {
+            double distance = track[i];
+            longest = Math.max(longest, distance);
+            sum += distance;
+            area += distance * distance * this.halfSpans[i];
+            // The lateral reach of the rays is positive on the right and negative on the left
+            right = Math.max(right, this.lateral[i]);
+            left = Math.min(left, this.lateral[i]);
+        }
+        this.longestDistance = longest;
+        this.meanFreeSpace = sum / n;
+        this.freeArea = area;
+        this.width = right - left;
+
+        // Of equally long rays, the one closest to straight ahead
+        int best = this.ahead;
+        for (int i = 0; i < n; i++) {
+            if (track[i] == longest && Math.abs(this.angles[i]) < Math.abs(this.angles[best]))
+                best = i;
+        }
+        this.longestRay = best;
+
+        // Asymmetry of the free area: positive when there is more room on the right
+        double rightArea = 0;
+        double leftArea = 0;
+        for (int i = 0; i < this.ahead; i++)
+            leftArea += track[i] * track[i] * this.halfSpans[i];
+        for (int i = this.ahead + 1; i < n; i++)
+            rightArea += track[i] * track[i] * this.halfSpans[i];
+        double sides = rightArea + leftArea;
+        this.asymmetry = sides > 0 ? (rightArea - leftArea) / sides : 0;
+
+        this.curvature = this.estimateCurvature(track);
+
+        double nearest = -1;
+        if (focus != null && focus.length > 0 && focus[0] >= 0) {
+            nearest = MAX_RANGE;
+            for (double distance : focus)
+                nearest = Math.min(nearest, distance);
+        }
+        this.focusDistance = nearest;
+        return true;
+    }
+
+    /**
+     * Estimates the curvature of the track ahead from the rangefinders: the free distance straight ahead of a car
+     * in a turn of radius R on a track of width W is about the square root of R * W. The turn is on the side of the
+     * longer neighbour of the ray straight ahead.
+     *
+     * @param track The track edge sensors.
+     *
+     * @return The curvature in 1/m, positive for left turns, or NaN if the car is too close to the edge ahead to
+     *         tell.
+     */
+    private double estimateCurvature(double[] track) {
+        double distance = track[this.ahead];
+        if (distance >= MAX_RANGE || this.ahead == 0 || this.ahead == track.length - 1)
+            return 0;
+        if (distance < this.width)
+            return Double.NaN;
+        double magnitude = this.width / (distance * distance);
+        return track[this.ahead - 1] > track[this.ahead + 1] ? magnitude : -magnitude;
+    }
+
+    /**
+     * Checks whether the last readings were taken on the track.
+     *
+     * @return True if they were valid, false otherwise.
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * Returns the index of the longest free ray; of equally long rays, the one closest to straight ahead.
+     *
+     * @return The index of the rangefinder.
+     */
+    public int getLongestRay() {
+        return longestRay;
+    }
+
+    /**
+     * Returns the direction of the longest free ray.
+     *
+     * @return The angle in degrees, negative on the left.
+     */
+    public double getLongestRayAngle() {
+        return this.angles[this.longestRay];
+    }
+
+    /**
+     * Returns the length of the longest free ray.
+     *
+     * @return The distance in meters.
+     */
+    public double getLongestDistance() {
+        return longestDistance;
+    }
+
+    /**
+     * Returns the estimated curvature of the track ahead.
+     *
+     * @return The curvature in 1/m, positive for left turns, or NaN if the car is too close to the edge ahead to
+     *         tell.
+     */
+    public double getCurvature() {
+        return curvature;
+    }
+
+    /**
+     * Returns the left/right asymmetry of the free area around the car.
+     *
+     * @return A value in [-1, 1], positive when there is more room on the right.
+     */
+    public double getAsymmetry() {
+        return asymmetry;
+    }
+
+    /**
+     * Returns the mean length of the rays.
+     *
+     * @return The distance in meters.
+     */
+    public double getMeanFreeSpace() {
+        return meanFreeSpace;
+    }
+
+    /**
+     * Returns the free area in front of the car, as the sum of the circular sectors of the rays.
+     *
+     * @return The area in square meters.
+     */
+    public double getFreeArea() {
+        return freeArea;
+    }
+
+    /**
+     * Returns the width of the track seen by the rays: the lateral reach on the right plus the one on the left.
+     *
+     * @return The width in meters.
+     */
+    public double getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the free distance of a ray along the car.
+     *
+     * @param ray The index of the rangefinder.
+     *
+     * @return The distance in meters.
+     */
+    public double getForward(int ray) {
+        return this.forward[ray];
+    }
+
+    /**
+     * Returns the free distance of a ray across the car.
+     *
+     * @param ray The index of the rangefinder.
+     *
+     * @return The distance in meters, positive on the right.
+     */
+    public double getLateral(int ray) {
+        return this.lateral[ray];
+    }
+
+    /**
+     * Returns the shortest reading of the focus sensors.
+     *
+     * @return The distance in meters, or -1 if the focus sensors were not available.
+     */
+    public double getFocusDistance() {
+        return focusDistance;
+    }
+}
@@ -0,0 +1,362 @@
+package torcs;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Scanner;
+
+import static torcs.Constants.*;
+
+/**
+ * The TrackMap class learns the layout of a track while driving, in fixed-size arrays of buckets of
+ * {@link Constants#TRACK_MAP_BUCKET} meters indexed by the distance from the start line. Every bucket keeps an
+ * estimate of the curvature observed from the rangefinders, the highest speed that was driven through it without
+ * leaving the track soon after, the speed cap learned from the times the car left the track there, and the number of
+ * those off-track events.
+ *
+ * <p>From these the map derives a target speed for every bucket that already accounts for the braking distance of
+ * the corners ahead, so a driver that knows the track only needs one array access per tick to brake early for known
+ * corners. The map is saved per track name and loaded when the driver starts; a driver given
+ * {@link LearningSettings} saves it to their directory instead, and starts from an empty map unless they load the saved
+ * tables.</p>
+ */
+public class TrackMap {
+
+    private static final double LATERAL_ACCELERATION = 9.0; // m/s^2
+    private static final double BRAKING_DECELERATION = 8.0; // m/s^2
+    private static final double CURVATURE_WEIGHT = 0.1;
+    private static final double MAX_OBSERVED_ANGLE = 0.2;
+    private static final double OFF_TRACK_FACTOR = 0.9;
+    private static final double NO_LIMIT = Double.MAX_VALUE;
+
+    private final String trackName;
+    private final String savePath;
+    private final double bucketSize;
+    private final int safeBuckets;
+    private double length;
+
+    private final double[] curvature;
+    private final int[] samples;
+    private final double[] safeSpeed;
+    private final double[] speedCap;
+    private final int[] offTracks;
+    private final double[] targetSpeed;
+
+    // Speeds of the current run that are not yet known to be safe
+    private final double[] runSpeed;
+    private int pending;
+
+    /**
+     * Constructs an empty TrackMap for the specified track, saved to the file of the track.
+     *
+     * @param trackName The name of the track.
+     */
+    public TrackMap(String trackName) {
+        this(trackName, path(trackName));
+    }
+
+    /**
+     * Constructs an empty TrackMap for the specified track, saved to a file of choice.
+     *
+     * @param trackName The name of the track.
+     * @param savePath  The file the map is saved to.
+     */
+    public TrackMap(String trackName, String savePath) {
+        this.trackName = trackName;
+        this.savePath = savePath;
+        this.bucketSize = TRACK_MAP_BUCKET;
+        this.safeBuckets = (int) Math.ceil(TRACK_MAP_SAFE_DISTANCE / this.bucketSize);
+        this.curvature = new double[TRACK_MAP_BUCKETS];
+        this.samples = new int[TRACK_MAP_BUCKETS];
+        this.safeSpeed = new double[TRACK_MAP_BUCKETS];
+        this.speedCap = new double[TRACK_MAP_BUCKETS];
+        this.offTracks = new int[TRACK_MAP_BUCKETS];
+        this.targetSpeed = new double[TRACK_MAP_BUCKETS];
+        this.runSpeed = new double[TRACK_MAP_BUCKETS];
+        Arrays.fill(this.speedCap, NO_LIMIT);
+        Arrays.fill(this.targetSpeed, NO_LIMIT);
+        this.pending = -1;
+    }
+
+    /**
+     * Loads the map saved for a track, or creates an empty one if there is none.
+     *
+     * @param trackName The name of the track.
+     *
+     * @return The map.
+     */
+    public static TrackMap load(String trackName) {
+        return load(trackName, LearningSettings.DEFAULT);
+    }
+
+    /**
+     * Loads the map saved for a track as the learning settings say: the saved map is read only if they load the saved
+     * tables, and the map is saved to their directory.
+     *
+     * @param trackName The name of the track.
+     * @param settings  The learning settings of the driver.
+     *
+     * @return The map.
+     */
+    public static TrackMap load(String trackName, LearningSettings settings) {
+        TrackMap map = new TrackMap(trackName, settings.resolve(path(trackName)));
+        File f = new File(path(trackName));
+        if (settings.isLoadSavedTables() && f.exists())
+            map.read(f);
+        map.rebuild();
+        return map;
+    }
+
+    /**
+     * Returns the file a track map is saved to.
+     *
+     * @param trackName The name of the track.
+     *
+     * @return The file path.
+     */
+    public static String path(String trackName) {
+        return TRACK_MAP_PATH + trackName + ".csv";
+    }
+
+    /**
+     * Learns from the readings of one tick: the length of the track, the curvature estimated from the rangefinders
+     * and the speed driven through the current bucket. The rangefinders are expected at the default angles of
+     * {@link Controller#initAngles()}.
+     *
+     * @param sensors The sensor readings.
+     */
+    public void observe(SensorModel sensors) {
+        double distance = sensors.getDistanceFromStartLine();
+        if (distance < 0 || Math.abs(sensors.getTrackPosition()) >= 1)
+            return;
+        this.length = Math.max(this.length, distance);
+        int bucket = this.bucketOf(distance);
+
+        // Only a car roughly aligned with the track sees the curvature in the rangefinders
+        if (Math.abs(sensors.getAngleToTrackAxis()) < MAX_OBSERVED_ANGLE) {
+            double estimate = sensors.getFeatures().getTrackAnalysis().getCurvature();
+            if (!Double.isNaN(estimate)) {
+                if (this.samples[bucket] == 0)
+                    this.curvature[bucket] = estimate;
+                else
+                    this.curvature[bucket] += CURVATURE_WEIGHT * (estimate - this.curvature[bucket]);
+                this.samples[bucket]++;
+            }
+        }
+
+        this.runSpeed[bucket] = Math.max(this.runSpeed[bucket], sensors.getSpeed());
+        if (this.pending < 0)
+            this.pending = bucket;
+        // The speed of a bucket is safe once the car is far enough past it
+        int buckets = this.getBuckets();
+        while (this.pending != bucket && Math.floorMod(bucket - this.pending, buckets) >= this.safeBuckets) {
+            this.safeSpeed[this.pending] = Math.max(this.safeSpeed[this.pending], this.runSpeed[this.pending]);
+            this.runSpeed[this.pending] = 0;
+            this.pending = (this.pending + 1) % buckets;
+        }
+    }
+
+    /**
+     * Learns that the car left the track: the speeds driven shortly before are capped below what they were, and
+     * no longer count as safe.
+     *
+     * @param distance The distance from the start line where the car left the track.
+     */
+    public void recordOffTrack(double distance) {
+        int bucket = this.bucketOf(distance);
+        this.offTracks[bucket]++;
+        int buckets = this.getBuckets();
+        for (int k = 0; k <= this.safeBuckets; k++) {
+            int b = Math.floorMod(bucket - k, buckets);
+            if (this.runSpeed[b] > 0) {
+                this.speedCap[b] = Math.min(this.speedCap[b], this.runSpeed[b] * OFF_TRACK_FACTOR);
+                this.safeSpeed[b] = Math.min(this.safeSpeed[b], this.speedCap[b]);
+            }
+        }
+        this.startRun();
+    }
+
+    /**
+     * Starts a new run from the grid, forgetting the speeds of the current run that are not yet known to be safe.
+     */
+    public void startRun() {
+        Arrays.fill(this.runSpeed, 0);
+        this.pending = -1;
+    }
+
+    /**
+     * Recomputes the target speeds. The limit of every bucket comes from its curvature, raised to the speed already
+     * driven safely through it and lowered to its speed cap; the target speed is then lowered so that the car can
+     * brake down to the limits of the buckets ahead.
+     */
+    public void rebuild() {
+        int buckets = this.getBuckets();
+        double[] limit = new double[buckets];
+        for (int b = 0; b < buckets; b++) {
+            double cornerLimit = Math.abs(this.curvature[b]) > 1e-6
+                    ? Math.sqrt(LATERAL_ACCELERATION / Math.abs(this.curvature[b])) * 3.6 : NO_LIMIT;
+            if (this.samples[b] == 0)
+                cornerLimit = NO_LIMIT;
+            limit[b] = Math.min(Math.max(cornerLimit, this.safeSpeed[b]), this.speedCap[b]);
+        }
+
+        // Two passes backwards around the loop, so that the corners after the start line reach the buckets before it
+        double ahead = NO_LIMIT;
+        double braking = 2 * BRAKING_DECELERATION * this.bucketSize;
+        for (int k = 2 * buckets - 1; k >= 0; k--) {
+            int b = k % buckets;
+            double reachable = ahead == NO_LIMIT ? NO_LIMIT : Math.sqrt(ahead / 3.6 * ahead / 3.6 + braking) * 3.6;
+            ahead = Math.min(limit[b], reachable);
+            this.targetSpeed[b] = ahead;
+        }
+    }
+
+    /**
+     * Checks whether the map has learned the bucket of a distance from the start line.
+     *
+     * @param distance The distance from the start line.
+     *
+     * @return True if the bucket was observed, false otherwise.
+     */
+    public boolean isKnown(double distance) {
+        return distance >= 0 && this.samples[this.bucketOf(distance)] > 0;
+    }
+
+    /**
+     * Returns the target speed at a distance from the start line, including the braking for the corners ahead.
+     *
+     * @param distance The distance from the start line.
+     *
+     * @return The target speed in km/h, or {@link Double#MAX_VALUE} if nothing limits it.
+     */
+    public double getTargetSpeed(double distance) {
+        return this.targetSpeed[this.bucketOf(distance)];
+    }
+
+    /**
+     * Returns the learned curvature at a distance from the start line.
+     *
+     * @param distance The distance from the start line.
+     *
+     * @return The curvature in 1/m, positive for left turns.
+     */
+    public double getCurvature(double distance) {
+        return this.curvature[this.bucketOf(distance)];
+    }
+
+    /**
+     * Returns the highest speed driven safely at a distance from the start line.
+     *
+     * @param distance The distance from the start line.
+     *
+     * @return The speed in km/h, or 0 if none is known.
+     */
+    public double getSafeSpeed(double distance) {
+        return this.safeSpeed[this.bucketOf(distance)];
+    }
+
+    /**
+     * Returns the number of times the car left the track at a distance from the start line.
+     *
+     * @param distance The distance from the start line.
+     *
+     * @return The number of off-track events.
+     */
+    public int getOffTracks(double distance) {
+        return this.offTracks[this.bucketOf(distance)];
+    }
+
+    /**
+     * Returns the number of buckets the track spans.
+     *
+     * @return The number of buckets.
+     */
+    public int getBuckets() {
+        return this.length <= 0 ? TRACK_MAP_BUCKETS
+                : Math.min(TRACK_MAP_BUCKETS, (int) (this.length / this.bucketSize) + 1);
+    }
+
+    /**
+     * Returns the bucket of a distance from the start line.
+     *
+     * @param distance The distance from the start line.
+     *
+     * @return The index of the bucket.
+     */
+    private int bucketOf(double distance) {
+        return Math.min(TRACK_MAP_BUCKETS - 1, Math.max(0, (int) (distance / this.bucketSize)));
+    }
+
+    /**
+     * Saves the map to its file and recomputes the target speeds.
+     */
+    public void save() {
+        this.rebuild();
+        try (PrintWriter file = new PrintWriter(this.savePath)) {
+            file.write(" TRACK-MAP " + SEPARATOR + this.trackName + SEPARATOR + this.bucketSize + "\n");
+            file.write("LENGTH" + SEPARATOR + this.length + "\n");
+            file.write("BUCKET" + SEPARATOR + "CURVATURE" + SEPARATOR + "SAMPLES" + SEPARATOR + "SAFE_SPEED"
+                    + SEPARATOR + "SPEED_CAP" + SEPARATOR + "OFF_TRACKS\n");
+            int buckets = this.getBuckets();
+            for (int b = 0; b < buckets; b++) {
+                file.write(b + SEPARATOR + this.curvature[b] + SEPARATOR + this.samples[b] + SEPARATOR
+                        + this.safeSpeed[b] + SEPARATOR + (this.speedCap[b] == NO_LIMIT ? -1 : this.speedCap[b])
+                        + SEPARATOR + this.offTracks[b] + "\n");
+            }
+        } catch (FileNotFoundException e) {
+            System.out.println("ERROR!!! -> Could not save track map in .csv file...");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads a map saved by {@link #save()}. A map saved with another bucket size is ignored.
+     *
+     * @param f The file.
+     */
+    private void read(File f) {
+        try (Scanner file = new Scanner(f)) {
+            String[] header = file.nextLine().split(SEPARATOR);
+            if (Double.parseDouble(header[2]) != this.bucketSize) {
+                System.out.println("ERROR!!! -> " + f + " uses another bucket size, ignoring it");
+                return;
+            }
+            this.length = Double.parseDouble(file.nextLine().split(SEPARATOR)[1]);
+            file.nextLine();
+            while (file.hasNextLine()) {
+                String[] row = file.nextLine().split(SEPARATOR);
+                int b = Integer.parseInt(row[0]);
+                if (b >= TRACK_MAP_BUCKETS)
+                    continue;
+                this.curvature[b] = Double.parseDouble(row[1]);
+                this.samples[b] = Integer.parseInt(row[2]);
+                this.safeSpeed[b] = Double.parseDouble(row[3]);
+                double cap = Double.parseDouble(row[4]);
+                this.speedCap[b] = cap < 0 ? NO_LIMIT : cap;
+                this.offTracks[b] = Integer.parseInt(row[5]);
+            }
+        } catch (FileNotFoundException | RuntimeException e) {
+            System.out.println("ERROR!!! -> Could not load track map from .csv file...");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns the name of the track.
+     *
+     * @return The track name.
+     */
+    public String getTrackName() {
+        return trackName;
+    }
+
+    /**
+     * Returns the file the map is saved to.
+     *
+     * @return The file path.
+     */
+    public String getSavePath() {
+        return savePath;
+    }
+}
@@ -0,0 +1,55 @@
+package torcs;
+
+/**
+ * The TransferFunction class turns the difference between the current and the target speed into a joint accel/brake
+ * command in [-1, 1], with the sigmoid {@code 2 / (1 + exp(speed - targetSpeed)) - 1} shared by every controller:
+ * positive commands accelerate and negative ones brake.
+ *
+ * <p>{@link #accelAndBrake(double)} interpolates linearly in a table of the sigmoid computed once, instead of calling
+ * {@link Math#exp(double)}. The sigmoid is odd, so the table only covers the speed differences from 0 to
+ * {@link #RANGE} km/h, beyond which the command is within 5e-9 of full brake or full throttle. With
+ * {@link #RESOLUTION} entries per km/h the interpolation is off by less than 4e-7, see
+ * {@link TransferFunctionBenchmark}.</p>
+ */
+public class TransferFunction {
+
+    public static final double RANGE = 20.0;
+    public static final int RESOLUTION = 256;
+
+    private static final double LIMIT = RANGE * RESOLUTION;
+    // The sigmoid every 1/RESOLUTION km/h from 0 to RANGE, plus one entry to interpolate the last interval
+    private static final double[] TABLE = new double[(int) LIMIT + 2];
+
+    static {
+        for (int i = 0; i < TABLE.length; i++)
+            TABLE[i] = accelAndBrakeExact(i / (double) RESOLUTION);
+    }
+
+    /**
+     * Computes the accel/brake command from the table.
+     *
+     * @param speedDifference The current speed minus the target speed, in km/h.
+     *
+     * @return The command, in [-1, 1].
+     */
+    public static double accelAndBrake(double speedDifference) {
+        // Beyond the table the last entry is used; NaN goes through the arithmetic and comes out as NaN
+        double x = Math.min(Math.abs(speedDifference) * RESOLUTION, LIMIT);
+        int i = (int) x;
+        double low = TABLE[i];
+        double command = low + (TABLE[i + 1] - low) * (x - i);
+        // The sigmoid is odd and negative for positive differences; adding 0 turns -0.0 into 0.0
+        return Math.copySign(command, -speedDifference) + 0.0;
+    }
+
+    /**
+     * Computes the accel/brake command with {@link Math#exp(double)}.
+     *
+     * @param speedDifference The current speed minus the target speed, in km/h.
+     *
+     * @return The command, in [-1, 1].
+     */
+    public static double accelAndBrakeExact(double speedDifference) {
+        return 2 / (1 + Math.exp(speedDifference)) - 1;
+    }
+}
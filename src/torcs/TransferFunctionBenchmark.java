@@ -0,0 +1,112 @@
+package torcs;
+
+import java.util.Random;
+import java.util.StringTokenizer;
+
+/**
+ * The TransferFunctionBenchmark class checks how far the table of {@link TransferFunction#accelAndBrake(double)} is
+ * from the sigmoid computed by {@link TransferFunction#accelAndBrakeExact(double)} and measures both.
+ *
+ * <p>The check sweeps the speed differences from -2 * RANGE to 2 * RANGE km/h in steps much finer than the table,
+ * draws random ones across the whole speed range of the car, and tries special values, then reports the largest
+ * error, which must stay below 4e-7. The benchmark times both on random speed differences. Usage:
+ * {@code java torcs.TransferFunctionBenchmark [samples:N] [passes:N] [seed:N]}.</p>
+ */
+public class TransferFunctionBenchmark {
+
+    private static final double MAX_ERROR = 4e-7;
+    private static final int SWEEP_STEPS_PER_KMH = 10000;
+
+    /**
+     * Runs the check and the benchmark.
+     *
+     * @param args Optional {@code name:value} options.
+     */
+    public static void main(String[] args) {
+        int samples = 1000000;
+        int passes = 5;
+        long seed = 42;
+        for (String arg : args) {
+            StringTokenizer st = new StringTokenizer(arg, ":");
+            String entity = st.nextToken();
+            String value = st.nextToken();
+            if (entity.equals("samples"))
+                samples = Integer.parseInt(value);
+            if (entity.equals("passes"))
+                passes = Integer.parseInt(value);
+            if (entity.equals("seed"))
+                seed = Long.parseLong(value);
+        }
+
+        double maxError = 0;
+        double worst = 0;
+        long checked = 0;
+        int steps = (int) (4 * TransferFunction.RANGE * SWEEP_STEPS_PER_KMH);
+        for (int i = 0; i <= steps; i++) {
+            double difference = -2 * TransferFunction.RANGE + i / (double) SWEEP_STEPS_PER_KMH;
+            double error = error(difference);
+            checked++;
+            if (error > maxError) {
+                maxError = error;
+                worst = difference;
+            }
+        }
+        Random random = new Random(seed);
+        double[] differences = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            // Between standing still below a 300 km/h target and going 300 km/h above a standstill target
+            differences[i] = (random.nextDouble() * 2 - 1) * 300;
+            double error = error(differences[i]);
+            checked++;
+            if (error > maxError) {
+                maxError = error;
+                worst = differences[i];
+            }
+        }
+        double[] special = {0.0, -0.0, TransferFunction.RANGE, -TransferFunction.RANGE,
+                Math.nextDown(TransferFunction.RANGE), Math.nextUp(-TransferFunction.RANGE), Double.MAX_VALUE,
+                -Double.MAX_VALUE, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MIN_VALUE};
+        for (double difference : special) {
+            double error = error(difference);
+            checked++;
+            if (error > maxError) {
+                maxError = error;
+                worst = difference;
+            }
+        }
+        boolean nan = Double.isNaN(TransferFunction.accelAndBrake(Double.NaN));
+        System.out.println(String.format("%d speed differences checked, largest error %.3g at %.6f km/h (%s), "
+                + "NaN %s", checked, maxError, worst, maxError < MAX_ERROR ? "within bounds" : "OUT OF BOUNDS",
+                nan ? "propagated" : "NOT PROPAGATED"));
+
+        // Only the differences the controllers see while driving are timed
+        for (int i = 0; i < samples; i++)
+            differences[i] = (random.nextDouble() * 2 - 1) * 2 * TransferFunction.RANGE;
+        for (int pass = 1; pass <= passes; pass++) {
+            double checksum = 0;
+            long start = System.nanoTime();
+            for (double difference : differences)
+                checksum += TransferFunction.accelAndBrake(difference);
+            double table = (System.nanoTime() - start) / (double) samples;
+
+            start = System.nanoTime();
+            for (double difference : differences)
+                checksum -= TransferFunction.accelAndBrakeExact(difference);
+            double exact = (System.nanoTime() - start) / (double) samples;
+
+            System.out.println(String.format("Pass %d: %.1f ns/command, Math.exp %.1f ns/command (checksum %.3g)",
+                    pass, table, exact, checksum));
+        }
+    }
+
+    /**
+     * Returns the error of the table for a speed difference.
+     *
+     * @param difference The speed difference.
+     *
+     * @return The absolute difference between the table and the exact sigmoid.
+     */
+    private static double error(double difference) {
+        return Math.abs(TransferFunction.accelAndBrake(difference) - TransferFunction.accelAndBrakeExact(difference));
+    }
+}